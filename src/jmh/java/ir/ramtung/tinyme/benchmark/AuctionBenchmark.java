@@ -0,0 +1,85 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.AuctionMatcher;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opening price searches read one book built per trial. Opening an auction empties its book, so
+ * {@link #open} instead works through {@value #BOOKS} identical books built before each iteration.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AuctionBenchmark {
+    static final int BOOKS = 32;
+
+    @Param({"100", "1000", "10000"})
+    int orders;
+
+    @Param({"50"})
+    int spread;
+
+    private final AuctionMatcher auctionMatcher = new AuctionMatcher();
+    private Security security;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        security = auctionBook();
+    }
+
+    Security auctionBook() {
+        Random random = new Random(Fixtures.SEED);
+        Security security = Fixtures.security();
+        Broker broker = Fixtures.broker();
+        Shareholder shareholder = Fixtures.shareholder(security);
+        OrderBook orderBook = security.getOrderBook();
+        for (int i = 0; i < orders; i++) {
+            Side side = (i & 1) == 0 ? Side.BUY : Side.SELL;
+            int price = Fixtures.BASE_PRICE - spread + random.nextInt(2 * spread + 1);
+            orderBook.enqueue(Fixtures.limit(i + 1, security, side, 1 + random.nextInt(500), price, broker,
+                    shareholder));
+        }
+        security.setLastTradePrice(Fixtures.BASE_PRICE);
+        return security;
+    }
+
+    @State(Scope.Thread)
+    public static class Books {
+        final Security[] securities = new Security[BOOKS];
+
+        @Setup(Level.Iteration)
+        public void build(AuctionBenchmark benchmark) {
+            for (int book = 0; book < BOOKS; book++)
+                securities[book] = benchmark.auctionBook();
+        }
+    }
+
+    @Benchmark
+    public int findOpeningPrice() {
+        return auctionMatcher.findOpeningPrice(security);
+    }
+
+    @Benchmark
+    public int findIndicativeOpeningPrice() {
+        return auctionMatcher.findIndicativeOpeningPrice(security);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 20)
+    @OperationsPerInvocation(BOOKS)
+    public void open(Books books, Blackhole blackhole) {
+        for (Security book : books.securities)
+            blackhole.consume(auctionMatcher.open(book));
+    }
+}
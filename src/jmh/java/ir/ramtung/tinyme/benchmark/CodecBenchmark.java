@@ -0,0 +1,85 @@
+package ir.ramtung.tinyme.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.TradeDTO;
+import ir.ramtung.tinyme.messaging.codec.BinaryCodec;
+import ir.ramtung.tinyme.messaging.event.OrderExecutedEvent;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CodecBenchmark {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BinaryCodec binaryCodec = new BinaryCodec();
+    private EnterOrderRq request;
+    private OrderExecutedEvent event;
+    private String requestJson;
+    private byte[] requestBinary;
+    private String eventJson;
+    private byte[] eventBinary;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        request = EnterOrderRq.createNewOrderRq(1, "IRO1ABCD0001", 2, Fixtures.ENTRY_TIME, Side.BUY, 300,
+                Fixtures.BASE_PRICE, 3, 4, 0, 0, 0);
+        List<TradeDTO> trades = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+            trades.add(new TradeDTO("IRO1ABCD0001", Fixtures.BASE_PRICE + i, 60, 2, 10 + i));
+        event = new OrderExecutedEvent(1, 2, trades);
+        event.setTime(Fixtures.ENTRY_TIME);
+        requestJson = objectMapper.writeValueAsString(request);
+        requestBinary = binaryCodec.encode(request);
+        eventJson = objectMapper.writeValueAsString(event);
+        eventBinary = binaryCodec.encode(event);
+    }
+
+    @Benchmark
+    public String encodeRequestJson() throws Exception {
+        return objectMapper.writeValueAsString(request);
+    }
+
+    @Benchmark
+    public byte[] encodeRequestBinary() {
+        return binaryCodec.encode(request);
+    }
+
+    @Benchmark
+    public EnterOrderRq decodeRequestJson() throws Exception {
+        return objectMapper.readValue(requestJson, EnterOrderRq.class);
+    }
+
+    @Benchmark
+    public Object decodeRequestBinary() {
+        return binaryCodec.decode(requestBinary);
+    }
+
+    @Benchmark
+    public String encodeEventJson() throws Exception {
+        return objectMapper.writeValueAsString(event);
+    }
+
+    @Benchmark
+    public byte[] encodeEventBinary() {
+        return binaryCodec.encode(event);
+    }
+
+    @Benchmark
+    public OrderExecutedEvent decodeEventJson() throws Exception {
+        return objectMapper.readValue(eventJson, OrderExecutedEvent.class);
+    }
+
+    @Benchmark
+    public Object decodeEventBinary() {
+        return binaryCodec.decode(eventBinary);
+    }
+}
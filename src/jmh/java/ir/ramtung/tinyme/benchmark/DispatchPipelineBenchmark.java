@@ -0,0 +1,90 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.Matcher;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.journal.JournalSyncPolicy;
+import ir.ramtung.tinyme.journal.RequestJournal;
+import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.RequestDispatcher;
+import ir.ramtung.tinyme.messaging.SecurityShards;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.metrics.OrderBookGauges;
+import ir.ramtung.tinyme.metrics.OrderHandlerMetrics;
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order entry from the ingress thread through {@link RequestDispatcher} to a matching shard and
+ * back, alternating sells that rest and buys that take them; a share of the pairs fail the
+ * stateless rules. Each invocation dispatches a burst and waits for the shard to drain it; the
+ * book is rebuilt every iteration so the trade tape does not grow across the run.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DispatchPipelineBenchmark {
+    private static final int BURST = 1000;
+
+    @Param({"0", "20"})
+    int rejectedPercent;
+
+    private SecurityShards securityShards;
+    private RequestDispatcher dispatcher;
+    private boolean[] rejected;
+    private long next = 1_000_000;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        Security security = Fixtures.security();
+        Broker broker = Fixtures.broker();
+        Shareholder shareholder = Fixtures.shareholder(security);
+        Fixtures.fillRandomBook(security, broker, shareholder, 1000, 50, new Random(Fixtures.SEED));
+        SecurityRepository securityRepository = new SecurityRepository();
+        BrokerRepository brokerRepository = new BrokerRepository();
+        ShareholderRepository shareholderRepository = new ShareholderRepository();
+        securityRepository.addSecurity(security);
+        brokerRepository.addBroker(broker);
+        shareholderRepository.addShareholder(shareholder);
+        EventPublisher eventPublisher = new EventPublisher(null);
+        eventPublisher.mute();
+        OrderHandler orderHandler = new OrderHandler(securityRepository, brokerRepository, shareholderRepository,
+                eventPublisher, new Matcher(), OrderHandlerMetrics.disabled(),
+                new OrderBookGauges(securityRepository, 0, 0));
+        securityShards = new SecurityShards(1, 65536);
+        dispatcher = new RequestDispatcher(orderHandler, securityShards,
+                new RequestJournal("", 1 << 20, JournalSyncPolicy.OS, 1, 1));
+
+        Random random = new Random(Fixtures.SEED);
+        rejected = new boolean[BURST / 2];
+        for (int i = 0; i < rejected.length; i++)
+            rejected[i] = random.nextInt(100) < rejectedPercent;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws InterruptedException {
+        securityShards.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void dispatchBurst() throws InterruptedException {
+        for (int i = 0; i < BURST; i++) {
+            long id = next++;
+            dispatcher.dispatchEnterOrderRq(EnterOrderRq.createNewOrderRq(id, "BENCH", id, Fixtures.ENTRY_TIME,
+                    (i & 1) == 0 ? Side.SELL : Side.BUY, rejected[i / 2] ? 0 : 100, Fixtures.BASE_PRICE, 1, 1, 0));
+        }
+        CountDownLatch drained = new CountDownLatch(1);
+        securityShards.submit("BENCH", drained::countDown);
+        drained.await();
+    }
+}
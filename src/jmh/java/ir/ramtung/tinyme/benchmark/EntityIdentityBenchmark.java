@@ -0,0 +1,75 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Equality and hashing of orders and trades against books of growing depth. The list and the
+ * map hold a fixed number of entries, so any growth with {@code bookSize} would come from
+ * equals/hashCode walking the security, its book or the order owners.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EntityIdentityBenchmark {
+    private static final int ENTRIES = 64;
+
+    @Param({"10", "10000", "100000"})
+    int bookSize;
+
+    private List<Order> orders;
+    private HashMap<Order, Integer> orderMap;
+    private HashMap<Trade, Integer> tradeMap;
+    private Order last;
+    private Order lastCopy;
+    private Trade trade;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Security security = Fixtures.security();
+        Broker broker = Fixtures.broker();
+        Shareholder shareholder = Fixtures.shareholder(security);
+        Fixtures.fillRandomBook(security, broker, shareholder, bookSize, 50, new Random(Fixtures.SEED));
+        orders = new ArrayList<>(ENTRIES);
+        orderMap = new HashMap<>();
+        tradeMap = new HashMap<>();
+        for (int i = 0; i < ENTRIES; i++) {
+            Order order = Fixtures.limit(bookSize + i + 1, security, Side.BUY, 100, Fixtures.BASE_PRICE, broker,
+                    shareholder);
+            orders.add(order);
+            orderMap.put(order, i);
+            Order sell = Fixtures.limit(bookSize + ENTRIES + i + 1, security, Side.SELL, 100, Fixtures.BASE_PRICE,
+                    broker, shareholder);
+            trade = new Trade(security, Fixtures.BASE_PRICE, 100, order, sell);
+            tradeMap.put(trade, i);
+        }
+        last = orders.get(ENTRIES - 1);
+        lastCopy = new Order(last);
+    }
+
+    @Benchmark
+    public boolean removeAndRestoreOrder() {
+        boolean removed = orders.remove(lastCopy);
+        orders.add(last);
+        return removed;
+    }
+
+    @Benchmark
+    public Integer lookUpOrder() {
+        return orderMap.get(lastCopy);
+    }
+
+    @Benchmark
+    public Integer lookUpTrade() {
+        return tradeMap.get(trade);
+    }
+}
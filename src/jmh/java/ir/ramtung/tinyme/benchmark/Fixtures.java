@@ -0,0 +1,45 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.*;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+
+final class Fixtures {
+    static final long SEED = 20240101L;
+    static final int BASE_PRICE = 10_000;
+    static final LocalDateTime ENTRY_TIME = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    private Fixtures() {
+    }
+
+    static Broker broker() {
+        return Broker.builder().brokerId(1).credit(Long.MAX_VALUE / 4).build();
+    }
+
+    static Shareholder shareholder(Security security) {
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).build();
+        shareholder.incPosition(security, Integer.MAX_VALUE / 2);
+        return shareholder;
+    }
+
+    static Security security() {
+        return Security.builder().isin("BENCH").build();
+    }
+
+    static Order limit(long id, Security security, Side side, int quantity, int price, Broker broker,
+            Shareholder shareholder) {
+        return new Order(id, security, side, quantity, price, broker, shareholder, ENTRY_TIME);
+    }
+
+    static void fillRandomBook(Security security, Broker broker, Shareholder shareholder, int orders, int levels,
+            Random random) {
+        OrderBook orderBook = security.getOrderBook();
+        for (int i = 0; i < orders; i++) {
+            Side side = (i & 1) == 0 ? Side.BUY : Side.SELL;
+            int offset = 1 + random.nextInt(levels);
+            int price = side == Side.BUY ? BASE_PRICE - offset : BASE_PRICE + offset;
+            orderBook.enqueue(limit(i + 1, security, side, 1 + random.nextInt(500), price, broker, shareholder));
+        }
+    }
+}
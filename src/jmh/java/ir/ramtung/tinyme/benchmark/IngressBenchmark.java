@@ -0,0 +1,151 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.domain.service.EnterOrderContext;
+import ir.ramtung.tinyme.messaging.BatchRequestReceiver;
+import ir.ramtung.tinyme.messaging.IngressMode;
+import ir.ramtung.tinyme.messaging.RequestDispatcher;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import jakarta.jms.Connection;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Queue;
+import jakarta.jms.Session;
+import org.apache.activemq.artemis.api.core.TransportConfiguration;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.remoting.impl.invm.InVMAcceptorFactory;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+import org.springframework.jms.support.converter.MappingJackson2MessageConverter;
+import org.springframework.jms.support.converter.MessageType;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IngressBenchmark {
+    private static final int MESSAGES = 1000;
+    private static final String QUEUE = "RQ";
+
+    @Param({"LISTENER", "BATCH"})
+    IngressMode ingressMode;
+
+    @Param({"256"})
+    int ingressBatchSize;
+
+    @Param({"0"})
+    int ingressDecodeThreads;
+
+    private final AtomicLong dispatched = new AtomicLong();
+    private EmbeddedActiveMQ broker;
+    private ActiveMQConnectionFactory connectionFactory;
+    private Connection producerConnection;
+    private Session producerSession;
+    private MessageProducer producer;
+    private MappingJackson2MessageConverter converter;
+    private DefaultMessageListenerContainer listenerContainer;
+    private BatchRequestReceiver batchReceiver;
+    private EnterOrderRq[] requests;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        ConfigurationImpl configuration = new ConfigurationImpl();
+        configuration.setPersistenceEnabled(false);
+        configuration.setSecurityEnabled(false);
+        configuration.addAcceptorConfiguration(new TransportConfiguration(InVMAcceptorFactory.class.getName()));
+        broker = new EmbeddedActiveMQ();
+        broker.setConfiguration(configuration);
+        broker.start();
+        connectionFactory = new ActiveMQConnectionFactory("vm://0");
+
+        converter = new MappingJackson2MessageConverter();
+        converter.setTargetType(MessageType.TEXT);
+        converter.setTypeIdPropertyName("_type");
+        JmsTemplate jmsTemplate = new JmsTemplate(connectionFactory);
+        jmsTemplate.setMessageConverter(converter);
+
+        producerConnection = connectionFactory.createConnection();
+        producerSession = producerConnection.createSession(true, Session.SESSION_TRANSACTED);
+        Queue queue = producerSession.createQueue(QUEUE);
+        producer = producerSession.createProducer(queue);
+        producer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+
+        requests = new EnterOrderRq[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++)
+            requests[i] = EnterOrderRq.createNewOrderRq(i, "S" + (i % 16), i, Fixtures.ENTRY_TIME,
+                    (i & 1) == 0 ? Side.BUY : Side.SELL, 100, Fixtures.BASE_PRICE, 1, 1, 0);
+
+        RequestDispatcher dispatcher = new RequestDispatcher(null, null, null) {
+            @Override
+            public void dispatchEnterOrderRq(EnterOrderRq enterOrderRq) {
+                dispatched.incrementAndGet();
+            }
+
+            @Override
+            public EnterOrderContext prevalidate(EnterOrderRq enterOrderRq) {
+                return new EnterOrderContext(enterOrderRq, null, null, null, true);
+            }
+
+            @Override
+            public void dispatchEnterOrder(EnterOrderContext context) {
+                dispatched.incrementAndGet();
+            }
+        };
+
+        if (ingressMode == IngressMode.LISTENER) {
+            listenerContainer = new DefaultMessageListenerContainer();
+            listenerContainer.setConnectionFactory(connectionFactory);
+            listenerContainer.setDestinationName(QUEUE);
+            listenerContainer.setMessageSelector("_type='" + EnterOrderRq.class.getName() + "'");
+            listenerContainer.setMessageListener((jakarta.jms.MessageListener) message -> {
+                try {
+                    dispatcher.receiveEnterOrderRq((EnterOrderRq) converter.fromMessage(message));
+                } catch (jakarta.jms.JMSException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            listenerContainer.afterPropertiesSet();
+            listenerContainer.start();
+        } else {
+            batchReceiver = new BatchRequestReceiver(dispatcher, jmsTemplate);
+            ReflectionTestUtils.setField(batchReceiver, "requestQueue", QUEUE);
+            ReflectionTestUtils.setField(batchReceiver, "ingressMode", IngressMode.BATCH);
+            ReflectionTestUtils.setField(batchReceiver, "ingressBatchSize", ingressBatchSize);
+            ReflectionTestUtils.setField(batchReceiver, "ingressDecodeThreads", ingressDecodeThreads);
+            batchReceiver.start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (listenerContainer != null)
+            listenerContainer.shutdown();
+        if (batchReceiver != null)
+            batchReceiver.stop();
+        producerConnection.close();
+        connectionFactory.close();
+        broker.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public long sendAndDispatch() throws Exception {
+        long target = dispatched.get() + MESSAGES;
+        for (EnterOrderRq request : requests)
+            producer.send(converter.toMessage(request, producerSession));
+        producerSession.commit();
+        while (dispatched.get() < target)
+            LockSupport.parkNanos(10_000);
+        return target;
+    }
+}
@@ -0,0 +1,85 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.journal.JournalSyncPolicy;
+import ir.ramtung.tinyme.journal.RequestJournal;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JournalBenchmark {
+    private static final int SEGMENT_SIZE = 64 << 20;
+
+    @Param({"1000000"})
+    int requests;
+
+    @Param({"GROUP"})
+    JournalSyncPolicy syncPolicy;
+
+    private Path directory;
+    private Path appendDirectory;
+    private RequestJournal appendJournal;
+    private EnterOrderRq[] samples;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Random random = new Random(Fixtures.SEED);
+        samples = new EnterOrderRq[1024];
+        for (int i = 0; i < samples.length; i++)
+            samples[i] = EnterOrderRq.createNewOrderRq(i, "S" + random.nextInt(16), i, Fixtures.ENTRY_TIME,
+                    random.nextBoolean() ? Side.BUY : Side.SELL, 1 + random.nextInt(500),
+                    Fixtures.BASE_PRICE + random.nextInt(100), 1, 1, 0);
+
+        directory = Files.createTempDirectory("journal-replay");
+        RequestJournal journal = new RequestJournal(directory.toString(), SEGMENT_SIZE, JournalSyncPolicy.OS, 256, 2);
+        journal.start();
+        for (int i = 0; i < requests; i++)
+            journal.append(samples[i & (samples.length - 1)]);
+        journal.close();
+
+        appendDirectory = Files.createTempDirectory("journal-append");
+        appendJournal = new RequestJournal(appendDirectory.toString(), SEGMENT_SIZE, syncPolicy, 256, 2);
+        appendJournal.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        appendJournal.close();
+        delete(directory);
+        delete(appendDirectory);
+    }
+
+    @Benchmark
+    public void append() {
+        appendJournal.append(samples[next++ & (samples.length - 1)]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1_000_000)
+    public int replay() {
+        int[] count = new int[1];
+        new RequestJournal(directory.toString(), SEGMENT_SIZE, JournalSyncPolicy.OS, 256, 2)
+                .replay(request -> count[0]++);
+        return count[0];
+    }
+
+    private static void delete(Path path) throws IOException {
+        try (Stream<Path> files = Files.walk(path)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+}
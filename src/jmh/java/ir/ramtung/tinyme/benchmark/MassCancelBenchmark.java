@@ -0,0 +1,100 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.messaging.exception.InvalidRequestException;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pulling every order of one broker out of a large book: one mass cancel walking the broker's
+ * own list, a delete request per order when the ids are already known, and finding the orders by
+ * scanning the book first. Each iteration builds {@value #BOOKS} identical books and one
+ * invocation clears the broker out of all of them.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 40)
+@Fork(1)
+@State(Scope.Thread)
+public class MassCancelBenchmark {
+    static final int BOOKS = 8;
+
+    @Param({"100000"})
+    public int orders;
+    @Param({"100"})
+    public int brokers;
+
+    private final Security[] securities = new Security[BOOKS];
+    private final Broker[] targets = new Broker[BOOKS];
+    private final List<List<DeleteOrderRq>> deletes = new ArrayList<>();
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        deletes.clear();
+        for (int book = 0; book < BOOKS; book++)
+            build(book);
+    }
+
+    private void build(int book) {
+        Security security = Fixtures.security();
+        Shareholder shareholder = Fixtures.shareholder(security);
+        Broker[] owners = new Broker[brokers];
+        for (int i = 0; i < brokers; i++)
+            owners[i] = Broker.builder().brokerId(i + 1).credit(Long.MAX_VALUE / 4).build();
+        Broker target = owners[0];
+        List<DeleteOrderRq> bookDeletes = new ArrayList<>();
+        Random random = new Random(Fixtures.SEED);
+        OrderBook orderBook = security.getOrderBook();
+        for (int i = 0; i < orders; i++) {
+            Side side = (i & 1) == 0 ? Side.BUY : Side.SELL;
+            int offset = 1 + random.nextInt(200);
+            int price = side == Side.BUY ? Fixtures.BASE_PRICE - offset : Fixtures.BASE_PRICE + offset;
+            Broker broker = owners[random.nextInt(brokers)];
+            orderBook.enqueue(Fixtures.limit(i + 1, security, side, 1 + random.nextInt(500), price, broker,
+                    shareholder));
+            if (broker == target)
+                bookDeletes.add(new DeleteOrderRq(i + 1, "BENCH", side, i + 1, Fixtures.ENTRY_TIME));
+        }
+        securities[book] = security;
+        targets[book] = target;
+        deletes.add(bookDeletes);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOOKS)
+    public void massCancel(Blackhole blackhole) {
+        for (int book = 0; book < BOOKS; book++)
+            blackhole.consume(securities[book].cancelOrders(targets[book], null, null));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOOKS)
+    public void deleteOneByOne() throws InvalidRequestException {
+        for (int book = 0; book < BOOKS; book++)
+            for (DeleteOrderRq delete : deletes.get(book))
+                securities[book].deleteOrder(delete);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOOKS)
+    public void scanAndDelete() {
+        for (int book = 0; book < BOOKS; book++) {
+            OrderBook orderBook = securities[book].getOrderBook();
+            Broker target = targets[book];
+            for (Side side : Side.values())
+                for (Order order : side == Side.BUY ? orderBook.getBuyQueue() : orderBook.getSellQueue())
+                    if (order.getBroker() == target) {
+                        if (side == Side.BUY)
+                            target.increaseCreditBy(order.getValue());
+                        orderBook.removeByOrderId(side, order.getOrderId());
+                    }
+        }
+    }
+}
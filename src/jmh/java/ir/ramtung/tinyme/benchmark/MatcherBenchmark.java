@@ -0,0 +1,116 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.Matcher;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matching against books that each call uses up. Every iteration builds {@value #BOOKS} identical
+ * books up front and a single invocation works through all of them, so building books stays out
+ * of both the timing and the allocation figures.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Thread)
+public class MatcherBenchmark {
+    static final int BOOKS = 32;
+
+    @Param({"1000", "10000"})
+    int bookOrders;
+
+    @Param({"100"})
+    int levels;
+
+    @Param({"10"})
+    int peakSize;
+
+    private final Matcher matcher = new Matcher();
+
+    @State(Scope.Thread)
+    public static class Sweeps {
+        final Order[] orders = new Order[BOOKS];
+
+        @Setup(Level.Iteration)
+        public void build(MatcherBenchmark benchmark) {
+            Broker broker = Fixtures.broker();
+            for (int book = 0; book < BOOKS; book++) {
+                Security security = Fixtures.security();
+                Shareholder shareholder = Fixtures.shareholder(security);
+                Fixtures.fillRandomBook(security, broker, shareholder, benchmark.bookOrders, benchmark.levels,
+                        new Random(Fixtures.SEED));
+                orders[book] = Fixtures.limit(benchmark.bookOrders + 1, security, Side.BUY, Integer.MAX_VALUE / 4,
+                        Fixtures.BASE_PRICE + benchmark.levels, broker, shareholder);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Passives {
+        final Order[] orders = new Order[BOOKS];
+
+        @Setup(Level.Iteration)
+        public void build(MatcherBenchmark benchmark) {
+            Broker broker = Fixtures.broker();
+            for (int book = 0; book < BOOKS; book++) {
+                Security security = Fixtures.security();
+                Shareholder shareholder = Fixtures.shareholder(security);
+                Fixtures.fillRandomBook(security, broker, shareholder, benchmark.bookOrders, benchmark.levels,
+                        new Random(Fixtures.SEED));
+                orders[book] = Fixtures.limit(benchmark.bookOrders + 2, security, Side.BUY, 100,
+                        Fixtures.BASE_PRICE, broker, shareholder);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Icebergs {
+        final Order[] orders = new Order[BOOKS];
+
+        @Setup(Level.Iteration)
+        public void build(MatcherBenchmark benchmark) {
+            Broker broker = Fixtures.broker();
+            for (int book = 0; book < BOOKS; book++) {
+                Random random = new Random(Fixtures.SEED);
+                Security security = Fixtures.security();
+                Shareholder shareholder = Fixtures.shareholder(security);
+                int total = 0;
+                for (int i = 0; i < benchmark.levels; i++) {
+                    int quantity = benchmark.peakSize * (1 + random.nextInt(100));
+                    total += quantity;
+                    security.getOrderBook().enqueue(new IcebergOrder(i + 1, security, Side.SELL, quantity,
+                            Fixtures.BASE_PRICE, broker, shareholder, Fixtures.ENTRY_TIME, benchmark.peakSize));
+                }
+                orders[book] = Fixtures.limit(benchmark.levels + 1, security, Side.BUY, total, Fixtures.BASE_PRICE,
+                        broker, shareholder);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOOKS)
+    public void aggressiveSweep(Sweeps sweeps, Blackhole blackhole) {
+        for (Order order : sweeps.orders)
+            blackhole.consume(matcher.execute(order));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOOKS)
+    public void passiveIntoDeepBook(Passives passives, Blackhole blackhole) {
+        for (Order order : passives.orders)
+            blackhole.consume(matcher.execute(order));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOOKS)
+    public void icebergReplenishment(Icebergs icebergs, Blackhole blackhole) {
+        for (Order order : icebergs.orders)
+            blackhole.consume(matcher.execute(order));
+    }
+}
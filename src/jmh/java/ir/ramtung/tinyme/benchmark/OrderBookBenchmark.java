@@ -0,0 +1,58 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class OrderBookBenchmark {
+    @Param({"1000", "100000"})
+    int bookOrders;
+
+    @Param({"100"})
+    int levels;
+
+    private Security security;
+    private OrderBook orderBook;
+    private Order[] incoming;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(Fixtures.SEED);
+        security = Fixtures.security();
+        Broker broker = Fixtures.broker();
+        Shareholder shareholder = Fixtures.shareholder(security);
+        Fixtures.fillRandomBook(security, broker, shareholder, bookOrders, levels, random);
+        orderBook = security.getOrderBook();
+        incoming = new Order[1024];
+        for (int i = 0; i < incoming.length; i++) {
+            Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+            int offset = 1 + random.nextInt(levels);
+            int price = side == Side.BUY ? Fixtures.BASE_PRICE - offset : Fixtures.BASE_PRICE + offset;
+            incoming[i] = Fixtures.limit(bookOrders + i + 1, security, side, 1 + random.nextInt(500), price, broker,
+                    shareholder);
+        }
+    }
+
+    @Benchmark
+    public Order enqueueAndCancel() {
+        Order order = incoming[next++ & (incoming.length - 1)];
+        orderBook.enqueue(order);
+        orderBook.removeByOrderId(order.getSide(), order.getOrderId());
+        return order;
+    }
+
+    @Benchmark
+    public Order findByOrderId() {
+        long orderId = 1 + (next++ % bookOrders);
+        return orderBook.findByOrderId((orderId & 1) == 1 ? Side.BUY : Side.SELL, orderId);
+    }
+}
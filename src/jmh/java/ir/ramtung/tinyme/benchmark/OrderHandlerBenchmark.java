@@ -0,0 +1,64 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.Matcher;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.metrics.OrderBookGauges;
+import ir.ramtung.tinyme.metrics.OrderHandlerMetrics;
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end order entry through {@link OrderHandler} with publishing muted, alternating sells
+ * that rest and buys that take them against a 1000-order background book. Compares throughput
+ * with per-stage metrics off, timing every request, and sampling one in 64.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class OrderHandlerBenchmark {
+    @Param({"false", "true"})
+    boolean metrics;
+
+    @Param({"1", "64"})
+    int sampleInterval;
+
+    private OrderHandler orderHandler;
+    private long next = 1_000_000;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Security security = Fixtures.security();
+        Broker broker = Fixtures.broker();
+        Shareholder shareholder = Fixtures.shareholder(security);
+        Fixtures.fillRandomBook(security, broker, shareholder, 1000, 50, new Random(Fixtures.SEED));
+        SecurityRepository securityRepository = new SecurityRepository();
+        BrokerRepository brokerRepository = new BrokerRepository();
+        ShareholderRepository shareholderRepository = new ShareholderRepository();
+        securityRepository.addSecurity(security);
+        brokerRepository.addBroker(broker);
+        shareholderRepository.addShareholder(shareholder);
+        EventPublisher eventPublisher = new EventPublisher(null);
+        eventPublisher.mute();
+        orderHandler = new OrderHandler(securityRepository, brokerRepository, shareholderRepository, eventPublisher,
+                new Matcher(), new OrderHandlerMetrics(metrics, sampleInterval),
+                new OrderBookGauges(securityRepository, 0, 0));
+    }
+
+    @Benchmark
+    public void restAndTake() {
+        long id = next++;
+        orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(id, "BENCH", id, Fixtures.ENTRY_TIME,
+                (id & 1) == 0 ? Side.SELL : Side.BUY, 100, Fixtures.BASE_PRICE, 1, 1, 0));
+    }
+}
@@ -0,0 +1,72 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.Shareholder;
+import ir.ramtung.tinyme.repository.LongObjectHashMap;
+import ir.ramtung.tinyme.repository.LongObjectMap;
+import ir.ramtung.tinyme.repository.OffHeapLongObjectMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup cost of the shareholder table implementations. On setup each trial prints the heap
+ * retained by the table itself (not the shareholders) per million entries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class RepositoryFootprintBenchmark {
+    @Param({"1000000"})
+    int entries;
+
+    @Param({"BOXED", "PRIMITIVE", "OFF_HEAP"})
+    String table;
+
+    private HashMap<Long, Shareholder> boxed;
+    private LongObjectMap<Shareholder> primitive;
+    private long[] probes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Shareholder[] shareholders = new Shareholder[entries];
+        Random random = new Random(Fixtures.SEED);
+        for (int i = 0; i < entries; i++)
+            shareholders[i] = Shareholder.builder().shareholderId(1_000_000_000L + random.nextInt(Integer.MAX_VALUE))
+                    .build();
+        long before = usedHeap();
+        if (table.equals("BOXED")) {
+            boxed = new HashMap<>();
+            for (Shareholder shareholder : shareholders)
+                boxed.put(shareholder.getShareholderId(), shareholder);
+        } else {
+            primitive = table.equals("PRIMITIVE") ? new LongObjectHashMap<>() : new OffHeapLongObjectMap<>();
+            for (Shareholder shareholder : shareholders)
+                primitive.put(shareholder.getShareholderId(), shareholder);
+        }
+        long retained = usedHeap() - before;
+        System.out.printf("%n%s table: %.1f MB heap per million entries%n", table,
+                retained / (entries / 1_000_000.0) / (1 << 20));
+        probes = new long[1 << 16];
+        for (int i = 0; i < probes.length; i++)
+            probes[i] = shareholders[random.nextInt(entries)].getShareholderId();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Benchmark
+    public Shareholder lookup() {
+        long id = probes[next++ & (probes.length - 1)];
+        return boxed != null ? boxed.get(id) : primitive.get(id);
+    }
+}
@@ -0,0 +1,84 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.Matcher;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A stop-limit cascade where every activated buy trades one tick higher and so triggers the next,
+ * started by a single order through {@link OrderHandler} with publishing muted. Each iteration
+ * builds {@value #BOOKS} identical books, and one invocation triggers the cascade on all of them.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Thread)
+public class StopLimitCascadeBenchmark {
+    static final int BOOKS = 32;
+
+    @Param({"100", "10000"})
+    int stopOrders;
+
+    private OrderHandler orderHandler;
+    private final EnterOrderRq[] triggers = new EnterOrderRq[BOOKS];
+    private final OrderCancellationQueue[] queues = new OrderCancellationQueue[BOOKS];
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        SecurityRepository securityRepository = new SecurityRepository();
+        BrokerRepository brokerRepository = new BrokerRepository();
+        ShareholderRepository shareholderRepository = new ShareholderRepository();
+        Broker broker = Fixtures.broker();
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).build();
+        brokerRepository.addBroker(broker);
+        shareholderRepository.addShareholder(shareholder);
+        for (int book = 0; book < BOOKS; book++) {
+            Security security = Security.builder().isin("BENCH" + book).build();
+            securityRepository.addSecurity(security);
+            OrderBook orderBook = security.getOrderBook();
+            orderBook.enqueue(Fixtures.limit(1, security, Side.SELL, 10, Fixtures.BASE_PRICE, broker, shareholder));
+            for (int i = 0; i < stopOrders; i++) {
+                int price = Fixtures.BASE_PRICE + i + 1;
+                orderBook.enqueue(Fixtures.limit(i + 2, security, Side.SELL, 10, price, broker, shareholder));
+                security.getOrderCancellationQueue().addToDeactivatedBuy(new StopLimitOrder(stopOrders + i + 2,
+                        security, Side.BUY, 10, price, broker, shareholder, Fixtures.ENTRY_TIME, OrderStatus.NEW,
+                        price - 1));
+            }
+            queues[book] = security.getOrderCancellationQueue();
+            long id = 2L * stopOrders + 2;
+            triggers[book] = EnterOrderRq.createNewOrderRq(id, security.getIsin(), id, Fixtures.ENTRY_TIME, Side.BUY,
+                    10, Fixtures.BASE_PRICE, 1, 1, 0);
+        }
+        EventPublisher eventPublisher = new EventPublisher(null);
+        eventPublisher.mute();
+        orderHandler = new OrderHandler(securityRepository, brokerRepository, shareholderRepository, eventPublisher,
+                new Matcher());
+        ReflectionTestUtils.setField(orderHandler, "stopLimitCascadeLimit", Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOOKS)
+    public void cascade() {
+        for (EnterOrderRq trigger : triggers)
+            orderHandler.handleEnterOrder(trigger);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOOKS)
+    public void activateAll(Blackhole blackhole) {
+        for (OrderCancellationQueue queue : queues)
+            blackhole.consume(queue.getActivatedOrder(Fixtures.BASE_PRICE + stopOrders));
+    }
+}
@@ -0,0 +1,56 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.EnterOrderContext;
+import ir.ramtung.tinyme.domain.service.OrderFactory;
+import ir.ramtung.tinyme.domain.service.validation.Validation;
+import ir.ramtung.tinyme.messaging.exception.InvalidRequestException;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup, validation and order creation for a request that is accepted, the work order entry
+ * does before matching. Run with {@code -prof gc} to see that only the order itself is allocated.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValidationBenchmark {
+    private SecurityRepository securityRepository;
+    private BrokerRepository brokerRepository;
+    private ShareholderRepository shareholderRepository;
+    private Validation validation;
+    private OrderFactory orderFactory;
+    private EnterOrderRq request;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        securityRepository = new SecurityRepository();
+        brokerRepository = new BrokerRepository();
+        shareholderRepository = new ShareholderRepository();
+        Security security = Fixtures.security();
+        securityRepository.addSecurity(security);
+        brokerRepository.addBroker(Fixtures.broker());
+        shareholderRepository.addShareholder(Fixtures.shareholder(security));
+        validation = new Validation();
+        orderFactory = new OrderFactory();
+        request = EnterOrderRq.createNewOrderRq(1, "BENCH", 1, Fixtures.ENTRY_TIME, Side.BUY, 100,
+                Fixtures.BASE_PRICE, 1, 1, 0);
+    }
+
+    @Benchmark
+    public Order validateAcceptedOrder() throws InvalidRequestException {
+        EnterOrderContext context = EnterOrderContext.resolve(request, securityRepository, brokerRepository,
+                shareholderRepository);
+        validation.validate(context);
+        return orderFactory.createOrder(context);
+    }
+}
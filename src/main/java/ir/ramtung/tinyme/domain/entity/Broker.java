@@ -14,20 +14,44 @@ public class Broker {
     private long brokerId;
     @Getter
     private String name;
-    @Getter
     private long credit;
 
-    public void increaseCreditBy(long amount) {
+    public synchronized long getCredit() {
+        return credit;
+    }
+
+    public synchronized void increaseCreditBy(long amount) {
         assert amount >= 0;
         credit += amount;
     }
 
-    public void decreaseCreditBy(long amount) {
+    public synchronized void decreaseCreditBy(long amount) {
         assert amount >= 0;
         credit -= amount;
     }
 
-    public boolean hasEnoughCredit(long amount) {
+    public synchronized boolean hasEnoughCredit(long amount) {
         return credit >= amount;
     }
+
+    public synchronized boolean tryDecreaseCreditBy(long amount) {
+        assert amount >= 0;
+        if (credit < amount)
+            return false;
+        credit -= amount;
+        return true;
+    }
+
+    /**
+     * Swaps a reservation of {@code released} for one of {@code reserved} in a single step, so a
+     * matcher on another shard can never spend the released credit in between. Leaves the credit
+     * untouched and returns false when the new reservation does not fit.
+     */
+    public synchronized boolean tryReplaceReservation(long released, long reserved) {
+        assert released >= 0 && reserved >= 0;
+        if (credit + released < reserved)
+            return false;
+        credit += released - reserved;
+        return true;
+    }
 }
@@ -0,0 +1,91 @@
+package ir.ramtung.tinyme.domain.entity;
+
+/**
+ * Cumulative resting quantity by price: a Fenwick tree over the int price range
+ * whose nodes are stored sparsely in an open-addressing table.
+ */
+class DepthIndex {
+    private static final long RANGE = 1L << 32;
+
+    private long[] keys;
+    private long[] sums;
+    private int used;
+    private long total;
+
+    DepthIndex() {
+        keys = new long[64];
+        sums = new long[64];
+    }
+
+    void add(int price, long quantity) {
+        if (quantity == 0)
+            return;
+        total += quantity;
+        for (long i = indexOf(price); i <= RANGE; i += i & -i)
+            addAt(i, quantity);
+    }
+
+    long retainedBytes() {
+        return 2 * (16 + 8L * keys.length) + 32;
+    }
+
+    long atOrBelow(int price) {
+        long sum = 0;
+        for (long i = indexOf(price); i > 0; i -= i & -i)
+            sum += sumAt(i);
+        return sum;
+    }
+
+    long atOrAbove(int price) {
+        if (price == Integer.MIN_VALUE)
+            return total;
+        return total - atOrBelow(price - 1);
+    }
+
+    long total() {
+        return total;
+    }
+
+    private static long indexOf(int price) {
+        return (long) price - Integer.MIN_VALUE + 1;
+    }
+
+    private int slotOf(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 33) & mask;
+        while (keys[slot] != 0 && keys[slot] != key)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private long sumAt(long key) {
+        int slot = slotOf(key);
+        return keys[slot] == key ? sums[slot] : 0;
+    }
+
+    private void addAt(long key, long quantity) {
+        int slot = slotOf(key);
+        if (keys[slot] == 0) {
+            if (2 * (used + 1) > keys.length) {
+                grow();
+                slot = slotOf(key);
+            }
+            keys[slot] = key;
+            used++;
+        }
+        sums[slot] += quantity;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldSums = sums;
+        keys = new long[oldKeys.length * 2];
+        sums = new long[oldSums.length * 2];
+        for (int i = 0; i < oldKeys.length; i++)
+            if (oldKeys[i] != 0) {
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                sums[slot] = oldSums[i];
+            }
+    }
+}
@@ -0,0 +1,161 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * The fills of one match kept as parallel columns. Each fill stores the two orders it
+ * came from and their quantities just before the fill, which is enough to build the
+ * equivalent {@link Trade} (and its order snapshots) only when something asks for it.
+ */
+public class Fills {
+    private static final int INITIAL_CAPACITY = 8;
+    private static final Fills NONE = new Fills(null, 0);
+
+    @Getter
+    private final Security security;
+    private int size;
+    private int[] prices;
+    private int[] quantities;
+    private Order[] buys;
+    private Order[] sells;
+    private int[] buyQuantities;
+    private int[] sellQuantities;
+
+    public Fills(Security security) {
+        this(security, INITIAL_CAPACITY);
+    }
+
+    private Fills(Security security, int capacity) {
+        this.security = security;
+        prices = new int[capacity];
+        quantities = new int[capacity];
+        buys = new Order[capacity];
+        sells = new Order[capacity];
+        buyQuantities = new int[capacity];
+        sellQuantities = new int[capacity];
+    }
+
+    /**
+     * The shared, immutable result of a match that filled nothing.
+     */
+    public static Fills none() {
+        return NONE;
+    }
+
+    public static Fills of(List<Trade> trades) {
+        Fills fills = new Fills(trades.isEmpty() ? null : trades.get(0).getSecurity(), trades.size());
+        for (Trade trade : trades)
+            fills.add(trade.getPrice(), trade.getQuantity(), trade.getBuy(), trade.getBuy().getTotalQuantity(),
+                    trade.getSell(), trade.getSell().getTotalQuantity());
+        return fills;
+    }
+
+    public void add(int price, int quantity, Order buy, int buyQuantity, Order sell, int sellQuantity) {
+        if (this == NONE)
+            throw new UnsupportedOperationException("Fills.none() cannot take fills");
+        if (size == prices.length)
+            grow();
+        prices[size] = price;
+        quantities[size] = quantity;
+        buys[size] = buy;
+        sells[size] = sell;
+        buyQuantities[size] = buyQuantity;
+        sellQuantities[size] = sellQuantity;
+        size++;
+    }
+
+    private void grow() {
+        int capacity = Math.max(INITIAL_CAPACITY, prices.length * 2);
+        prices = Arrays.copyOf(prices, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        buys = Arrays.copyOf(buys, capacity);
+        sells = Arrays.copyOf(sells, capacity);
+        buyQuantities = Arrays.copyOf(buyQuantities, capacity);
+        sellQuantities = Arrays.copyOf(sellQuantities, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int price(int i) {
+        return prices[i];
+    }
+
+    public int quantity(int i) {
+        return quantities[i];
+    }
+
+    public long tradedValue(int i) {
+        return (long) prices[i] * quantities[i];
+    }
+
+    public Order buy(int i) {
+        return buys[i];
+    }
+
+    public Order sell(int i) {
+        return sells[i];
+    }
+
+    public long buyOrderId(int i) {
+        return buys[i].getOrderId();
+    }
+
+    public long sellOrderId(int i) {
+        return sells[i].getOrderId();
+    }
+
+    public long buyBrokerId(int i) {
+        return buys[i].getBroker().getBrokerId();
+    }
+
+    public long sellBrokerId(int i) {
+        return sells[i].getBroker().getBrokerId();
+    }
+
+    public Order buySnapshot(int i) {
+        return buys[i].snapshotWithQuantity(buyQuantities[i]);
+    }
+
+    public Order sellSnapshot(int i) {
+        return sells[i].snapshotWithQuantity(sellQuantities[i]);
+    }
+
+    public int lastPrice() {
+        return prices[size - 1];
+    }
+
+    public int totalQuantity() {
+        int total = 0;
+        for (int i = 0; i < size; i++)
+            total += quantities[i];
+        return total;
+    }
+
+    public long totalTradedValue() {
+        long total = 0;
+        for (int i = 0; i < size; i++)
+            total += tradedValue(i);
+        return total;
+    }
+
+    public Trade toTrade(int i) {
+        return new Trade(security, prices[i], quantities[i], buySnapshot(i), sellSnapshot(i));
+    }
+
+    public LinkedList<Trade> toTrades() {
+        LinkedList<Trade> trades = new LinkedList<>();
+        for (int i = 0; i < size; i++)
+            trades.add(toTrade(i));
+        return trades;
+    }
+}
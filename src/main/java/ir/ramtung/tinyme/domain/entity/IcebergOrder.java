@@ -1,14 +1,12 @@
 package ir.ramtung.tinyme.domain.entity;
 
 import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
-import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
 import java.time.LocalDateTime;
 
 @Getter
-@EqualsAndHashCode(callSuper = true)
 @ToString(callSuper = true)
 public class IcebergOrder extends Order {
     private int peakSize;
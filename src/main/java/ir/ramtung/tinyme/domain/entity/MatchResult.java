@@ -7,32 +7,37 @@ import java.util.Objects;
 public final class MatchResult {
     private final MatchingOutcome outcome;
     private final Order remainder;
-    private final LinkedList<Trade> trades;
+    private final Fills fills;
+    private LinkedList<Trade> trades;
 
     public static MatchResult executed(Order remainder, List<Trade> trades) {
-        return new MatchResult(MatchingOutcome.EXECUTED, remainder, new LinkedList<>(trades));
+        return new MatchResult(MatchingOutcome.EXECUTED, remainder, Fills.of(trades));
+    }
+
+    public static MatchResult executed(Order remainder, Fills fills) {
+        return new MatchResult(MatchingOutcome.EXECUTED, remainder, fills);
     }
 
     public static MatchResult notEnoughCredit() {
-        return new MatchResult(MatchingOutcome.NOT_ENOUGH_CREDIT, null, new LinkedList<>());
+        return new MatchResult(MatchingOutcome.NOT_ENOUGH_CREDIT, null, Fills.none());
     }
 
     public static MatchResult notEnoughPositions() {
-        return new MatchResult(MatchingOutcome.NOT_ENOUGH_POSITIONS, null, new LinkedList<>());
+        return new MatchResult(MatchingOutcome.NOT_ENOUGH_POSITIONS, null, Fills.none());
     }
 
     public static MatchResult notEnoughTrades() {
-        return new MatchResult(MatchingOutcome.NOT_ENOUGH_TRADE , null , new LinkedList<>());
+        return new MatchResult(MatchingOutcome.NOT_ENOUGH_TRADE , null , Fills.none());
     }
 
     public static MatchResult invalidRequest() {
-        return new MatchResult(MatchingOutcome.INVALID_REQ , null , new LinkedList<>());
+        return new MatchResult(MatchingOutcome.INVALID_REQ , null , Fills.none());
     }
 
-    private MatchResult(MatchingOutcome outcome, Order remainder, LinkedList<Trade> trades) {
+    private MatchResult(MatchingOutcome outcome, Order remainder, Fills fills) {
         this.outcome = outcome;
         this.remainder = remainder;
-        this.trades = trades;
+        this.fills = fills;
     }
 
     public MatchingOutcome outcome() {
@@ -43,7 +48,13 @@ public final class MatchResult {
         return remainder;
     }
 
+    public Fills fills() {
+        return fills;
+    }
+
     public LinkedList<Trade> trades() {
+        if (trades == null)
+            trades = fills.toTrades();
         return trades;
     }
 
@@ -53,18 +64,18 @@ public final class MatchResult {
         if (obj == null || obj.getClass() != getClass()) return false;
         var that = (MatchResult) obj;
         return Objects.equals(remainder, that.remainder) &&
-                Objects.equals(trades, that.trades);
+                Objects.equals(trades(), that.trades());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(remainder, trades);
+        return Objects.hash(remainder, trades());
     }
 
     @Override
     public String toString() {
         return "MatchResult[" +
                 "remainder=" + remainder + ", " +
-                "trades=" + trades + ']';
+                "trades=" + trades() + ']';
     }
 }
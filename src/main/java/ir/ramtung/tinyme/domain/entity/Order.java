@@ -2,14 +2,12 @@ package ir.ramtung.tinyme.domain.entity;
 
 import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
 import lombok.Builder;
-import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
 import java.time.LocalDateTime;
 
 @Builder
-@EqualsAndHashCode
 @ToString
 @Getter
 public class Order {
@@ -162,6 +160,18 @@ public class Order {
         minimumExecutionQuantity = 0;
     }
 
+    @Override
+    public boolean equals(Object other) {
+        if (other == this)
+            return true;
+        return other instanceof Order order && order.orderId == orderId && order.side == side;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(orderId);
+    }
+
     public boolean canMatch()
     {
         return security.getOrderBook().hasOrderOfType(side.opposite());
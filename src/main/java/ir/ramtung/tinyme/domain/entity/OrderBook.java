@@ -1,64 +1,260 @@
 package ir.ramtung.tinyme.domain.entity;
 
-import lombok.Getter;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
 
-import java.util.LinkedList;
-import java.util.List;
-import java.util.ListIterator;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
 
-@Getter
 public class OrderBook {
-    private final LinkedList<Order> buyQueue;
-    private final LinkedList<Order> sellQueue;
+    // Rough retained sizes with compressed oops, for the memory gauge
+    private static final int ORDER_BYTES = 136;
+    private static final int NODE_BYTES = 56;
+    private static final int INDEX_ENTRY_BYTES = 56;
+    private static final int LEVEL_BYTES = 96;
+    private static final int SHAREHOLDER_ENTRY_BYTES = 48;
+
+    private final TreeMap<Integer, PriceLevel> buyLevels;
+    private final TreeMap<Integer, PriceLevel> sellLevels;
+    private final HashMap<Long, PriceLevel.Node> buyIndex;
+    private final HashMap<Long, PriceLevel.Node> sellIndex;
+    private final HashMap<Shareholder, Integer> sellQuantityByShareholder;
+    private final HashMap<Broker, PriceLevel.Node> ordersByBroker;
+    private final HashMap<Shareholder, PriceLevel.Node> ordersByShareholder;
+    private final DepthIndex buyDepth;
+    private final DepthIndex sellDepth;
+    private long buyHiddenQuantity;
+    private long sellHiddenQuantity;
+    // kept by the owning shard for gauges that read the book from other threads
+    private volatile int bestBid;
+    private volatile int bestAsk;
 
     public OrderBook() {
-        buyQueue = new LinkedList<>();
-        sellQueue = new LinkedList<>();
+        buyLevels = new TreeMap<>(Comparator.reverseOrder());
+        sellLevels = new TreeMap<>();
+        buyIndex = new HashMap<>();
+        sellIndex = new HashMap<>();
+        sellQuantityByShareholder = new HashMap<>();
+        ordersByBroker = new HashMap<>();
+        ordersByShareholder = new HashMap<>();
+        buyDepth = new DepthIndex();
+        sellDepth = new DepthIndex();
     }
 
     public void enqueue(Order order) {
-        List<Order> queue = getQueue(order.getSide());
-        ListIterator<Order> it = queue.listIterator();
-        while (it.hasNext()) {
-            if (order.queuesBefore(it.next())) {
-                it.previous();
-                break;
-            }
-        }
         order.queue();
-        it.add(order);
+        restore(order);
     }
 
-    private LinkedList<Order> getQueue(Side side) {
-        return side == Side.BUY ? buyQueue : sellQueue;
+    public void restore(Order order) {
+        PriceLevel.Node node = getLevel(order.getSide(), order.getPrice()).addLast(order);
+        getIndex(order.getSide()).put(order.getOrderId(), node);
+        account(node, node.quantity);
+        trackHidden(node);
+        linkOwners(node);
+    }
+
+    private TreeMap<Integer, PriceLevel> getLevels(Side side) {
+        return side == Side.BUY ? buyLevels : sellLevels;
+    }
+
+    private HashMap<Long, PriceLevel.Node> getIndex(Side side) {
+        return side == Side.BUY ? buyIndex : sellIndex;
+    }
+
+    private PriceLevel getLevel(Side side, int price) {
+        PriceLevel level = getLevels(side).get(price);
+        if (level == null) {
+            level = new PriceLevel(price);
+            getLevels(side).put(price, level);
+            updateBestPrice(side);
+        }
+        return level;
+    }
+
+    private void updateBestPrice(Side side) {
+        Map.Entry<Integer, PriceLevel> best = getLevels(side).firstEntry();
+        int price = best == null ? 0 : best.getKey();
+        if (side == Side.BUY)
+            bestBid = price;
+        else
+            bestAsk = price;
     }
 
     public Order findByOrderId(Side side, long orderId) {
-        var queue = getQueue(side);
-        for (Order order : queue)
-            if (order.getOrderId() == orderId)
-                return order;
-        return null;
+        PriceLevel.Node node = getIndex(side).get(orderId);
+        return node == null ? null : node.order;
     }
 
     public void removeByOrderId(Side side, long orderId) {
-        var queue = getQueue(side);
-        queue.removeIf(order -> order.getOrderId() == orderId);
+        PriceLevel.Node node = getIndex(side).remove(orderId);
+        if (node != null)
+            unlink(side, node);
+    }
+
+    private void unlink(Side side, PriceLevel.Node node) {
+        PriceLevel level = node.level;
+        level.unlink(node);
+        account(node, -node.quantity);
+        setHidden(node, 0);
+        unlinkOwners(node);
+        if (level.isEmpty() && getLevels(side).remove(level.getPrice(), level))
+            updateBestPrice(side);
+    }
+
+    private void linkOwners(PriceLevel.Node node) {
+        node.nextOfBroker = ordersByBroker.put(node.order.getBroker(), node);
+        if (node.nextOfBroker != null)
+            node.nextOfBroker.prevOfBroker = node;
+        node.nextOfShareholder = ordersByShareholder.put(node.order.getShareholder(), node);
+        if (node.nextOfShareholder != null)
+            node.nextOfShareholder.prevOfShareholder = node;
+    }
+
+    private void unlinkOwners(PriceLevel.Node node) {
+        if (node.prevOfBroker != null)
+            node.prevOfBroker.nextOfBroker = node.nextOfBroker;
+        else if (node.nextOfBroker != null)
+            ordersByBroker.put(node.order.getBroker(), node.nextOfBroker);
+        else
+            ordersByBroker.remove(node.order.getBroker());
+        if (node.nextOfBroker != null)
+            node.nextOfBroker.prevOfBroker = node.prevOfBroker;
+        node.prevOfBroker = null;
+        node.nextOfBroker = null;
+
+        if (node.prevOfShareholder != null)
+            node.prevOfShareholder.nextOfShareholder = node.nextOfShareholder;
+        else if (node.nextOfShareholder != null)
+            ordersByShareholder.put(node.order.getShareholder(), node.nextOfShareholder);
+        else
+            ordersByShareholder.remove(node.order.getShareholder());
+        if (node.nextOfShareholder != null)
+            node.nextOfShareholder.prevOfShareholder = node.prevOfShareholder;
+        node.prevOfShareholder = null;
+        node.nextOfShareholder = null;
+    }
+
+    /**
+     * Removes the resting orders of a broker and/or shareholder (null for any) on a side (null
+     * for both). With an owner given only that owner's orders are visited, through the per-owner
+     * lists threaded through the nodes; otherwise the whole side is emptied.
+     */
+    public ArrayList<Order> removeAll(Broker broker, Shareholder shareholder, Side side) {
+        ArrayList<Order> removed = new ArrayList<>();
+        if (broker != null) {
+            PriceLevel.Node next;
+            for (PriceLevel.Node node = ordersByBroker.get(broker); node != null; node = next) {
+                next = node.nextOfBroker;
+                if ((shareholder == null || shareholder.equals(node.order.getShareholder()))
+                        && (side == null || side == node.order.getSide()))
+                    removed.add(remove(node));
+            }
+        } else if (shareholder != null) {
+            PriceLevel.Node next;
+            for (PriceLevel.Node node = ordersByShareholder.get(shareholder); node != null; node = next) {
+                next = node.nextOfShareholder;
+                if (side == null || side == node.order.getSide())
+                    removed.add(remove(node));
+            }
+        } else {
+            for (Side each : Side.values())
+                if (side == null || side == each)
+                    while (hasOrderOfType(each)) {
+                        removed.add(getLevels(each).firstEntry().getValue().first());
+                        removeFirst(each);
+                    }
+        }
+        return removed;
+    }
+
+    private Order remove(PriceLevel.Node node) {
+        Side side = node.order.getSide();
+        getIndex(side).remove(node.order.getOrderId(), node);
+        unlink(side, node);
+        return node.order;
+    }
+
+    public void decreaseQuantity(Order order, int amount) {
+        order.decreaseQuantity(amount);
+        quantityChanged(order);
+    }
+
+    public void updateFromRequest(Order order, EnterOrderRq updateOrderRq) {
+        order.updateFromRequest(updateOrderRq);
+        quantityChanged(order);
+    }
+
+    private void quantityChanged(Order order) {
+        PriceLevel.Node node = getIndex(order.getSide()).get(order.getOrderId());
+        if (node == null || node.order != order)
+            return;
+        int delta = order.getTotalQuantity() - node.quantity;
+        node.quantity = order.getTotalQuantity();
+        account(node, delta);
+        trackHidden(node);
+    }
+
+    public void replenish(IcebergOrder order) {
+        order.replenish();
+        PriceLevel.Node node = getIndex(order.getSide()).get(order.getOrderId());
+        if (node != null && node.order == order)
+            trackHidden(node);
+    }
+
+    private void trackHidden(PriceLevel.Node node) {
+        setHidden(node, node.order.getTotalQuantity() - node.order.getQuantity());
+    }
+
+    private void setHidden(PriceLevel.Node node, int hidden) {
+        if (node.order.getSide() == Side.BUY)
+            buyHiddenQuantity += hidden - node.hidden;
+        else
+            sellHiddenQuantity += hidden - node.hidden;
+        node.hidden = hidden;
+        assert (node.order.getSide() == Side.BUY ? buyHiddenQuantity : sellHiddenQuantity)
+                == scanHiddenQuantity(node.order.getSide())
+                : "running hidden quantity diverged from the " + node.order.getSide() + " queue";
+    }
+
+    private void account(PriceLevel.Node node, int quantity) {
+        if (quantity == 0)
+            return;
+        node.level.changeQuantity(quantity);
+        getDepth(node.order.getSide()).add(node.level.getPrice(), quantity);
+        if (node.order.getSide() == Side.SELL)
+            sellQuantityByShareholder.merge(node.order.getShareholder(), quantity,
+                    (current, delta) -> current + delta == 0 ? null : current + delta);
+    }
+
+    private DepthIndex getDepth(Side side) {
+        return side == Side.BUY ? buyDepth : sellDepth;
     }
 
     public Order matchWithFirst(Order newOrder) {
-        var queue = getQueue(newOrder.getSide().opposite());
-        if (newOrder.matches(queue.getFirst()))
-            return queue.getFirst();
+        Map.Entry<Integer, PriceLevel> best = getLevels(newOrder.getSide().opposite()).firstEntry();
+        if (best == null)
+            return null;
+        Order first = best.getValue().first();
+        if (newOrder.matches(first))
+            return first;
         else
             return null;
     }
 
     public void putBack(Order order) {
-        LinkedList<Order> queue = getQueue(order.getSide());
         order.queue();
-        queue.addFirst(order);
+        PriceLevel.Node node = getLevel(order.getSide(), order.getPrice()).addFirst(order);
+        getIndex(order.getSide()).put(order.getOrderId(), node);
+        account(node, node.quantity);
+        trackHidden(node);
+        linkOwners(node);
     }
 
     public void restoreSellOrder(Order sellOrder) {
@@ -72,26 +268,142 @@ public class OrderBook {
     }
 
     public boolean hasOrderOfType(Side side) {
-        return !getQueue(side).isEmpty();
+        return !getLevels(side).isEmpty();
     }
 
     public void removeFirst(Side side) {
-        getQueue(side).removeFirst();
+        Map.Entry<Integer, PriceLevel> best = getLevels(side).firstEntry();
+        if (best == null)
+            return;
+        PriceLevel.Node node = best.getValue().firstNode();
+        getIndex(side).remove(node.order.getOrderId(), node);
+        unlink(side, node);
     }
 
     public int totalSellQuantityByShareholder(Shareholder shareholder) {
-        return sellQueue.stream()
-                .filter(order -> order.getShareholder().equals(shareholder))
-                .mapToInt(Order::getTotalQuantity)
-                .sum();
+        int total = sellQuantityByShareholder.getOrDefault(shareholder, 0);
+        assert total == scanSellQuantityByShareholder(shareholder)
+                : "running sell quantity of " + shareholder + " diverged from the sell queue";
+        return total;
+    }
+
+    int scanSellQuantityByShareholder(Shareholder shareholder) {
+        int total = 0;
+        for (PriceLevel level : sellLevels.values())
+            for (Order order : level)
+                if (order.getShareholder().equals(shareholder))
+                    total += order.getTotalQuantity();
+        return total;
     }
 
     public ArrayList<Order> getOpenOrders(int openingPrice, Side side)
     {
         ArrayList<Order> openOrders = new ArrayList<>();
-        for (Order order: getQueue(side))
-            if (order.canTradeWithPrice(openingPrice))
+        for (PriceLevel level : getTradableLevels(openingPrice, side))
+            for (Order order : level)
                 openOrders.add(order);
         return openOrders;
     }
+
+    private Collection<PriceLevel> getTradableLevels(int openingPrice, Side side) {
+        NavigableMap<Integer, PriceLevel> tradable = getLevels(side).headMap(openingPrice, true);
+        return tradable.values();
+    }
+
+    public int getTradableQuantity(int price, Side side) {
+        if (side == Side.BUY)
+            return (int) buyDepth.atOrAbove(price);
+        else
+            return (int) sellDepth.atOrBelow(price);
+    }
+
+    public int getTradableQuantity(int price) {
+        return Math.min(getTradableQuantity(price, Side.BUY), getTradableQuantity(price, Side.SELL));
+    }
+
+    public int getLowestPrice() {
+        return Math.min(buyLevels.lastKey(), sellLevels.firstKey());
+    }
+
+    public int getHighestPrice() {
+        return Math.max(buyLevels.firstKey(), sellLevels.lastKey());
+    }
+
+    public int getLowestPriceAtOrAbove(int price) {
+        // buyLevels is in descending order, so its floor is the closest price above
+        Integer buy = buyLevels.floorKey(price);
+        Integer sell = sellLevels.ceilingKey(price);
+        if (buy == null)
+            return sell;
+        return sell == null ? buy : Math.min(buy, sell);
+    }
+
+    public int getHighestPriceAtOrBelow(int price) {
+        Integer buy = buyLevels.ceilingKey(price);
+        Integer sell = sellLevels.floorKey(price);
+        if (buy == null)
+            return sell;
+        return sell == null ? buy : Math.max(buy, sell);
+    }
+
+    public Set<Integer> getPrices(Side side) {
+        return getLevels(side).keySet();
+    }
+
+    public Collection<PriceLevel> getPriceLevels(Side side) {
+        return getLevels(side).values();
+    }
+
+    public int getOrderCount(Side side) {
+        return getIndex(side).size();
+    }
+
+    public int getLevelCount(Side side) {
+        return getLevels(side).size();
+    }
+
+    public int getBestPrice(Side side) {
+        return side == Side.BUY ? bestBid : bestAsk;
+    }
+
+    public long getRestingQuantity(Side side) {
+        return getDepth(side).total();
+    }
+
+    public long getHiddenQuantity(Side side) {
+        return side == Side.BUY ? buyHiddenQuantity : sellHiddenQuantity;
+    }
+
+    long scanHiddenQuantity(Side side) {
+        long hidden = 0;
+        for (PriceLevel level : getLevels(side).values())
+            for (Order order : level)
+                hidden += order.getTotalQuantity() - order.getQuantity();
+        return hidden;
+    }
+
+    public long estimatedRetainedBytes() {
+        int orders = buyIndex.size() + sellIndex.size();
+        int levels = buyLevels.size() + sellLevels.size();
+        return (long) orders * (ORDER_BYTES + NODE_BYTES + INDEX_ENTRY_BYTES) + (long) levels * LEVEL_BYTES
+                + (long) (sellQuantityByShareholder.size() + ordersByBroker.size() + ordersByShareholder.size())
+                * SHAREHOLDER_ENTRY_BYTES
+                + buyDepth.retainedBytes() + sellDepth.retainedBytes();
+    }
+
+    public LinkedList<Order> getBuyQueue() {
+        return getQueue(Side.BUY);
+    }
+
+    public LinkedList<Order> getSellQueue() {
+        return getQueue(Side.SELL);
+    }
+
+    private LinkedList<Order> getQueue(Side side) {
+        LinkedList<Order> queue = new LinkedList<>();
+        for (PriceLevel level : getLevels(side).values())
+            for (Order order : level)
+                queue.add(order);
+        return queue;
+    }
 }
@@ -1,55 +1,189 @@
 package ir.ramtung.tinyme.domain.entity;
 
-import lombok.Getter;
-
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.stream.Stream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
 
-@Getter
 public class OrderCancellationQueue {
-    private final ArrayList<StopLimitOrder> deactivatedBuyOrders;
-    private final ArrayList<StopLimitOrder> deactivatedSellOrders;
+    // Rough retained size of a parked order with its entries in the level, id and owner maps
+    private static final int STOP_ORDER_BYTES = 352;
+    private static final int STOP_LEVEL_BYTES = 112;
+
+    private final TreeMap<Integer, LinkedHashMap<Long, StopLimitOrder>> deactivatedBuyOrders;
+    private final TreeMap<Integer, LinkedHashMap<Long, StopLimitOrder>> deactivatedSellOrders;
+    private final HashMap<Long, StopLimitOrder> deactivatedOrderById;
+    private final HashMap<Broker, HashMap<Long, StopLimitOrder>> deactivatedByBroker;
+    private final HashMap<Shareholder, HashMap<Long, StopLimitOrder>> deactivatedByShareholder;
+    private int deactivatedBuyCount;
+    private int deactivatedSellCount;
 
     OrderCancellationQueue() {
-        deactivatedBuyOrders = new ArrayList<>();
-        deactivatedSellOrders = new ArrayList<>();
+        deactivatedBuyOrders = new TreeMap<>(Comparator.naturalOrder());
+        deactivatedSellOrders = new TreeMap<>(Comparator.reverseOrder());
+        deactivatedOrderById = new HashMap<>();
+        deactivatedByBroker = new HashMap<>();
+        deactivatedByShareholder = new HashMap<>();
+    }
+
+    private TreeMap<Integer, LinkedHashMap<Long, StopLimitOrder>> getDeactivatedOrders(Side side) {
+        return side == Side.BUY ? deactivatedBuyOrders : deactivatedSellOrders;
     }
 
     public StopLimitOrder findStopLimitOrderById(long id) {
-        Stream<StopLimitOrder> joinedDeactivatedList = Stream.concat(deactivatedBuyOrders.stream(),
-                deactivatedSellOrders.stream());
-        return joinedDeactivatedList.filter(order -> order.getOrderId() == id).findFirst().orElse(null);
+        return deactivatedOrderById.get(id);
     }
 
     public void addToDeactivatedBuy(StopLimitOrder newOrder) {
-        deactivatedBuyOrders.add(newOrder);
-        deactivatedBuyOrders.sort(Comparator.comparingDouble(StopLimitOrder::getStopLimit));
+        addToDeactivated(newOrder);
     }
 
     public void addToDeactivatedSell(StopLimitOrder newOrder) {
-        deactivatedSellOrders.add(newOrder);
-        deactivatedSellOrders.sort(Comparator.comparingDouble(StopLimitOrder::getStopLimit).reversed());
+        addToDeactivated(newOrder);
     }
 
-    public void removeFromDeactivatedList(long id) {
-        StopLimitOrder order = findStopLimitOrderById(id);
-        if (order != null) {
-            if (order.getSide() == Side.BUY)
-                deactivatedBuyOrders.remove(order);
-            else
-                deactivatedSellOrders.remove(order);
+    private void addToDeactivated(StopLimitOrder newOrder) {
+        getDeactivatedOrders(newOrder.getSide())
+                .computeIfAbsent(newOrder.getStopLimit(), stopLimit -> new LinkedHashMap<>())
+                .put(newOrder.getOrderId(), newOrder);
+        if (deactivatedOrderById.put(newOrder.getOrderId(), newOrder) == null)
+            count(newOrder, 1);
+        deactivatedByBroker.computeIfAbsent(newOrder.getBroker(), broker -> new HashMap<>())
+                .put(newOrder.getOrderId(), newOrder);
+        deactivatedByShareholder.computeIfAbsent(newOrder.getShareholder(), shareholder -> new HashMap<>())
+                .put(newOrder.getOrderId(), newOrder);
+    }
+
+    private void count(StopLimitOrder order, int delta) {
+        if (order.getSide() == Side.BUY)
+            deactivatedBuyCount += delta;
+        else
+            deactivatedSellCount += delta;
+        if (delta < 0) {
+            unindex(deactivatedByBroker, order.getBroker(), order);
+            unindex(deactivatedByShareholder, order.getShareholder(), order);
         }
     }
 
+    private static <K> void unindex(HashMap<K, HashMap<Long, StopLimitOrder>> index, K owner, StopLimitOrder order) {
+        HashMap<Long, StopLimitOrder> orders = index.get(owner);
+        if (orders != null && orders.remove(order.getOrderId()) != null && orders.isEmpty())
+            index.remove(owner);
+    }
+
+    /**
+     * Removes the parked orders of a broker and/or shareholder (null for any) on a side (null for
+     * both), looking them up by owner when one is given.
+     */
+    public ArrayList<StopLimitOrder> removeAll(Broker broker, Shareholder shareholder, Side side) {
+        Map<Long, StopLimitOrder> candidates = broker != null ? deactivatedByBroker.get(broker)
+                : shareholder != null ? deactivatedByShareholder.get(shareholder) : deactivatedOrderById;
+        ArrayList<StopLimitOrder> removed = new ArrayList<>();
+        if (candidates == null)
+            return removed;
+        for (StopLimitOrder order : candidates.values())
+            if ((shareholder == null || shareholder.equals(order.getShareholder()))
+                    && (side == null || side == order.getSide()))
+                removed.add(order);
+        for (StopLimitOrder order : removed)
+            removeFromDeactivatedList(order.getOrderId());
+        return removed;
+    }
+
+    public int getDeactivatedCount(Side side) {
+        return side == Side.BUY ? deactivatedBuyCount : deactivatedSellCount;
+    }
+
+    public long estimatedRetainedBytes() {
+        return (long) deactivatedOrderById.size() * STOP_ORDER_BYTES
+                + (long) (deactivatedBuyOrders.size() + deactivatedSellOrders.size()) * STOP_LEVEL_BYTES;
+    }
+
+    public void removeFromDeactivatedList(long id) {
+        StopLimitOrder order = deactivatedOrderById.remove(id);
+        if (order == null)
+            return;
+        count(order, -1);
+        var deactivatedOrders = getDeactivatedOrders(order.getSide());
+        LinkedHashMap<Long, StopLimitOrder> level = deactivatedOrders.get(order.getStopLimit());
+        level.remove(id);
+        if (level.isEmpty())
+            deactivatedOrders.remove(order.getStopLimit());
+    }
+
     public ArrayList<StopLimitOrder> getActivatedOrder(int lastTradePrice) {
         ArrayList<StopLimitOrder> activatedList = new ArrayList<>();
-        for (StopLimitOrder order : Stream.concat(deactivatedBuyOrders.stream(),
-                deactivatedSellOrders.stream()).toList())
-            if (order.isActive(lastTradePrice)) {
+        if (lastTradePrice == -1)
+            return activatedList;
+        popActivated(deactivatedBuyOrders, lastTradePrice, activatedList);
+        popActivated(deactivatedSellOrders, lastTradePrice, activatedList);
+        return activatedList;
+    }
+
+    public StopLimitOrder pollActivated(int highestTradePrice, int lowestTradePrice) {
+        if (highestTradePrice == -1)
+            return null;
+        StopLimitOrder order = pollFirstActivated(deactivatedBuyOrders, highestTradePrice);
+        return order != null ? order : pollFirstActivated(deactivatedSellOrders, lowestTradePrice);
+    }
+
+    public boolean hasActivated(int highestTradePrice, int lowestTradePrice) {
+        return highestTradePrice != -1 && (firstActivated(deactivatedBuyOrders, highestTradePrice) != null
+                || firstActivated(deactivatedSellOrders, lowestTradePrice) != null);
+    }
+
+    private static Map.Entry<Integer, LinkedHashMap<Long, StopLimitOrder>> firstActivated(
+            TreeMap<Integer, LinkedHashMap<Long, StopLimitOrder>> deactivatedOrders, int tradePrice) {
+        Map.Entry<Integer, LinkedHashMap<Long, StopLimitOrder>> first = deactivatedOrders.firstEntry();
+        if (first == null || deactivatedOrders.comparator().compare(first.getKey(), tradePrice) > 0)
+            return null;
+        return first;
+    }
+
+    private StopLimitOrder pollFirstActivated(TreeMap<Integer, LinkedHashMap<Long, StopLimitOrder>> deactivatedOrders,
+            int tradePrice) {
+        Map.Entry<Integer, LinkedHashMap<Long, StopLimitOrder>> first = firstActivated(deactivatedOrders, tradePrice);
+        if (first == null)
+            return null;
+        Iterator<StopLimitOrder> it = first.getValue().values().iterator();
+        StopLimitOrder order = it.next();
+        it.remove();
+        if (first.getValue().isEmpty())
+            deactivatedOrders.remove(first.getKey());
+        deactivatedOrderById.remove(order.getOrderId());
+        count(order, -1);
+        return order;
+    }
+
+    private void popActivated(TreeMap<Integer, LinkedHashMap<Long, StopLimitOrder>> deactivatedOrders,
+            int lastTradePrice, ArrayList<StopLimitOrder> activatedList) {
+        Iterator<LinkedHashMap<Long, StopLimitOrder>> it = deactivatedOrders.headMap(lastTradePrice, true)
+                .values().iterator();
+        while (it.hasNext()) {
+            for (StopLimitOrder order : it.next().values()) {
                 activatedList.add(order);
-                removeFromDeactivatedList(order.getOrderId());
+                deactivatedOrderById.remove(order.getOrderId());
+                count(order, -1);
             }
-        return activatedList;
+            it.remove();
+        }
+    }
+
+    public ArrayList<StopLimitOrder> getDeactivatedBuyOrders() {
+        return getDeactivatedList(Side.BUY);
+    }
+
+    public ArrayList<StopLimitOrder> getDeactivatedSellOrders() {
+        return getDeactivatedList(Side.SELL);
+    }
+
+    private ArrayList<StopLimitOrder> getDeactivatedList(Side side) {
+        ArrayList<StopLimitOrder> orders = new ArrayList<>();
+        for (LinkedHashMap<Long, StopLimitOrder> level : getDeactivatedOrders(side).values())
+            orders.addAll(level.values());
+        return orders;
     }
 }
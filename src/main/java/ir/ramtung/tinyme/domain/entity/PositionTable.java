@@ -0,0 +1,56 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * The holdings of one shareholder as parallel arrays sorted by {@link Security#getIndex()}.
+ * Shareholders hold few securities, so a binary search over a small int array replaces
+ * hashing the security and boxing the quantity.
+ */
+final class PositionTable {
+    private static final int INITIAL_CAPACITY = 4;
+
+    private int size;
+    private int[] indexes = new int[INITIAL_CAPACITY];
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private Security[] securities = new Security[INITIAL_CAPACITY];
+
+    int get(Security security) {
+        int slot = Arrays.binarySearch(indexes, 0, size, security.getIndex());
+        return slot >= 0 ? quantities[slot] : 0;
+    }
+
+    void add(Security security, int delta) {
+        int slot = Arrays.binarySearch(indexes, 0, size, security.getIndex());
+        if (slot < 0)
+            slot = insert(-slot - 1, security);
+        quantities[slot] += delta;
+    }
+
+    private int insert(int slot, Security security) {
+        if (size == indexes.length) {
+            int capacity = indexes.length * 2;
+            indexes = Arrays.copyOf(indexes, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            securities = Arrays.copyOf(securities, capacity);
+        }
+        System.arraycopy(indexes, slot, indexes, slot + 1, size - slot);
+        System.arraycopy(quantities, slot, quantities, slot + 1, size - slot);
+        System.arraycopy(securities, slot, securities, slot + 1, size - slot);
+        indexes[slot] = security.getIndex();
+        quantities[slot] = 0;
+        securities[slot] = security;
+        size++;
+        return slot;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(ObjIntConsumer<Security> action) {
+        for (int i = 0; i < size; i++)
+            action.accept(securities[i], quantities[i]);
+    }
+}
@@ -0,0 +1,118 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import lombok.Getter;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class PriceLevel implements Iterable<Order> {
+    @Getter
+    private final int price;
+    private Node head;
+    private Node tail;
+    private int size;
+    @Getter
+    private long quantity;
+
+    public PriceLevel(int price) {
+        this.price = price;
+    }
+
+    Node addLast(Order order) {
+        Node node = new Node(order, this);
+        node.prev = tail;
+        if (tail == null)
+            head = node;
+        else
+            tail.next = node;
+        tail = node;
+        size++;
+        return node;
+    }
+
+    Node addFirst(Order order) {
+        Node node = new Node(order, this);
+        node.next = head;
+        if (head == null)
+            tail = node;
+        else
+            head.prev = node;
+        head = node;
+        size++;
+        return node;
+    }
+
+    Node firstNode() {
+        return head;
+    }
+
+    public Order first() {
+        return head == null ? null : head.order;
+    }
+
+    void unlink(Node node) {
+        if (node.prev == null)
+            head = node.next;
+        else
+            node.prev.next = node.next;
+        if (node.next == null)
+            tail = node.prev;
+        else
+            node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+        size--;
+    }
+
+    void changeQuantity(long delta) {
+        quantity += delta;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Order> iterator() {
+        return new Iterator<>() {
+            private Node current = head;
+
+            @Override
+            public boolean hasNext() {
+                return current != null;
+            }
+
+            @Override
+            public Order next() {
+                if (current == null)
+                    throw new NoSuchElementException();
+                Order order = current.order;
+                current = current.next;
+                return order;
+            }
+        };
+    }
+
+    static final class Node {
+        final Order order;
+        final PriceLevel level;
+        int quantity;
+        int hidden;
+        private Node prev;
+        private Node next;
+        Node prevOfBroker;
+        Node nextOfBroker;
+        Node prevOfShareholder;
+        Node nextOfShareholder;
+
+        private Node(Order order, PriceLevel level) {
+            this.order = order;
+            this.level = level;
+            this.quantity = order.getTotalQuantity();
+        }
+    }
+}
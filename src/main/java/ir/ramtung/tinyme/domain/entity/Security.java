@@ -7,15 +7,22 @@ import ir.ramtung.tinyme.messaging.request.MatchingState;
 import ir.ramtung.tinyme.domain.service.Matcher;
 import ir.ramtung.tinyme.messaging.Message;
 import lombok.Builder;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 
 import static ir.ramtung.tinyme.domain.entity.Side.BUY;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Getter
 @Builder
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
 public class Security {
+    private static final AtomicInteger NEXT_INDEX = new AtomicInteger();
+
+    private final int index = NEXT_INDEX.getAndIncrement();
+    @EqualsAndHashCode.Include
     private String isin;
     @Builder.Default
     private int tickSize = 1;
@@ -26,9 +33,15 @@ public class Security {
     @Builder.Default
     private int lastTradePrice = -1;
     @Builder.Default
+    private int pendingHighTradePrice = -1;
+    @Builder.Default
+    private int pendingLowTradePrice = -1;
+    @Builder.Default
     private OrderCancellationQueue orderCancellationQueue = new OrderCancellationQueue();
     @Builder.Default
     private MatchingState state = MatchingState.CONTINUOUS;
+    @Builder.Default
+    private TradeTape tradeTape = new TradeTape();
 
     public MatchResult newOrder(Order order, Broker broker, Shareholder shareholder, Matcher matcher) {
         if (!requestHasEnoughPositions(order, shareholder,
@@ -52,6 +65,31 @@ public class Security {
         }
     }
 
+    /**
+     * Cancels the resting and parked orders of a broker and/or shareholder (null for any) on a side
+     * (null for both), refunding the buy credit of each broker in one go rather than per order.
+     */
+    public List<Order> cancelOrders(Broker broker, Shareholder shareholder, Side side) {
+        List<Order> cancelled = orderBook.removeAll(broker, shareholder, side);
+        cancelled.addAll(orderCancellationQueue.removeAll(broker, shareholder, side));
+        Broker refunded = null;
+        long refund = 0;
+        for (Order order : cancelled) {
+            if (order.getSide() != BUY)
+                continue;
+            if (order.getBroker() != refunded) {
+                if (refunded != null)
+                    refunded.increaseCreditBy(refund);
+                refunded = order.getBroker();
+                refund = 0;
+            }
+            refund += order.getValue();
+        }
+        if (refunded != null)
+            refunded.increaseCreditBy(refund);
+        return cancelled;
+    }
+
     public MatchResult updateOrder(EnterOrderRq updateOrderRq, Matcher matcher) throws InvalidRequestException {
         Order order = getOrderFromRequest(updateOrderRq);
         if (order instanceof StopLimitOrder)
@@ -74,19 +112,15 @@ public class Security {
 
     private MatchResult updateValidOrder(StopLimitOrder stopLimitOrder, EnterOrderRq updateOrderRq) {
         if (stopLimitOrder.side == BUY) {
-            stopLimitOrder.restoreBrokerCredit();
-            orderCancellationQueue.removeFromDeactivatedList(stopLimitOrder.orderId);
-            if (stopLimitOrder.getBroker()
-                    .hasEnoughCredit((long) updateOrderRq.getPrice() * updateOrderRq.getQuantity())) {
-                stopLimitOrder.getBroker()
-                        .decreaseCreditBy((long) updateOrderRq.getPrice() * updateOrderRq.getQuantity());
-                stopLimitOrder.updateFromRequest(updateOrderRq);
-                orderCancellationQueue.addToDeactivatedBuy(stopLimitOrder);
-            } else
+            if (!stopLimitOrder.getBroker().tryReplaceReservation(stopLimitOrder.getValue(),
+                    (long) updateOrderRq.getPrice() * updateOrderRq.getQuantity()))
                 return MatchResult.notEnoughCredit();
-        } else {
+            orderCancellationQueue.removeFromDeactivatedList(stopLimitOrder.orderId);
             stopLimitOrder.updateFromRequest(updateOrderRq);
+            orderCancellationQueue.addToDeactivatedBuy(stopLimitOrder);
+        } else {
             orderCancellationQueue.removeFromDeactivatedList(stopLimitOrder.getOrderId());
+            stopLimitOrder.updateFromRequest(updateOrderRq);
             orderCancellationQueue.addToDeactivatedSell(stopLimitOrder);
         }
         return MatchResult.executed(stopLimitOrder, List.of());
@@ -97,24 +131,22 @@ public class Security {
                 + updateOrderRq.getQuantity();
         if (!requestHasEnoughPositions(order, order.getShareholder(), position))
             return MatchResult.notEnoughPositions();
-        Order firstOrderBeforeAnyChange = order.snapshot();
-
-        if (updateOrderRq.getSide() == Side.BUY)
-            order.getBroker().increaseCreditBy(order.getValue());
         Order originalOrder = order.snapshot();
-        order.updateFromRequest(updateOrderRq);
-        if (!losesPriority(firstOrderBeforeAnyChange, updateOrderRq)) {
+        boolean losesPriority = losesPriority(originalOrder, updateOrderRq);
+
+        long reserved = updateOrderRq.getSide() == Side.BUY ? originalOrder.getValue() : 0;
+        if (!losesPriority) {
+            orderBook.updateFromRequest(order, updateOrderRq);
             if (updateOrderRq.getSide() == Side.BUY)
-                order.getBroker().decreaseCreditBy(order.getValue());
+                order.getBroker().increaseCreditBy(reserved - order.getValue());
             return MatchResult.executed(null, List.of());
-        } else
-            order.markAsNew();
-        MatchResult matchResult = matcher.execute(order);
-        if (matchResult.outcome() != MatchingOutcome.EXECUTED) {
-            orderBook.enqueue(originalOrder);
-            if (updateOrderRq.getSide() == Side.BUY)
-                originalOrder.getBroker().decreaseCreditBy(originalOrder.getValue());
         }
+        orderBook.removeByOrderId(order.getSide(), order.getOrderId());
+        order.updateFromRequest(updateOrderRq);
+        order.markAsNew();
+        MatchResult matchResult = matcher.execute(order, reserved);
+        if (matchResult.outcome() != MatchingOutcome.EXECUTED)
+            orderBook.enqueue(originalOrder);
         return matchResult;
     }
 
@@ -131,24 +163,24 @@ public class Security {
             return matchStopLimitOrder((StopLimitOrder) order, matcher, broker);
         } else {
             MatchResult matchResult = matcher.execute(order);
-            if (matchResult.trades().size() != 0)
-                lastTradePrice = matchResult.trades().getLast().getPrice();
+            if (!matchResult.fills().isEmpty())
+                lastTradePrice = matchResult.fills().lastPrice();
             return matchResult;
         }
     }
 
     private MatchResult matchStopLimitOrder(StopLimitOrder stopLimitOrder, Matcher matcher, Broker broker) {
         if (stopLimitOrder.getSide() == Side.BUY) {
-            if (!broker.hasEnoughCredit((long) stopLimitOrder.getQuantity() * stopLimitOrder.getPrice()))
+            if (!broker.tryDecreaseCreditBy((long) stopLimitOrder.getQuantity() * stopLimitOrder.getPrice()))
                 return MatchResult.notEnoughCredit();
-            else
-                broker.decreaseCreditBy((long) stopLimitOrder.getQuantity() * stopLimitOrder.getPrice());
         }
         if (stopLimitOrder.isActive(lastTradePrice)) {
-            stopLimitOrder.restoreBrokerCredit();
-            MatchResult matchResult = matcher.execute(stopLimitOrder);
-            if (matchResult.trades().size() != 0)
-                lastTradePrice = matchResult.trades().getLast().getPrice();
+            long reserved = stopLimitOrder.reservedCredit();
+            MatchResult matchResult = matcher.execute(stopLimitOrder, reserved);
+            if (matchResult.outcome() != MatchingOutcome.EXECUTED)
+                broker.increaseCreditBy(reserved);
+            if (!matchResult.fills().isEmpty())
+                lastTradePrice = matchResult.fills().lastPrice();
             return matchResult;
         } else {
             if (stopLimitOrder.getSide() == Side.BUY)
@@ -167,6 +199,15 @@ public class Security {
         lastTradePrice = price;
     }
 
+    /**
+     * Trade price range a capped stop-limit cascade reached; the next activation pass resumes
+     * from it so orders triggered by an intermediate price are not left parked. -1 when none.
+     */
+    public void setPendingTradePrices(int highest, int lowest) {
+        pendingHighTradePrice = highest;
+        pendingLowTradePrice = lowest;
+    }
+
     public void changeMatchingStateRq(MatchingState targetState) {
         state = targetState;
     }
@@ -1,5 +1,6 @@
 package ir.ramtung.tinyme.domain.entity;
 
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -7,6 +8,7 @@ import lombok.ToString;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.ObjIntConsumer;
 
 @ToString
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
@@ -17,22 +19,37 @@ public class Shareholder {
     private long shareholderId;
     private String name;
     @Builder.Default
-    private Map<Security, Integer> positions = new HashMap<>();
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final PositionTable positionTable = new PositionTable();
 
-    public void incPosition(Security security, int amount) {
+    public synchronized void incPosition(Security security, int amount) {
         assert amount >= 0;
-        positions.put(security, positions.getOrDefault(security, 0) + amount);
+        positionTable.add(security, amount);
     }
 
-    public void decPosition(Security security, int amount) {
+    public synchronized void decPosition(Security security, int amount) {
         assert amount >= 0;
-        int currentPositions = positions.getOrDefault(security, 0);
-        if (currentPositions < amount)
+        if (positionTable.get(security) < amount)
             throw new IllegalArgumentException("Amount to be decreased is greater than shareholder's current position");
-        positions.put(security, currentPositions - amount);
+        positionTable.add(security, -amount);
     }
 
-    public boolean hasEnoughPositionsOn(Security security, int position) {
-        return positions.getOrDefault(security, 0) >= position;
+    public synchronized boolean hasEnoughPositionsOn(Security security, int position) {
+        return positionTable.get(security) >= position;
+    }
+
+    public synchronized int getPosition(Security security) {
+        return positionTable.get(security);
+    }
+
+    public synchronized void forEachPosition(ObjIntConsumer<Security> action) {
+        positionTable.forEach(action);
+    }
+
+    public synchronized Map<Security, Integer> getPositions() {
+        Map<Security, Integer> positions = new HashMap<>(positionTable.size() * 2);
+        positionTable.forEach(positions::put);
+        return positions;
     }
 }
@@ -1,14 +1,12 @@
 package ir.ramtung.tinyme.domain.entity;
 
 import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
-import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
 import java.time.LocalDateTime;
 
 @Getter
-@EqualsAndHashCode(callSuper = true)
 @ToString(callSuper = true)
 public class StopLimitOrder extends Order{
     private int stopLimit;
@@ -19,7 +17,12 @@ public class StopLimitOrder extends Order{
 
     public void restoreBrokerCredit()
     {
-        broker.increaseCreditBy((long) quantity * price);
+        broker.increaseCreditBy(reservedCredit());
+    }
+
+    public long reservedCredit()
+    {
+        return side == Side.BUY ? (long) quantity * price : 0;
     }
     @Override
     public Order snapshot() {
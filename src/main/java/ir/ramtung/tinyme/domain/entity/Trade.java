@@ -1,13 +1,13 @@
 package ir.ramtung.tinyme.domain.entity;
 
 import lombok.Builder;
-import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
+import java.util.Objects;
+
 @Builder
 @Getter
-@EqualsAndHashCode
 @ToString
 public class Trade {
     private Security security;
@@ -57,4 +57,20 @@ public class Trade {
         buy.getShareholder().incPosition(security, quantity);
     }
 
+    @Override
+    public boolean equals(Object other) {
+        if (other == this)
+            return true;
+        return other instanceof Trade trade && trade.price == price && trade.quantity == quantity
+                && trade.buy.getOrderId() == buy.getOrderId() && trade.sell.getOrderId() == sell.getOrderId()
+                && Objects.equals(trade.security, security);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 31 * price + quantity;
+        result = 31 * result + Long.hashCode(buy.getOrderId());
+        return 31 * result + Long.hashCode(sell.getOrderId());
+    }
+
 }
@@ -0,0 +1,81 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import java.util.Arrays;
+
+/**
+ * The trades of one security for the day as parallel primitive columns, appended by the
+ * security's matching thread and read back at a consistent cut for export and snapshots.
+ */
+public class TradeTape {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int size;
+    private int[] prices = new int[INITIAL_CAPACITY];
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private long[] buyOrderIds = new long[INITIAL_CAPACITY];
+    private long[] sellOrderIds = new long[INITIAL_CAPACITY];
+    private long[] buyBrokerIds = new long[INITIAL_CAPACITY];
+    private long[] sellBrokerIds = new long[INITIAL_CAPACITY];
+
+    public void record(int price, int quantity, long buyOrderId, long sellOrderId, long buyBrokerId,
+                       long sellBrokerId) {
+        if (size == prices.length)
+            grow();
+        prices[size] = price;
+        quantities[size] = quantity;
+        buyOrderIds[size] = buyOrderId;
+        sellOrderIds[size] = sellOrderId;
+        buyBrokerIds[size] = buyBrokerId;
+        sellBrokerIds[size] = sellBrokerId;
+        size++;
+    }
+
+    public void record(Fills fills) {
+        for (int i = 0; i < fills.size(); i++)
+            record(fills.price(i), fills.quantity(i), fills.buyOrderId(i), fills.sellOrderId(i),
+                    fills.buyBrokerId(i), fills.sellBrokerId(i));
+    }
+
+    public void record(Trade trade) {
+        record(trade.getPrice(), trade.getQuantity(), trade.getBuy().getOrderId(), trade.getSell().getOrderId(),
+                trade.getBuy().getBroker().getBrokerId(), trade.getSell().getBroker().getBrokerId());
+    }
+
+    private void grow() {
+        int capacity = prices.length * 2;
+        prices = Arrays.copyOf(prices, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        buyOrderIds = Arrays.copyOf(buyOrderIds, capacity);
+        sellOrderIds = Arrays.copyOf(sellOrderIds, capacity);
+        buyBrokerIds = Arrays.copyOf(buyBrokerIds, capacity);
+        sellBrokerIds = Arrays.copyOf(sellBrokerIds, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int price(int i) {
+        return prices[i];
+    }
+
+    public int quantity(int i) {
+        return quantities[i];
+    }
+
+    public long buyOrderId(int i) {
+        return buyOrderIds[i];
+    }
+
+    public long sellOrderId(int i) {
+        return sellOrderIds[i];
+    }
+
+    public long buyBrokerId(int i) {
+        return buyBrokerIds[i];
+    }
+
+    public long sellBrokerId(int i) {
+        return sellBrokerIds[i];
+    }
+}
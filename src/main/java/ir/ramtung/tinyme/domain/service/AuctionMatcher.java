@@ -6,11 +6,9 @@ import java.util.ArrayList;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.IntPredicate;
 
-import static java.lang.Math.min;
 import org.springframework.stereotype.Service;
-import java.util.stream.Stream;
-import java.lang.Math;
 
 @Service
 public class AuctionMatcher extends Matcher {
@@ -26,7 +24,7 @@ public class AuctionMatcher extends Matcher {
 
     private void handleBuyOrderZeroQuantity(Order buyOrder, ArrayList<Order> openedBuy) {
         if (buyOrder instanceof IcebergOrder icebergBuyOrder) {
-            icebergBuyOrder.replenish();
+            icebergBuyOrder.getSecurity().getOrderBook().replenish(icebergBuyOrder);
             if (icebergBuyOrder.getQuantity() != 0) {
                 openedBuy.add(icebergBuyOrder);
                 return;
@@ -48,32 +46,29 @@ public class AuctionMatcher extends Matcher {
         return trades;
     }
 
+    /**
+     * Trades {@code buyOrder} against the open sells at the opening price. The buyer's reservation was
+     * taken at its own limit price, so each trade releases only the difference rather than the whole
+     * reservation being refunded and taken again.
+     */
     private LinkedList<Trade> matchBuyOrder(Order buyOrder, ArrayList<Order> sells, int price) {
-        buyOrder.getBroker().increaseCreditBy(getValue(buyOrder.getPrice(), buyOrder.getQuantity()));
+        OrderBook orderBook = buyOrder.getSecurity().getOrderBook();
         LinkedList<Trade> trades = new LinkedList<>();
-        while (buyOrder.getQuantity() != 0) {
-            if (sells.isEmpty()) {
-                if (buyOrder.getQuantity() != 0)
-                    buyOrder.getBroker().decreaseCreditBy(buyOrder.getValue());
-                break;
-            }
+        while (buyOrder.getQuantity() != 0 && !sells.isEmpty()) {
             Order firstSellOrder = sells.get(0);
-            if (firstSellOrder.getQuantity() > buyOrder.getQuantity()) {
-                trades.add(new Trade(buyOrder.getSecurity(), price, buyOrder.getQuantity(), buyOrder, firstSellOrder));
-                buyOrder.getBroker().decreaseCreditBy(getValue(price, buyOrder.getQuantity()));
-                firstSellOrder.getBroker().increaseCreditBy(getValue(price, buyOrder.getQuantity()));
-                firstSellOrder.decreaseQuantity(buyOrder.getQuantity());
-                buyOrder.decreaseQuantity(buyOrder.getQuantity());
+            int quantity = Math.min(firstSellOrder.getQuantity(), buyOrder.getQuantity());
+            trades.add(new Trade(buyOrder.getSecurity(), price, quantity, buyOrder, firstSellOrder));
+            buyOrder.getBroker().increaseCreditBy(getValue(buyOrder.getPrice() - price, quantity));
+            firstSellOrder.getBroker().increaseCreditBy(getValue(price, quantity));
+            if (firstSellOrder.getQuantity() > quantity) {
+                orderBook.decreaseQuantity(firstSellOrder, quantity);
+                orderBook.decreaseQuantity(buyOrder, quantity);
                 continue;
             }
-            trades.add(
-                    new Trade(buyOrder.getSecurity(), price, firstSellOrder.getQuantity(), buyOrder, firstSellOrder));
-            buyOrder.getBroker().decreaseCreditBy(getValue(price, firstSellOrder.getQuantity()));
-            firstSellOrder.getBroker().increaseCreditBy(getValue(price, firstSellOrder.getQuantity()));
-            buyOrder.decreaseQuantity(firstSellOrder.getQuantity());
-            firstSellOrder.decreaseQuantity(firstSellOrder.getQuantity());
+            orderBook.decreaseQuantity(buyOrder, quantity);
+            orderBook.decreaseQuantity(firstSellOrder, quantity);
             if (firstSellOrder instanceof IcebergOrder sell) {
-                sell.replenish();
+                orderBook.replenish(sell);
                 if (sell.getQuantity() == 0)
                     buyOrder.removeFromSecurity();
                 else
@@ -86,66 +81,81 @@ public class AuctionMatcher extends Matcher {
     }
 
     @Override
-    public MatchResult execute(Order order) {
-        if (!order.getBroker().hasEnoughCredit(order.getValue()))
+    public MatchResult execute(Order order, long heldCredit) {
+        if (order.getSide() == Side.BUY) {
+            if (!order.getBroker().tryReplaceReservation(heldCredit, order.getValue()))
+                return MatchResult.notEnoughCredit();
+        } else if (!order.getBroker().hasEnoughCredit(order.getValue()))
             return MatchResult.notEnoughCredit();
-        if (order.getSide() == Side.BUY)
-            order.getBroker().decreaseCreditBy(order.getValue());
         order.getSecurity().getOrderBook().enqueue(order);
         return MatchResult.executed(order, List.of());
     }
 
     public int getTradableQuantity(int price, Security security) {
-        int openedBuyQuantity = getOpenOrdersSum(security, price, Side.BUY);
-        int openedSellQuantity = getOpenOrdersSum(security, price, Side.SELL);
-        return Math.min(openedSellQuantity, openedBuyQuantity);
+        return security.getOrderBook().getTradableQuantity(price);
     }
 
     public int findOpeningPrice(Security security) {
-        List<Integer> prices = getPrices(security);
-        prices.add(security.getLastTradePrice());
-
+        OrderBook orderBook = security.getOrderBook();
         int maxTrade = 0;
-        int maxPrice = -1;
-        for (int price : prices) {
-            int openedBuyQuantity = getOpenOrdersSum(security, price, Side.BUY);
-            int openedSellQuantity = getOpenOrdersSum(security, price, Side.SELL);
-            if (min(openedBuyQuantity, openedSellQuantity) > maxTrade) {
-                maxTrade = min(openedBuyQuantity, openedSellQuantity);
-                maxPrice = price;
-                continue;
-            }
-            if (min(openedBuyQuantity, openedSellQuantity) == maxTrade) {
-                if (isCloserToLastTradePrice(security, maxPrice, price)) {
-                    maxPrice = price;
-                    continue;
+        int lowestPrice = -1;
+        int highestPrice = -1;
+        for (Side side : Side.values()) {
+            for (int price : orderBook.getPrices(side)) {
+                int tradableQuantity = orderBook.getTradableQuantity(price);
+                if (tradableQuantity > maxTrade) {
+                    maxTrade = tradableQuantity;
+                    lowestPrice = price;
+                    highestPrice = price;
+                } else if (tradableQuantity == maxTrade && maxTrade > 0) {
+                    lowestPrice = Math.min(lowestPrice, price);
+                    highestPrice = Math.max(highestPrice, price);
                 }
-                if (isEquallyCloseToLastTradePrice(security, maxPrice, price))
-                    maxPrice = Math.min(maxPrice, price);
             }
         }
-        return maxPrice;
+        return closestToLastTradePrice(security.getLastTradePrice(), maxTrade, lowestPrice, highestPrice);
     }
 
-    private static ArrayList<Integer> getPrices(Security security) {
-        Stream<Order> buyQueueStream = security.getOrderBook().getBuyQueue().stream();
-        Stream<Order> sellQueueStream = security.getOrderBook().getSellQueue().stream();
-        return new ArrayList<>(Stream.concat(buyQueueStream, sellQueueStream)
-                .map(Order::getPrice).toList());
+    public int findIndicativeOpeningPrice(Security security) {
+        OrderBook orderBook = security.getOrderBook();
+        int lastTradePrice = security.getLastTradePrice();
+        if (!orderBook.hasOrderOfType(Side.BUY) || !orderBook.hasOrderOfType(Side.SELL))
+            return lastTradePrice;
+        int low = orderBook.getLowestPrice();
+        int high = orderBook.getHighestPrice();
+        int crossing = firstPriceWhere(low, high, price ->
+                orderBook.getTradableQuantity(price, Side.SELL) >= orderBook.getTradableQuantity(price, Side.BUY));
+        int maxTrade = Math.max(crossing <= high ? orderBook.getTradableQuantity(crossing) : 0,
+                crossing > low ? orderBook.getTradableQuantity(crossing - 1) : 0);
+        if (maxTrade == 0)
+            return lastTradePrice;
+        int lowestPrice = firstPriceWhere(low, high, price -> orderBook.getTradableQuantity(price, Side.SELL) >= maxTrade);
+        int highestPrice = firstPriceWhere(low, high, price -> orderBook.getTradableQuantity(price, Side.BUY) < maxTrade) - 1;
+        return closestToLastTradePrice(lastTradePrice, maxTrade, orderBook.getLowestPriceAtOrAbove(lowestPrice),
+                orderBook.getHighestPriceAtOrBelow(highestPrice));
     }
 
-    private static boolean isCloserToLastTradePrice(Security security, int maxPrice, int price) {
-        return Math.abs(maxPrice - security.getLastTradePrice()) > Math.abs(price - security.getLastTradePrice());
-    }
-
-    private static boolean isEquallyCloseToLastTradePrice(Security security, int maxPrice, int price) {
-        return Math.abs(maxPrice - security.getLastTradePrice()) == Math
-                .abs(price - security.getLastTradePrice());
+    private static int firstPriceWhere(int low, int high, IntPredicate predicate) {
+        long first = low;
+        long last = (long) high + 1;
+        while (first < last) {
+            long middle = (first + last) >>> 1;
+            if (predicate.test((int) middle))
+                last = middle;
+            else
+                first = middle + 1;
+        }
+        return (int) first;
     }
 
-    private static int getOpenOrdersSum(Security security, int price, Side side) {
-        return security.getOrderBook().getOpenOrders(price, side).stream()
-                .mapToInt(Order::getAllQuantity).sum();
+    private static int closestToLastTradePrice(int lastTradePrice, int maxTrade, int lowestPrice, int highestPrice) {
+        if (maxTrade == 0)
+            return lastTradePrice;
+        if (lastTradePrice < lowestPrice)
+            return lowestPrice;
+        if (lastTradePrice > highestPrice)
+            return highestPrice;
+        return lastTradePrice;
     }
 
 }
@@ -0,0 +1,31 @@
+package ir.ramtung.tinyme.domain.service;
+
+import ir.ramtung.tinyme.domain.entity.Broker;
+import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.entity.Shareholder;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+
+/**
+ * An enter order request with its security, broker and shareholder looked up once; any of them
+ * is null when the request names an unknown one. A prevalidated context has already passed the
+ * rules that do not depend on book state, so the matching shard only checks the rest.
+ */
+public record EnterOrderContext(EnterOrderRq enterOrderRq, Security security, Broker broker,
+                                Shareholder shareholder, boolean prevalidated) {
+    public static EnterOrderContext resolve(EnterOrderRq enterOrderRq, SecurityRepository securityRepository,
+                                            BrokerRepository brokerRepository,
+                                            ShareholderRepository shareholderRepository) {
+        return resolve(enterOrderRq, securityRepository, brokerRepository, shareholderRepository, false);
+    }
+
+    public static EnterOrderContext resolve(EnterOrderRq enterOrderRq, SecurityRepository securityRepository,
+                                            BrokerRepository brokerRepository,
+                                            ShareholderRepository shareholderRepository, boolean prevalidated) {
+        return new EnterOrderContext(enterOrderRq, securityRepository.findSecurityByIsin(enterOrderRq.getSecurityIsin()),
+                brokerRepository.findBrokerById(enterOrderRq.getBrokerId()),
+                shareholderRepository.findShareholderById(enterOrderRq.getShareholderId()), prevalidated);
+    }
+}
@@ -0,0 +1,44 @@
+package ir.ramtung.tinyme.domain.service;
+
+import ir.ramtung.tinyme.domain.entity.Broker;
+import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.entity.Shareholder;
+import ir.ramtung.tinyme.messaging.request.MassCancelRq;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A mass cancel request resolved against the repositories. It runs once per security, possibly
+ * on several shards at a time; whichever finishes the last security reports the total.
+ */
+@Getter
+public class MassCancel {
+    private final MassCancelRq request;
+    private final Broker broker;
+    private final Shareholder shareholder;
+    private final List<Security> securities;
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger remaining;
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger cancelled = new AtomicInteger();
+
+    MassCancel(MassCancelRq request, Broker broker, Shareholder shareholder, List<Security> securities) {
+        this.request = request;
+        this.broker = broker;
+        this.shareholder = shareholder;
+        this.securities = securities;
+        this.remaining = new AtomicInteger(securities.size());
+    }
+
+    boolean finishSecurity(int cancelledOrders) {
+        cancelled.addAndGet(cancelledOrders);
+        return remaining.decrementAndGet() == 0;
+    }
+
+    int getCancelledOrders() {
+        return cancelled.get();
+    }
+}
@@ -1,71 +1,96 @@
 package ir.ramtung.tinyme.domain.service;
 
 import ir.ramtung.tinyme.domain.entity.*;
-import ir.ramtung.tinyme.messaging.exception.NotEnoughCreditException;
 
 import org.springframework.stereotype.Service;
 
-import java.util.LinkedList;
-import java.util.ListIterator;
-
 @Service
 public class Matcher {
     public MatchResult match(Order newOrder) {
+        return match(newOrder, 0, false);
+    }
+
+    /**
+     * Matches {@code newOrder}, paying for its buys first out of {@code heldCredit}, the credit its
+     * broker already set aside for it, and then out of the broker's free credit. Brokers are only
+     * credited once the match commits, so a rollback only ever refunds what it drew and never takes
+     * back credit another shard may already have spent. On commit, held credit the trades and, if
+     * {@code reserveRemainder}, the resting remainder did not use is released; on failure it stays
+     * held for the caller.
+     */
+    private MatchResult match(Order newOrder, long heldCredit, boolean reserveRemainder) {
         newOrder.removeFromSecurity();
 
         OrderBook orderBook = newOrder.getSecurity().getOrderBook();
-        LinkedList<Trade> trades = new LinkedList<>();
+        Fills fills = Fills.none();
+        Order newOrderSnapshot = null;
+        long held = heldCredit;
+        long drawn = 0;
 
         while (newOrder.canMatch() && newOrder.getQuantity() > 0) {
             Order matchingOrder = orderBook.matchWithFirst(newOrder);
             if (matchingOrder == null)
                 break;
-            Trade trade;
-            try {
-                trade = makeTrade(matchingOrder, newOrder, trades);
-            } catch (NotEnoughCreditException Ex) {
-                return MatchResult.notEnoughCredit();
+            int tradeQuantity = Math.min(newOrder.getQuantity(), matchingOrder.getQuantity());
+            long tradedValue = getValue(matchingOrder.getPrice(), tradeQuantity);
+            if (newOrder.getSide() == Side.BUY) {
+                long fromHeld = Math.min(held, tradedValue);
+                if (!newOrder.getBroker().tryDecreaseCreditBy(tradedValue - fromHeld)) {
+                    rollbackBuyTrades(newOrder, fills, drawn);
+                    return MatchResult.notEnoughCredit();
+                }
+                held -= fromHeld;
+                drawn += tradedValue - fromHeld;
             }
-            trade.increaseSellersCredit();
-            trades.add(trade);
+            if (newOrderSnapshot == null) {
+                newOrderSnapshot = newOrder.snapshot();
+                fills = new Fills(newOrder.getSecurity());
+            }
+            addFill(fills, matchingOrder.getPrice(), tradeQuantity, newOrderSnapshot, newOrder.getTotalQuantity(),
+                    matchingOrder);
             matchTwoOrder(matchingOrder, newOrder, orderBook);
         }
 
-       return handleMinimumExceptionQuantity(trades, newOrder);
+        if (fills.totalQuantity() < newOrder.getMinimumExecutionQuantity()) {
+            rollback(newOrder, fills, drawn);
+            return MatchResult.notEnoughTrades();
+        }
+        if (reserveRemainder && newOrder.getSide() == Side.BUY && newOrder.getQuantity() > 0) {
+            long fromHeld = Math.min(held, newOrder.getValue());
+            if (!newOrder.getBroker().tryDecreaseCreditBy(newOrder.getValue() - fromHeld)) {
+                rollbackBuyTrades(newOrder, fills, drawn);
+                return MatchResult.notEnoughCredit();
+            }
+            held -= fromHeld;
+        }
+        newOrder.makeMinimumExceptionZero();
+        commit(newOrder, fills, held);
+        return MatchResult.executed(newOrder, fills);
     }
 
-    private MatchResult handleMinimumExceptionQuantity(LinkedList<Trade> trades, Order newOrder) {
-        if (isTradeBiggerThanMEQ(newOrder, trades))
-        {
-            newOrder.makeMinimumExceptionZero();
-            return MatchResult.executed(newOrder, trades);
-        }
-        if (newOrder.getSide() == Side.SELL)
-            rollbackSellTrades(newOrder, trades);
+    private static void addFill(Fills fills, int price, int quantity, Order newOrder, int newOrderQuantity,
+            Order matchingOrder) {
+        if (newOrder.getSide() == Side.BUY)
+            fills.add(price, quantity, newOrder, newOrderQuantity, matchingOrder, matchingOrder.getTotalQuantity());
         else
-            rollbackBuyTrades(newOrder, trades);
-        return MatchResult.notEnoughTrades();
+            fills.add(price, quantity, matchingOrder, matchingOrder.getTotalQuantity(), newOrder, newOrderQuantity);
     }
 
-    private static boolean isTradeBiggerThanMEQ(Order newOrder, LinkedList<Trade> trades) {
-        int tradeQuantity = trades.stream().mapToInt(Trade::getQuantity).sum();
-        return tradeQuantity >= newOrder.getMinimumExecutionQuantity();
+    private static void commit(Order newOrder, Fills fills, long unusedHeld) {
+        if (newOrder.getSide() == Side.BUY) {
+            for (int i = 0; i < fills.size(); i++)
+                fills.sell(i).getBroker().increaseCreditBy(fills.tradedValue(i));
+            if (unusedHeld > 0)
+                newOrder.getBroker().increaseCreditBy(unusedHeld);
+        } else if (!fills.isEmpty())
+            newOrder.getBroker().increaseCreditBy(fills.totalTradedValue());
     }
 
-    private Trade makeTrade(Order matchingOrder, Order newOrder, LinkedList<Trade> trades)
-            throws NotEnoughCreditException {
-        int tradeQuantity = Math.min(newOrder.getQuantity(), matchingOrder.getQuantity());
-        Trade trade = new Trade(newOrder.getSecurity(), matchingOrder.getPrice(),
-                tradeQuantity, newOrder, matchingOrder);
-        if (newOrder.getSide() == Side.BUY) {
-            if (trade.buyerHasEnoughCredit())
-                trade.decreaseBuyersCredit();
-            else {
-                rollbackBuyTrades(newOrder, trades);
-                throw new NotEnoughCreditException();
-            }
-        }
-        return trade;
+    private void rollback(Order newOrder, Fills fills, long drawn) {
+        if (newOrder.getSide() == Side.SELL)
+            rollbackSellTrades(newOrder, fills);
+        else
+            rollbackBuyTrades(newOrder, fills, drawn);
     }
 
     public void matchTwoOrder(Order matchingOrder, Order newOrder, OrderBook orderBook) {
@@ -79,52 +104,45 @@ public class Matcher {
                     orderBook.enqueue(icebergOrder);
             }
         } else {
-            matchingOrder.decreaseQuantity(newOrder.getQuantity());
+            orderBook.decreaseQuantity(matchingOrder, newOrder.getQuantity());
             newOrder.makeQuantityZero();
         }
     }
 
-    protected void rollbackBuyTrades(Order newOrder, LinkedList<Trade> trades) {
+    protected void rollbackBuyTrades(Order newOrder, Fills fills, long drawn) {
         assert newOrder.getSide() == Side.BUY;
-        long totalTradeValue = trades.stream().mapToLong(Trade::getTradedValue).sum();
-        newOrder.getBroker().increaseCreditBy(totalTradeValue);
-        trades.forEach(trade -> trade.getSell().getBroker().decreaseCreditBy(trade.getTradedValue()));
-
-        ListIterator<Trade> it = trades.listIterator(trades.size());
-        while (it.hasPrevious()) {
-            newOrder.getSecurity().getOrderBook().restoreSellOrder(it.previous().getSell());
-        }
+        newOrder.getBroker().increaseCreditBy(drawn);
+        for (int i = fills.size() - 1; i >= 0; i--)
+            newOrder.getSecurity().getOrderBook().restoreSellOrder(fills.sellSnapshot(i));
     }
 
-    protected void rollbackSellTrades(Order newOrder, LinkedList<Trade> trades) {
+    protected void rollbackSellTrades(Order newOrder, Fills fills) {
         assert newOrder.getSide() == Side.SELL;
-        for (Trade trade : trades) {
-            newOrder.getBroker().decreaseCreditBy(getValue(trade.getPrice(), trade.getQuantity()));
-            newOrder.getSecurity().getOrderBook().restoreBuyOrder(trade.getBuy());
-        }
+        for (int i = 0; i < fills.size(); i++)
+            newOrder.getSecurity().getOrderBook().restoreBuyOrder(fills.buySnapshot(i));
     }
 
     public MatchResult execute(Order order) {
-        MatchResult result = match(order);
+        return execute(order, 0);
+    }
+
+    /**
+     * Executes {@code order} drawing first on {@code heldCredit}, credit its broker had already
+     * reserved for it. If the order is rejected the held credit stays reserved, so the caller can
+     * put back whatever it was reserved for without debiting the broker again.
+     */
+    public MatchResult execute(Order order, long heldCredit) {
+        MatchResult result = match(order, heldCredit, true);
         if (result.outcome() == MatchingOutcome.NOT_ENOUGH_CREDIT ||
                 result.outcome() == MatchingOutcome.NOT_ENOUGH_TRADE)
             return result;
 
-        if (result.remainder().getQuantity() > 0) {
-            if (order.getSide() == Side.BUY) {
-                if (!order.getBroker().hasEnoughCredit(order.getValue())) {
-                    rollbackBuyTrades(order, result.trades());
-                    return MatchResult.notEnoughCredit();
-                }
-                order.getBroker().decreaseCreditBy(order.getValue());
-            }
+        Fills fills = result.fills();
+        if (result.remainder().getQuantity() > 0)
             order.getSecurity().getOrderBook().enqueue(result.remainder());
-        }
-        if (!result.trades().isEmpty()) {
-            for (Trade trade : result.trades()) {
-                trade.getBuy().getShareholder().incPosition(trade.getSecurity(), trade.getQuantity());
-                trade.getSell().getShareholder().decPosition(trade.getSecurity(), trade.getQuantity());
-            }
+        for (int i = 0; i < fills.size(); i++) {
+            fills.buy(i).getShareholder().incPosition(fills.getSecurity(), fills.quantity(i));
+            fills.sell(i).getShareholder().decPosition(fills.getSecurity(), fills.quantity(i));
         }
         return result;
     }
@@ -0,0 +1,7 @@
+package ir.ramtung.tinyme.domain.service;
+
+public enum OpeningPriceCalculation {
+    INCREMENTAL,
+    FULL,
+    SHADOW
+}
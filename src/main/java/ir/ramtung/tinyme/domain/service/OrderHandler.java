@@ -10,20 +10,27 @@ import ir.ramtung.tinyme.messaging.event.*;
 import ir.ramtung.tinyme.messaging.request.ChangeMatchingStateRq;
 import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
 import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MassCancelRq;
 import ir.ramtung.tinyme.messaging.request.MatchingState;
 import ir.ramtung.tinyme.messaging.request.OrderEntryType;
+import ir.ramtung.tinyme.metrics.OrderBookGauges;
+import ir.ramtung.tinyme.metrics.OrderHandlerMetrics;
+import ir.ramtung.tinyme.metrics.OrderHandlerMetrics.Stage;
 import ir.ramtung.tinyme.repository.BrokerRepository;
 import ir.ramtung.tinyme.repository.SecurityRepository;
 import ir.ramtung.tinyme.repository.ShareholderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.logging.Logger;
 
 @Service
 public class OrderHandler {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
     private final SecurityRepository securityRepository;
     private final BrokerRepository brokerRepository;
     private final ShareholderRepository shareholderRepository;
@@ -32,38 +39,72 @@ public class OrderHandler {
     private final AuctionMatcher auctionMatcher;
     private final Validation validation;
     private final OrderFactory orderFactory;
+    private final OrderHandlerMetrics metrics;
+    private final OrderBookGauges bookGauges;
+    @Value("${openingPriceCalculation:INCREMENTAL}")
+    private OpeningPriceCalculation openingPriceCalculation = OpeningPriceCalculation.INCREMENTAL;
+    @Value("${stopLimitCascadeLimit:10000}")
+    private int stopLimitCascadeLimit = 10000;
 
     public OrderHandler(SecurityRepository securityRepository, BrokerRepository brokerRepository,
             ShareholderRepository shareholderRepository, EventPublisher eventPublisher, Matcher matcher) {
+        this(securityRepository, brokerRepository, shareholderRepository, eventPublisher, matcher,
+                OrderHandlerMetrics.disabled(), new OrderBookGauges(securityRepository, 0, 0));
+    }
+
+    @Autowired
+    public OrderHandler(SecurityRepository securityRepository, BrokerRepository brokerRepository,
+            ShareholderRepository shareholderRepository, EventPublisher eventPublisher, Matcher matcher,
+            OrderHandlerMetrics metrics, OrderBookGauges bookGauges) {
+        this.metrics = metrics;
+        this.bookGauges = bookGauges;
         this.securityRepository = securityRepository;
         this.brokerRepository = brokerRepository;
         this.shareholderRepository = shareholderRepository;
         this.eventPublisher = eventPublisher;
         this.matcher = matcher;
         this.auctionMatcher = new AuctionMatcher();
-        orderFactory = new OrderFactory(securityRepository, shareholderRepository, brokerRepository);
+        orderFactory = new OrderFactory();
         validation = new Validation();
     }
 
-    private void activateStopLimitOrders(Security security, long request_id) {
+    private int activateStopLimitOrders(Security security, long request_id) {
         Matcher securityMatcher = (security.getState() == MatchingState.AUCTION) ? auctionMatcher : matcher;
-        ArrayList<StopLimitOrder> activatedList = security.getOrderCancellationQueue()
-                .getActivatedOrder(security.getLastTradePrice());
-        for (int i = 0; i < activatedList.size(); i++) {
-            StopLimitOrder stopLimitOrder = activatedList.get(i);
-            stopLimitOrder.restoreBrokerCredit();
+        OrderCancellationQueue orderCancellationQueue = security.getOrderCancellationQueue();
+        int highestTradePrice = security.getLastTradePrice();
+        int lowestTradePrice = security.getLastTradePrice();
+        if (security.getPendingHighTradePrice() != -1) {
+            highestTradePrice = Math.max(highestTradePrice, security.getPendingHighTradePrice());
+            lowestTradePrice = Math.min(lowestTradePrice, security.getPendingLowTradePrice());
+        }
+        int depth = 0;
+        StopLimitOrder stopLimitOrder;
+        while (depth < stopLimitCascadeLimit
+                && (stopLimitOrder = orderCancellationQueue.pollActivated(highestTradePrice, lowestTradePrice)) != null) {
+            depth++;
             Order newOrder = new Order(stopLimitOrder);
-            MatchResult result = securityMatcher.execute(newOrder);
+            MatchResult result = securityMatcher.execute(newOrder, stopLimitOrder.reservedCredit());
+            if (result.outcome() != MatchingOutcome.EXECUTED)
+                stopLimitOrder.restoreBrokerCredit();
             eventPublisher.publish(new OrderActivatedEvent(request_id, stopLimitOrder.getOrderId()));
-            if (!result.trades().isEmpty()) {
+            if (!result.fills().isEmpty()) {
+                security.getTradeTape().record(result.fills());
                 eventPublisher.publish(new OrderExecutedEvent(request_id, stopLimitOrder.getOrderId(),
-                        result.trades().stream().map(TradeDTO::new).collect(Collectors.toList())));
-                int lastTradePrice = result.trades().get(result.trades().size() - 1).getPrice();
-                newOrder.getSecurity().setLastTradePrice(lastTradePrice);
-                activatedList
-                        .addAll(security.getOrderCancellationQueue().getActivatedOrder(security.getLastTradePrice()));
+                        tradeDTOs(result.fills())));
+                int lastTradePrice = result.fills().lastPrice();
+                security.setLastTradePrice(lastTradePrice);
+                highestTradePrice = Math.max(highestTradePrice, lastTradePrice);
+                lowestTradePrice = Math.min(lowestTradePrice, lastTradePrice);
             }
         }
+        if (depth == stopLimitCascadeLimit
+                && orderCancellationQueue.hasActivated(highestTradePrice, lowestTradePrice)) {
+            log.warning("Stop limit cascade of request " + request_id + " on " + security.getIsin()
+                    + " stopped after " + depth + " activations");
+            security.setPendingTradePrices(highestTradePrice, lowestTradePrice);
+        } else
+            security.setPendingTradePrices(-1, -1);
+        return depth;
     }
 
     private void publishMatchError(MatchingOutcome matchingOutcome, EnterOrderRq enterOrderRq) {
@@ -87,54 +128,164 @@ public class OrderHandler {
         if (security.getState() == MatchingState.AUCTION)
             publishOpenPriceEvent(security);
 
-        if (!matchResult.trades().isEmpty())
+        if (!matchResult.fills().isEmpty()) {
+            security.getTradeTape().record(matchResult.fills());
             eventPublisher.publish(new OrderExecutedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(),
-                    matchResult.trades().stream().map(TradeDTO::new).collect(Collectors.toList())));
+                    tradeDTOs(matchResult.fills())));
+        }
+    }
+
+    private static List<TradeDTO> tradeDTOs(Fills fills) {
+        List<TradeDTO> trades = new ArrayList<>(fills.size());
+        for (int i = 0; i < fills.size(); i++)
+            trades.add(new TradeDTO(fills, i));
+        return trades;
+    }
+
+    /**
+     * Resolves the request and runs the rules that do not touch book state, on the caller's thread
+     * rather than the security's shard. A request those rules reject for good is answered here and
+     * null is returned; anything else comes back ready for {@link #handleEnterOrder(EnterOrderContext)}.
+     * The stateless rules do not read the prevalidated flag, so the context is built with it set and
+     * only a rejection the shard has to complete is rebuilt without it.
+     */
+    public EnterOrderContext prevalidateEnterOrder(EnterOrderRq enterOrderRq) {
+        EnterOrderContext context = EnterOrderContext.resolve(enterOrderRq, securityRepository, brokerRepository,
+                shareholderRepository, true);
+        List<String> errors = validation.validateStateless(context);
+        if (errors.isEmpty())
+            return context;
+        if (validation.dependsOnState(context))
+            return new EnterOrderContext(enterOrderRq, context.security(), context.broker(), context.shareholder(),
+                    false);
+        metrics.start(enterOrderRq.getRequestId(), enterOrderRq.getSecurityIsin(), context.security() != null);
+        metrics.rejected(errors);
+        eventPublisher.publish(new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), errors));
+        return null;
     }
 
     public void handleEnterOrder(EnterOrderRq enterOrderRq) {
+        handleEnterOrder(EnterOrderContext.resolve(enterOrderRq, securityRepository, brokerRepository,
+                shareholderRepository));
+    }
+
+    public void handleEnterOrder(EnterOrderContext context) {
+        EnterOrderRq enterOrderRq = context.enterOrderRq();
+        long time = metrics.start(enterOrderRq.getRequestId(), enterOrderRq.getSecurityIsin(),
+                context.security() != null);
         try {
-            Security security = securityRepository.findSecurityByIsin(enterOrderRq.getSecurityIsin());
-            Broker broker = brokerRepository.findBrokerById(enterOrderRq.getBrokerId());
-            Shareholder shareholder = shareholderRepository.findShareholderById(enterOrderRq.getShareholderId());
-            validation.validate(enterOrderRq,security,broker,shareholder);
+            validation.validate(context);
+            time = metrics.stage(Stage.VALIDATION, time);
+            Security security = context.security();
             Matcher securityMatcher = (security.getState() == MatchingState.AUCTION) ? auctionMatcher : matcher;
 
             MatchResult matchResult;
-            if (enterOrderRq.getRequestType() == OrderEntryType.NEW_ORDER)
-                matchResult = security.newOrder(orderFactory.createOrder(enterOrderRq), broker, shareholder,
-                        securityMatcher);
-            else
+            if (enterOrderRq.getRequestType() == OrderEntryType.NEW_ORDER) {
+                Order order = orderFactory.createOrder(context);
+                time = metrics.stage(Stage.ORDER_CREATION, time);
+                matchResult = security.newOrder(order, context.broker(), context.shareholder(), securityMatcher);
+            } else
                 matchResult = security.updateOrder(enterOrderRq, securityMatcher);
+            time = metrics.stage(Stage.MATCHING, time);
+            metrics.outcome(matchResult.outcome());
 
             if (matchResult.outcome() == MatchingOutcome.EXECUTED) {
                 publishExecutedOrderEvents(enterOrderRq, matchResult, security);
-                activateStopLimitOrders(security, enterOrderRq.getRequestId());
-            } else
+                time = metrics.stage(Stage.PUBLISHING, time);
+                metrics.cascadeDepth(activateStopLimitOrders(security, enterOrderRq.getRequestId()));
+                metrics.stage(Stage.STOP_LIMIT_ACTIVATION, time);
+            } else {
                 publishMatchError(matchResult.outcome(), enterOrderRq);
+                metrics.stage(Stage.PUBLISHING, time);
+            }
+            bookGauges.check(security);
         } catch (InvalidRequestException ex) {
+            metrics.rejected(ex.getReasons());
             eventPublisher.publish(
                     new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), ex.getReasons()));
         }
     }
 
     public void handleDeleteOrder(DeleteOrderRq deleteOrderRq) {
+        Security security = securityRepository.findSecurityByIsin(deleteOrderRq.getSecurityIsin());
+        metrics.start(deleteOrderRq.getRequestId(), deleteOrderRq.getSecurityIsin(), security != null);
         try {
             validateDeleteOrderRq(deleteOrderRq);
-            Security security = securityRepository.findSecurityByIsin(deleteOrderRq.getSecurityIsin());
             security.deleteOrder(deleteOrderRq);
             eventPublisher.publish(new OrderDeletedEvent(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId()));
             if (security.getState() == MatchingState.AUCTION)
                 publishOpenPriceEvent(security);
         } catch (InvalidRequestException ex) {
+            metrics.rejected(ex.getReasons());
             eventPublisher.publish(
                     new OrderRejectedEvent(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId(), ex.getReasons()));
         }
     }
 
+    /**
+     * Resolves the scope of a mass cancel, answering here when it names an unknown security,
+     * broker or shareholder, names none of them, or covers no security at all; null is returned
+     * in those cases. Otherwise each of the returned securities still needs
+     * {@link #handleMassCancel} on its shard.
+     */
+    public MassCancel prepareMassCancel(MassCancelRq massCancelRq) {
+        List<String> errors = new ArrayList<>();
+        Security security = null;
+        if (massCancelRq.getSecurityIsin() != null
+                && (security = securityRepository.findSecurityByIsin(massCancelRq.getSecurityIsin())) == null)
+            errors.add(Message.UNKNOWN_SECURITY_ISIN);
+        metrics.start(massCancelRq.getRequestId(), massCancelRq.getSecurityIsin(), security != null);
+        Broker broker = null;
+        if (massCancelRq.getBrokerId() != 0
+                && (broker = brokerRepository.findBrokerById(massCancelRq.getBrokerId())) == null)
+            errors.add(Message.UNKNOWN_BROKER_ID);
+        Shareholder shareholder = null;
+        if (massCancelRq.getShareholderId() != 0
+                && (shareholder = shareholderRepository.findShareholderById(massCancelRq.getShareholderId())) == null)
+            errors.add(Message.UNKNOWN_SHAREHOLDER_ID);
+        if (massCancelRq.getSecurityIsin() == null && massCancelRq.getBrokerId() == 0
+                && massCancelRq.getShareholderId() == 0)
+            errors.add(Message.MASS_CANCEL_WITHOUT_SCOPE);
+        if (!errors.isEmpty()) {
+            metrics.rejected(errors);
+            eventPublisher.publish(new OrderRejectedEvent(massCancelRq.getRequestId(), 0, errors));
+            return null;
+        }
+        List<Security> securities = new ArrayList<>();
+        if (security != null)
+            securities.add(security);
+        else
+            securityRepository.allSecurities().forEach(securities::add);
+        if (securities.isEmpty()) {
+            eventPublisher.publish(new MassCancelCompletedEvent(massCancelRq.getRequestId(), 0));
+            return null;
+        }
+        return new MassCancel(massCancelRq, broker, shareholder, securities);
+    }
+
+    public void handleMassCancel(MassCancel massCancel, Security security) {
+        long requestId = massCancel.getRequest().getRequestId();
+        List<Order> cancelled = security.cancelOrders(massCancel.getBroker(), massCancel.getShareholder(),
+                massCancel.getRequest().getSide());
+        for (Order order : cancelled)
+            eventPublisher.publish(new OrderDeletedEvent(requestId, order.getOrderId()));
+        if (!cancelled.isEmpty() && security.getState() == MatchingState.AUCTION)
+            publishOpenPriceEvent(security);
+        if (massCancel.finishSecurity(cancelled.size()))
+            eventPublisher.publish(new MassCancelCompletedEvent(requestId, massCancel.getCancelledOrders()));
+    }
+
+    public void handleMassCancelRq(MassCancelRq massCancelRq) {
+        MassCancel massCancel = prepareMassCancel(massCancelRq);
+        if (massCancel != null)
+            for (Security security : massCancel.getSecurities())
+                handleMassCancel(massCancel, security);
+    }
+
     public void handleChangeMatchingStateRq(ChangeMatchingStateRq changeMatchingStateRq)
             throws InvalidRequestException {
         Security security = securityRepository.findSecurityByIsin(changeMatchingStateRq.getSecurityIsin());
+        metrics.start(changeMatchingStateRq.getRequestId(), changeMatchingStateRq.getSecurityIsin(), security != null);
         if (security == null)
             throw new InvalidRequestException(Message.UNKNOWN_SECURITY_ISIN);
 
@@ -142,75 +293,41 @@ public class OrderHandler {
                 .publish(new SecurityStateChangedEvent(security.getIsin(), changeMatchingStateRq.getTargetState()));
         if (security.getState() == MatchingState.AUCTION) {
             LinkedList<Trade> trades = auctionMatcher.open(security);
+            trades.forEach(security.getTradeTape()::record);
             publishTradeEvent(trades);
             security.changeMatchingStateRq(changeMatchingStateRq.getTargetState());
             if (!trades.isEmpty())
-                activateStopLimitOrders(security, changeMatchingStateRq.getRequestId());
+                metrics.cascadeDepth(activateStopLimitOrders(security, changeMatchingStateRq.getRequestId()));
         } else
             security.changeMatchingStateRq(changeMatchingStateRq.getTargetState());
+        bookGauges.check(security);
     }
 
     private void publishOpenPriceEvent(Security security) {
-        int openingPrice = auctionMatcher.findOpeningPrice(security);
+        int openingPrice = findOpeningPrice(security);
         int tradableQuantity = auctionMatcher.getTradableQuantity(openingPrice, security);
         eventPublisher.publish(new OpeningPriceEvent(security.getIsin(), openingPrice, tradableQuantity));
     }
 
+    private int findOpeningPrice(Security security) {
+        if (openingPriceCalculation == OpeningPriceCalculation.FULL)
+            return auctionMatcher.findOpeningPrice(security);
+        int indicativePrice = auctionMatcher.findIndicativeOpeningPrice(security);
+        if (openingPriceCalculation == OpeningPriceCalculation.SHADOW) {
+            int openingPrice = auctionMatcher.findOpeningPrice(security);
+            if (openingPrice != indicativePrice)
+                log.warning("Indicative opening price " + indicativePrice + " of " + security.getIsin()
+                        + " differs from full recomputation " + openingPrice);
+            return openingPrice;
+        }
+        return indicativePrice;
+    }
+
     private void publishTradeEvent(LinkedList<Trade> trades) {
         for (Trade trade : trades)
             eventPublisher.publish(new TradeEvent(trade));
     }
 
-    private void validateEnterOrderRq(EnterOrderRq enterOrderRq) throws InvalidRequestException {
-        List<String> errors = new LinkedList<>();
-        if (enterOrderRq.getOrderId() <= 0)
-            errors.add(Message.INVALID_ORDER_ID);
-        if (enterOrderRq.getQuantity() <= 0)
-            errors.add(Message.ORDER_QUANTITY_NOT_POSITIVE);
-        if (enterOrderRq.getPrice() <= 0)
-            errors.add(Message.ORDER_PRICE_NOT_POSITIVE);
-
-        Security security = securityRepository.findSecurityByIsin(enterOrderRq.getSecurityIsin());
-        if (security != null) {
-            if (enterOrderRq.getQuantity() % security.getLotSize() != 0)
-                errors.add(Message.QUANTITY_NOT_MULTIPLE_OF_LOT_SIZE);
-            if (enterOrderRq.getPrice() % security.getTickSize() != 0)
-                errors.add(Message.PRICE_NOT_MULTIPLE_OF_TICK_SIZE);
-        } else
-            errors.add(Message.UNKNOWN_SECURITY_ISIN);
-
-        if (brokerRepository.findBrokerById(enterOrderRq.getBrokerId()) == null)
-            errors.add(Message.UNKNOWN_BROKER_ID);
-        if (shareholderRepository.findShareholderById(enterOrderRq.getShareholderId()) == null)
-            errors.add(Message.UNKNOWN_SHAREHOLDER_ID);
-        if (enterOrderRq.getPeakSize() < 0 || enterOrderRq.getPeakSize() >= enterOrderRq.getQuantity())
-            errors.add(Message.INVALID_PEAK_SIZE);
-        if (enterOrderRq.getPeakSize() != 0 && enterOrderRq.getQuantity() < enterOrderRq.getPeakSize())
-            errors.add(Message.PEAK_SIZE_MUST_BE_LESS_THAN_TOTAL_QUANTITY);
-        if (enterOrderRq.getStopLimit() != 0 && enterOrderRq.getPeakSize() != 0)
-            errors.add(Message.STOP_LIMIT_ORDER_IS_ICEBERG);
-        if (enterOrderRq.getStopLimit() != 0 &&
-                enterOrderRq.getMinimumExecutionQuantity() > 0)
-            errors.add(Message.STOP_LIMIT_ORDER_HAS_MINIMUM_EXECUTION_QUANTITY);
-        if (enterOrderRq.getStopLimit() < 0)
-            errors.add(Message.INVALID_STOP_LIMIT);
-
-        // Auction Validation
-        // if (securityRepository.findSecurityByIsin(enterOrderRq.getSecurityIsin()) !=
-        // null) {
-        // MatchingState state =
-        // securityRepository.findSecurityByIsin(enterOrderRq.getSecurityIsin()).getState();
-        // if (state == MatchingState.AUCTION &&
-        // enterOrderRq.getMinimumExecutionQuantity() != 0)
-        // errors.add(Message.AUCTION_CANNOT_HANDLE_MINIMUM_EXECUTION_QUANTITY);
-        // if (state == MatchingState.AUCTION && enterOrderRq.getStopLimit() != 0)
-        // errors.add(Message.AUCTION_CANNOT_HANDLE_STOP_LIMIT_ORDER);
-        // }
-
-        if (!errors.isEmpty())
-            throw new InvalidRequestException(errors);
-    }
-
     private void validateDeleteOrderRq(DeleteOrderRq deleteOrderRq) throws InvalidRequestException {
         List<String> errors = new LinkedList<>();
         if (deleteOrderRq.getOrderId() <= 0)
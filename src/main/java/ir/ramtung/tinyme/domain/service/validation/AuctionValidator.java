@@ -2,23 +2,27 @@ package ir.ramtung.tinyme.domain.service.validation;
 
 import java.util.List;
 
+import ir.ramtung.tinyme.domain.service.EnterOrderContext;
 import ir.ramtung.tinyme.messaging.Message;
 import ir.ramtung.tinyme.messaging.request.MatchingState;
 
 public class AuctionValidator extends BaseValidator {
     @Override
-    public void validate(ValidationArg validationArg, List<String> errorList) {
-        if (validationArg.security() != null) {
-            MatchingState state = validationArg.security().getState();
+    public List<String> validate(EnterOrderContext context, List<String> errorList) {
+        if (context.security() != null) {
+            MatchingState state = context.security().getState();
             if(state == MatchingState.AUCTION) {
-                if (validationArg.enterOrderRq().getMinimumExecutionQuantity() != 0)
-                    errorList.add(Message.AUCTION_CANNOT_HANDLE_MINIMUM_EXECUTION_QUANTITY);
-                if (validationArg.enterOrderRq().getStopLimit() != 0)
-                    errorList.add(Message.AUCTION_CANNOT_HANDLE_STOP_LIMIT_ORDER);
+                if (context.enterOrderRq().getMinimumExecutionQuantity() != 0)
+                    errorList = addError(errorList, Message.AUCTION_CANNOT_HANDLE_MINIMUM_EXECUTION_QUANTITY);
+                if (context.enterOrderRq().getStopLimit() != 0)
+                    errorList = addError(errorList, Message.AUCTION_CANNOT_HANDLE_STOP_LIMIT_ORDER);
             }
         }
-        if (next != null)
-            next.validate(validationArg, errorList);
+        return errorList;
     }
 
+    boolean mayApply(EnterOrderContext context) {
+        return context.security() != null && (context.enterOrderRq().getMinimumExecutionQuantity() != 0
+                || context.enterOrderRq().getStopLimit() != 0);
+    }
 }
@@ -1,12 +1,21 @@
 package ir.ramtung.tinyme.domain.service.validation;
 
-import lombok.Setter;
+import ir.ramtung.tinyme.domain.service.EnterOrderContext;
 
+import java.util.ArrayList;
 import java.util.List;
 
-@Setter
+/**
+ * A rule over an enter-order request. The error list stays null until some rule fails, and each
+ * rule returns the list it was given, or a new one holding its first error.
+ */
 public abstract class  BaseValidator {
-    protected BaseValidator next;
-    public abstract void validate(ValidationArg validationArg, List<String> errorList);
+    public abstract List<String> validate(EnterOrderContext context, List<String> errorList);
 
+    static List<String> addError(List<String> errorList, String error) {
+        if (errorList == null)
+            errorList = new ArrayList<>();
+        errorList.add(error);
+        return errorList;
+    }
 }
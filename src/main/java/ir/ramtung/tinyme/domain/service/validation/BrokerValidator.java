@@ -2,17 +2,17 @@ package ir.ramtung.tinyme.domain.service.validation;
 
 import java.util.List;
 
+import ir.ramtung.tinyme.domain.service.EnterOrderContext;
 import ir.ramtung.tinyme.messaging.Message;
 
 
 public class BrokerValidator extends  BaseValidator{
     @Override
-    public void validate( ValidationArg validationArg, List<String> errorList)
+    public List<String> validate( EnterOrderContext context, List<String> errorList)
     {
-        if (validationArg.broker() == null)
-            errorList.add(Message.UNKNOWN_BROKER_ID);
-        if (next != null)
-            next.validate(validationArg, errorList);
+        if (context.broker() == null)
+            errorList = addError(errorList, Message.UNKNOWN_BROKER_ID);
+        return errorList;
     }
 
 }
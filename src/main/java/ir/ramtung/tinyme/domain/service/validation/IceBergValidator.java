@@ -2,22 +2,22 @@ package ir.ramtung.tinyme.domain.service.validation;
 
 import java.util.List;
 
+import ir.ramtung.tinyme.domain.service.EnterOrderContext;
 import ir.ramtung.tinyme.messaging.Message;
 
 public class IceBergValidator extends BaseValidator {
     @Override
-    public void validate(ValidationArg validationArg, List<String> errorList) {
-        if (!isPeakSizeValid(validationArg))
-            errorList.add(Message.INVALID_PEAK_SIZE);
-        if (validationArg.enterOrderRq().getPeakSize() != 0 && validationArg.enterOrderRq().getQuantity() < validationArg.enterOrderRq().getPeakSize())
-            errorList.add(Message.PEAK_SIZE_MUST_BE_LESS_THAN_TOTAL_QUANTITY);
-        if (next != null)
-            next.validate(validationArg, errorList);
+    public List<String> validate(EnterOrderContext context, List<String> errorList) {
+        if (!isPeakSizeValid(context))
+            errorList = addError(errorList, Message.INVALID_PEAK_SIZE);
+        if (context.enterOrderRq().getPeakSize() != 0 && context.enterOrderRq().getQuantity() < context.enterOrderRq().getPeakSize())
+            errorList = addError(errorList, Message.PEAK_SIZE_MUST_BE_LESS_THAN_TOTAL_QUANTITY);
+        return errorList;
     }
 
-    private static boolean isPeakSizeValid(ValidationArg validationArg) {
-        return validationArg.enterOrderRq().getPeakSize() >= 0
-                && validationArg.enterOrderRq().getPeakSize() < validationArg.enterOrderRq().getQuantity();
+    private static boolean isPeakSizeValid(EnterOrderContext context) {
+        return context.enterOrderRq().getPeakSize() >= 0
+                && context.enterOrderRq().getPeakSize() < context.enterOrderRq().getQuantity();
     }
 
 }
@@ -1,15 +1,17 @@
 package ir.ramtung.tinyme.domain.service.validation;
 
+import ir.ramtung.tinyme.domain.service.EnterOrderContext;
 import ir.ramtung.tinyme.messaging.Message;
 
 import java.util.List;
 
 public class MinimumExceptionQuantityValidator extends BaseValidator{
     @Override
-    public void validate(ValidationArg validationArg, List<String> errorList)
+    public List<String> validate(EnterOrderContext context, List<String> errorList)
     {
-        if (validationArg.enterOrderRq().getMinimumExecutionQuantity() < 0)
-            errorList.add(Message.MINIMUM_EXCEPTION_QUANTITY_CANNOT_BE_NEGATIVE);
+        if (context.enterOrderRq().getMinimumExecutionQuantity() < 0)
+            errorList = addError(errorList, Message.MINIMUM_EXCEPTION_QUANTITY_CANNOT_BE_NEGATIVE);
+        return errorList;
     }
 
 }
@@ -2,20 +2,20 @@ package ir.ramtung.tinyme.domain.service.validation;
 
 import java.util.List;
 
+import ir.ramtung.tinyme.domain.service.EnterOrderContext;
 import ir.ramtung.tinyme.messaging.Message;
 
 public class SecurityValidator extends BaseValidator {
     @Override
-    public void validate(ValidationArg validationArg, List<String> errorList) {
-        if (validationArg.security() != null) {
-            if (validationArg.enterOrderRq().getQuantity() % validationArg.security().getLotSize() != 0)
-                errorList.add(Message.QUANTITY_NOT_MULTIPLE_OF_LOT_SIZE);
-            if (validationArg.enterOrderRq().getPrice() % validationArg.security().getTickSize() != 0)
-                errorList.add(Message.PRICE_NOT_MULTIPLE_OF_TICK_SIZE);
+    public List<String> validate(EnterOrderContext context, List<String> errorList) {
+        if (context.security() != null) {
+            if (context.enterOrderRq().getQuantity() % context.security().getLotSize() != 0)
+                errorList = addError(errorList, Message.QUANTITY_NOT_MULTIPLE_OF_LOT_SIZE);
+            if (context.enterOrderRq().getPrice() % context.security().getTickSize() != 0)
+                errorList = addError(errorList, Message.PRICE_NOT_MULTIPLE_OF_TICK_SIZE);
         } else
-            errorList.add(Message.UNKNOWN_SECURITY_ISIN);
-        if (next != null)
-            next.validate(validationArg, errorList);
+            errorList = addError(errorList, Message.UNKNOWN_SECURITY_ISIN);
+        return errorList;
     }
 
 }
@@ -2,23 +2,22 @@ package ir.ramtung.tinyme.domain.service.validation;
 
 import java.util.List;
 
+import ir.ramtung.tinyme.domain.service.EnterOrderContext;
 import ir.ramtung.tinyme.messaging.Message;
 
 public class StopLimitValidator extends BaseValidator {
     @Override
-    public void validate(ValidationArg validationArg, List<String> errorList) {
-        if(validationArg.enterOrderRq().getStopLimit() != 0) {
-            if (validationArg.enterOrderRq().getPeakSize() != 0)
-                errorList.add(Message.STOP_LIMIT_ORDER_IS_ICEBERG);
-            if (validationArg.enterOrderRq().getMinimumExecutionQuantity() > 0)
-                errorList.add(Message.STOP_LIMIT_ORDER_HAS_MINIMUM_EXECUTION_QUANTITY);
+    public List<String> validate(EnterOrderContext context, List<String> errorList) {
+        if(context.enterOrderRq().getStopLimit() != 0) {
+            if (context.enterOrderRq().getPeakSize() != 0)
+                errorList = addError(errorList, Message.STOP_LIMIT_ORDER_IS_ICEBERG);
+            if (context.enterOrderRq().getMinimumExecutionQuantity() > 0)
+                errorList = addError(errorList, Message.STOP_LIMIT_ORDER_HAS_MINIMUM_EXECUTION_QUANTITY);
         }
 
-        if (validationArg.enterOrderRq().getStopLimit() < 0)
-            errorList.add(Message.INVALID_STOP_LIMIT);
-
-        if(next != null)
-            next.validate(validationArg, errorList);
+        if (context.enterOrderRq().getStopLimit() < 0)
+            errorList = addError(errorList, Message.INVALID_STOP_LIMIT);
+        return errorList;
     }
 
 }
@@ -1,47 +1,60 @@
 package ir.ramtung.tinyme.domain.service.validation;
 
-import java.util.LinkedList;
 import java.util.List;
 
 import org.springframework.stereotype.Service;
 
-import ir.ramtung.tinyme.domain.entity.Broker;
-import ir.ramtung.tinyme.domain.entity.Security;
-import ir.ramtung.tinyme.domain.entity.Shareholder;
+import ir.ramtung.tinyme.domain.service.EnterOrderContext;
 import ir.ramtung.tinyme.messaging.exception.InvalidRequestException;
-import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
 
+/**
+ * Runs every rule over the request in one pass, each from its own call site so the JIT can
+ * inline them all; the error list is only created once a rule fails, so accepting an order
+ * allocates nothing. The update rule needs the order to exist, so it comes last and only
+ * looks when nothing else failed.
+ * <p>
+ * The rules before the auction rule only read the request and reference data, so they can run
+ * ahead of the matching shard through {@link #validateStateless}; a prevalidated context then
+ * skips them here.
+ */
 @Service
 public class Validation {
-    private final BaseValidator validatorHead;
-
-    public Validation() {
-        BaseValidator orderAttributesValidator = new OrderAttributesValidator();
-        BaseValidator securityValidator = new SecurityValidator();
-        BaseValidator brokerValidator = new BrokerValidator();
-        BaseValidator shareholderValidator = new ShareholderValidator();
-        BaseValidator icebergValidator = new IceBergValidator();
-        BaseValidator stopLimitValidator = new StopLimitValidator();
-        BaseValidator auctionValidator = new AuctionValidator();
-        BaseValidator minimumExceptionValidator = new MinimumExceptionQuantityValidator();
-        BaseValidator updateValidator = new UpdateValidator();
-        orderAttributesValidator.setNext(securityValidator);
-        securityValidator.setNext(brokerValidator);
-        brokerValidator.setNext(shareholderValidator);
-        shareholderValidator.setNext(icebergValidator);
-        icebergValidator.setNext(stopLimitValidator);
-        stopLimitValidator.setNext(auctionValidator);
-        auctionValidator.setNext(updateValidator);
-        validatorHead = orderAttributesValidator;
+    private final OrderAttributesValidator orderAttributesValidator = new OrderAttributesValidator();
+    private final SecurityValidator securityValidator = new SecurityValidator();
+    private final BrokerValidator brokerValidator = new BrokerValidator();
+    private final ShareholderValidator shareholderValidator = new ShareholderValidator();
+    private final IceBergValidator icebergValidator = new IceBergValidator();
+    private final StopLimitValidator stopLimitValidator = new StopLimitValidator();
+    private final AuctionValidator auctionValidator = new AuctionValidator();
+    private final UpdateValidator updateValidator = new UpdateValidator();
+
+    public void validate(EnterOrderContext context) throws InvalidRequestException {
+        List<String> errorList = context.prevalidated() ? null : validateStateless(context, null);
+        errorList = auctionValidator.validate(context, errorList);
+        errorList = updateValidator.validate(context, errorList);
+        if (errorList != null)
+            throw new InvalidRequestException(errorList);
     }
 
-    public void validate(EnterOrderRq enterOrderRq, Security security, Broker broker, Shareholder shareholder)
-            throws InvalidRequestException {
-                List<String> errorList = new LinkedList<>();
-                ValidationArg validationArg  = new ValidationArg(enterOrderRq, shareholder, broker, security);
-                validatorHead.validate(validationArg, errorList);
-                if (!errorList.isEmpty())
-                    throw new InvalidRequestException(errorList);
-        }
+    public List<String> validateStateless(EnterOrderContext context) {
+        List<String> errorList = validateStateless(context, null);
+        return errorList == null ? List.of() : errorList;
+    }
 
+    /**
+     * Whether the security's current state could add reasons to a stateless rejection, in which
+     * case the request has to reach its shard to be rejected with the complete list.
+     */
+    public boolean dependsOnState(EnterOrderContext context) {
+        return auctionValidator.mayApply(context);
+    }
+
+    private List<String> validateStateless(EnterOrderContext context, List<String> errorList) {
+        errorList = orderAttributesValidator.validate(context, errorList);
+        errorList = securityValidator.validate(context, errorList);
+        errorList = brokerValidator.validate(context, errorList);
+        errorList = shareholderValidator.validate(context, errorList);
+        errorList = icebergValidator.validate(context, errorList);
+        return stopLimitValidator.validate(context, errorList);
+    }
 }
@@ -0,0 +1,5 @@
+package ir.ramtung.tinyme.journal;
+
+public record JournalPosition(int segment, int offset) {
+    public static final JournalPosition START = new JournalPosition(0, 0);
+}
@@ -0,0 +1,75 @@
+package ir.ramtung.tinyme.journal;
+
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.exception.InvalidRequestException;
+import ir.ramtung.tinyme.messaging.request.ChangeMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MassCancelRq;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import java.util.logging.Logger;
+
+/**
+ * Rebuilds the state at startup by replaying the journal after the latest snapshot. The journal
+ * records requests in intake order, but with several matching shards the securities of one broker
+ * draw on its credit in whatever order their shards happen to run, which replay cannot reproduce.
+ * Journaling is therefore refused unless matching runs on a single shard.
+ */
+@Component
+@DependsOn("persistenceLoader")
+public class JournalReplayer {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final RequestJournal requestJournal;
+    private final OrderHandler orderHandler;
+    private final EventPublisher eventPublisher;
+    private final SnapshotStore snapshotStore;
+
+    public JournalReplayer(RequestJournal requestJournal, OrderHandler orderHandler, EventPublisher eventPublisher,
+                           SnapshotStore snapshotStore, @Value("${matchingShards:1}") int matchingShards) {
+        if (requestJournal.isEnabled() && matchingShards > 1)
+            throw new IllegalArgumentException("journalDirectory requires matchingShards=1, not " + matchingShards);
+        this.requestJournal = requestJournal;
+        this.snapshotStore = snapshotStore;
+        this.orderHandler = orderHandler;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostConstruct
+    public void recover() {
+        if (!requestJournal.isEnabled())
+            return;
+        long start = System.nanoTime();
+        JournalPosition from = snapshotStore.restoreLatest().orElse(JournalPosition.START);
+        eventPublisher.mute();
+        int replayed;
+        try {
+            replayed = requestJournal.replay(from, this::handle);
+        } finally {
+            eventPublisher.unmute();
+        }
+        requestJournal.start();
+        log.info("Replayed " + replayed + " journaled requests from " + from + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    private void handle(Object request) {
+        if (request instanceof EnterOrderRq enterOrderRq)
+            orderHandler.handleEnterOrder(enterOrderRq);
+        else if (request instanceof DeleteOrderRq deleteOrderRq)
+            orderHandler.handleDeleteOrder(deleteOrderRq);
+        else if (request instanceof MassCancelRq massCancelRq)
+            orderHandler.handleMassCancelRq(massCancelRq);
+        else if (request instanceof ChangeMatchingStateRq changeMatchingStateRq) {
+            try {
+                orderHandler.handleChangeMatchingStateRq(changeMatchingStateRq);
+            } catch (InvalidRequestException e) {
+                log.warning("Journaled state change was rejected again: " + e.getReasons());
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package ir.ramtung.tinyme.journal;
+
+/**
+ * When journaled requests are forced to disk. The request's JMS message is acknowledged as soon
+ * as it is journaled, so only EVERY_REQUEST guarantees that an acknowledged request survives a
+ * crash. GROUP forces a batch of requests at once, and can lose up to
+ * {@code journalGroupCommitSize} requests or {@code journalGroupCommitMillis} of them. OS leaves
+ * writeback to the operating system. The two weaker policies trade that window for throughput.
+ */
+public enum JournalSyncPolicy {
+    EVERY_REQUEST,
+    GROUP,
+    OS
+}
@@ -0,0 +1,244 @@
+package ir.ramtung.tinyme.journal;
+
+import ir.ramtung.tinyme.messaging.codec.BinaryCodec;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+@Component
+public class RequestJournal {
+    private static final int HEADER_SIZE = 8;
+    private static final String SEGMENT_PREFIX = "requests-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final BinaryCodec codec = new BinaryCodec();
+    private final CRC32C crc = new CRC32C();
+    private final Path directory;
+    private final int segmentSize;
+    private final JournalSyncPolicy syncPolicy;
+    private final int groupCommitSize;
+    private final long groupCommitMillis;
+
+    private int segmentIndex;
+    private MappedByteBuffer segment;
+    private int unsynced;
+    private Thread flusher;
+    private volatile boolean open;
+
+    public RequestJournal(@Value("${journalDirectory:}") String directory,
+                          @Value("${journalSegmentSize:67108864}") int segmentSize,
+                          @Value("${journalSyncPolicy:EVERY_REQUEST}") JournalSyncPolicy syncPolicy,
+                          @Value("${journalGroupCommitSize:256}") int groupCommitSize,
+                          @Value("${journalGroupCommitMillis:2}") long groupCommitMillis) {
+        this.directory = directory.isBlank() ? null : Path.of(directory);
+        this.segmentSize = segmentSize;
+        this.syncPolicy = syncPolicy;
+        this.groupCommitSize = groupCommitSize;
+        this.groupCommitMillis = groupCommitMillis;
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    public int replay(Consumer<Object> consumer) {
+        return replay(JournalPosition.START, consumer);
+    }
+
+    public synchronized int replay(JournalPosition from, Consumer<Object> consumer) {
+        if (!isEnabled())
+            return 0;
+        try {
+            Files.createDirectories(directory);
+            int replayed = 0;
+            closeSegment();
+            segmentIndex = from.segment();
+            for (Path path : segments()) {
+                int index = indexOf(path);
+                if (index < from.segment())
+                    continue;
+                segmentIndex = index;
+                segment = map(path);
+                if (index == from.segment())
+                    segment.position(from.offset());
+                replayed += replaySegment(consumer);
+            }
+            if (segment == null) {
+                segment = map(segmentPath(segmentIndex));
+                segment.position(from.offset());
+            }
+            return replayed;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int replaySegment(Consumer<Object> consumer) {
+        int replayed = 0;
+        while (segment.remaining() >= HEADER_SIZE) {
+            int start = segment.position();
+            int length = segment.getInt();
+            int checksum = segment.getInt();
+            if (length <= 0 || length > segment.remaining()) {
+                segment.position(start);
+                break;
+            }
+            byte[] bytes = new byte[length];
+            segment.get(bytes);
+            if (checksum != checksum(bytes)) {
+                log.warning("Journal segment " + segmentIndex + " has a torn record at " + start
+                        + "; replay stops there");
+                segment.position(start);
+                break;
+            }
+            consumer.accept(codec.decode(bytes));
+            replayed++;
+        }
+        return replayed;
+    }
+
+    public synchronized void start() {
+        if (!isEnabled() || open)
+            return;
+        if (segment == null)
+            replay(request -> { });
+        open = true;
+        if (syncPolicy == JournalSyncPolicy.GROUP) {
+            flusher = new Thread(this::flushPeriodically, "journal-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+    }
+
+    public void append(Object request) {
+        if (!open)
+            return;
+        byte[] bytes = codec.encode(request);
+        synchronized (this) {
+            if (segment.remaining() < HEADER_SIZE + bytes.length)
+                roll(bytes.length);
+            segment.putInt(bytes.length);
+            segment.putInt(checksum(bytes));
+            segment.put(bytes);
+            unsynced++;
+            if (syncPolicy == JournalSyncPolicy.EVERY_REQUEST
+                    || (syncPolicy == JournalSyncPolicy.GROUP && unsynced >= groupCommitSize))
+                sync();
+        }
+    }
+
+    public synchronized void sync() {
+        if (segment != null && unsynced > 0) {
+            segment.force();
+            unsynced = 0;
+        }
+    }
+
+    public synchronized JournalPosition position() {
+        if (segment == null)
+            return JournalPosition.START;
+        return new JournalPosition(segmentIndex, segment.position());
+    }
+
+    public synchronized int discardBefore(int segment) {
+        if (!isEnabled())
+            return 0;
+        int discarded = 0;
+        try {
+            for (Path path : segments()) {
+                int index = indexOf(path);
+                if (index < segment && index < segmentIndex && Files.deleteIfExists(path))
+                    discarded++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return discarded;
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        open = false;
+        if (flusher != null)
+            flusher.join();
+        synchronized (this) {
+            sync();
+            closeSegment();
+        }
+    }
+
+    private void flushPeriodically() {
+        while (open) {
+            try {
+                Thread.sleep(groupCommitMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            sync();
+        }
+    }
+
+    private void roll(int recordSize) {
+        if (HEADER_SIZE + recordSize > segmentSize)
+            throw new IllegalArgumentException("Request of " + recordSize + " bytes does not fit a journal segment");
+        segment.force();
+        unsynced = 0;
+        closeSegment();
+        segmentIndex++;
+        try {
+            segment = map(segmentPath(segmentIndex));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void closeSegment() {
+        segment = null;
+    }
+
+    private int checksum(byte[] bytes) {
+        crc.reset();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(int index) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    private static int indexOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
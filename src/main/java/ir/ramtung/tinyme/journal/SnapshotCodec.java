@@ -0,0 +1,367 @@
+package ir.ramtung.tinyme.journal;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.journal.SnapshotVisitor.OrderImage;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+public class SnapshotCodec {
+    static final int MAGIC = 0x544d534e;
+    static final byte VERSION = 3;
+
+    private static final byte PLAIN = 0;
+    private static final byte ICEBERG = 1;
+    private static final byte STOP_LIMIT = 2;
+    private static final OrderStatus[] ORDER_STATUSES = OrderStatus.values();
+    private static final MatchingState[] MATCHING_STATES = MatchingState.values();
+
+    public byte[] encode(JournalPosition position, BrokerRepository brokerRepository,
+                         ShareholderRepository shareholderRepository, SecurityRepository securityRepository) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(position.segment());
+            out.writeInt(position.offset());
+            writeBrokers(out, list(brokerRepository.allBrokers()));
+            List<Shareholder> shareholders = list(shareholderRepository.allShareholders());
+            writeShareholders(out, shareholders);
+            writeSecurities(out, list(securityRepository.allSecurities()));
+            writePositions(out, shareholders);
+            out.writeInt(checksum(bytes.toByteArray(), bytes.size()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public JournalPosition decode(byte[] bytes, BrokerRepository brokerRepository,
+                                  ShareholderRepository shareholderRepository, SecurityRepository securityRepository) {
+        EntityBuilder builder = new EntityBuilder();
+        JournalPosition position = read(bytes, builder);
+        brokerRepository.clear();
+        builder.brokers.values().forEach(brokerRepository::addBroker);
+        shareholderRepository.clear();
+        builder.shareholders.values().forEach(shareholderRepository::addShareholder);
+        securityRepository.clear();
+        builder.securities.values().forEach(securityRepository::addSecurity);
+        return position;
+    }
+
+    /**
+     * Reports the live entities to the visitor in the order {@link #read} reports an image, without
+     * encoding them first. The caller keeps the entities still until this returns.
+     */
+    public void visit(BrokerRepository brokerRepository, ShareholderRepository shareholderRepository,
+                      SecurityRepository securityRepository, SnapshotVisitor visitor) {
+        for (Broker broker : brokerRepository.allBrokers())
+            visitor.broker(broker.getBrokerId(), broker.getName(), broker.getCredit());
+        for (Shareholder shareholder : shareholderRepository.allShareholders())
+            visitor.shareholder(shareholder.getShareholderId(), shareholder.getName());
+        for (Security security : securityRepository.allSecurities()) {
+            visitor.security(security.getIsin(), security.getTickSize(), security.getLotSize(),
+                    security.getLastTradePrice(), security.getPendingHighTradePrice(),
+                    security.getPendingLowTradePrice(), security.getState());
+            visitOrders(security.getOrderBook().getBuyQueue(), false, Side.BUY, visitor);
+            visitOrders(security.getOrderBook().getSellQueue(), false, Side.SELL, visitor);
+            visitOrders(security.getOrderCancellationQueue().getDeactivatedBuyOrders(), true, Side.BUY, visitor);
+            visitOrders(security.getOrderCancellationQueue().getDeactivatedSellOrders(), true, Side.SELL, visitor);
+            TradeTape tape = security.getTradeTape();
+            for (int i = 0; i < tape.size(); i++)
+                visitor.trade(tape.price(i), tape.quantity(i), tape.buyOrderId(i), tape.sellOrderId(i),
+                        tape.buyBrokerId(i), tape.sellBrokerId(i));
+        }
+        for (Shareholder shareholder : shareholderRepository.allShareholders())
+            for (Map.Entry<Security, Integer> position : shareholder.getPositions().entrySet())
+                visitor.position(shareholder.getShareholderId(), position.getKey().getIsin(), position.getValue());
+    }
+
+    private void visitOrders(Collection<? extends Order> orders, boolean deactivated, Side side,
+                             SnapshotVisitor visitor) {
+        for (Order order : orders) {
+            int peakSize = 0;
+            int displayedQuantity = 0;
+            int stopLimit = 0;
+            if (order instanceof IcebergOrder icebergOrder) {
+                peakSize = icebergOrder.getPeakSize();
+                displayedQuantity = icebergOrder.getDisplayedQuantity();
+            } else if (order instanceof StopLimitOrder stopLimitOrder)
+                stopLimit = stopLimitOrder.getStopLimit();
+            visitor.order(new OrderImage(deactivated, side, order.getOrderId(), order.getTotalQuantity(),
+                    order.getPrice(), order.getBroker().getBrokerId(), order.getShareholder().getShareholderId(),
+                    order.getEntryTime(), order.getStatus(), order.getMinimumExecutionQuantity(), peakSize,
+                    displayedQuantity, order instanceof StopLimitOrder, stopLimit));
+        }
+    }
+
+    public JournalPosition read(byte[] bytes, SnapshotVisitor visitor) {
+        if (bytes.length < 17 || ByteBuffer.wrap(bytes, bytes.length - 4, 4).getInt() != checksum(bytes, bytes.length - 4))
+            throw new IllegalArgumentException("Snapshot checksum mismatch");
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 4))) {
+            if (in.readInt() != MAGIC)
+                throw new IllegalArgumentException("Not a snapshot");
+            byte version = in.readByte();
+            if (version != VERSION)
+                throw new IllegalArgumentException("Unsupported snapshot version " + version);
+            JournalPosition position = new JournalPosition(in.readInt(), in.readInt());
+            readBrokers(in, visitor);
+            readShareholders(in, visitor);
+            readSecurities(in, visitor);
+            readPositions(in, visitor);
+            return position;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeBrokers(DataOutputStream out, List<Broker> brokers) throws IOException {
+        out.writeInt(brokers.size());
+        for (Broker broker : brokers) {
+            out.writeLong(broker.getBrokerId());
+            writeString(out, broker.getName());
+            out.writeLong(broker.getCredit());
+        }
+    }
+
+    private void readBrokers(DataInputStream in, SnapshotVisitor visitor) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++)
+            visitor.broker(in.readLong(), readString(in), in.readLong());
+    }
+
+    private void writeShareholders(DataOutputStream out, List<Shareholder> shareholders) throws IOException {
+        out.writeInt(shareholders.size());
+        for (Shareholder shareholder : shareholders) {
+            out.writeLong(shareholder.getShareholderId());
+            writeString(out, shareholder.getName());
+        }
+    }
+
+    private void readShareholders(DataInputStream in, SnapshotVisitor visitor) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++)
+            visitor.shareholder(in.readLong(), readString(in));
+    }
+
+    private void writeSecurities(DataOutputStream out, List<Security> securities) throws IOException {
+        out.writeInt(securities.size());
+        for (Security security : securities) {
+            out.writeUTF(security.getIsin());
+            out.writeInt(security.getTickSize());
+            out.writeInt(security.getLotSize());
+            out.writeInt(security.getLastTradePrice());
+            out.writeInt(security.getPendingHighTradePrice());
+            out.writeInt(security.getPendingLowTradePrice());
+            out.writeByte(security.getState().ordinal());
+            writeOrders(out, security.getOrderBook().getBuyQueue());
+            writeOrders(out, security.getOrderBook().getSellQueue());
+            writeOrders(out, security.getOrderCancellationQueue().getDeactivatedBuyOrders());
+            writeOrders(out, security.getOrderCancellationQueue().getDeactivatedSellOrders());
+            writeTrades(out, security.getTradeTape());
+        }
+    }
+
+    private void readSecurities(DataInputStream in, SnapshotVisitor visitor) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            visitor.security(in.readUTF(), in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(),
+                    MATCHING_STATES[in.readByte()]);
+            readOrders(in, false, Side.BUY, visitor);
+            readOrders(in, false, Side.SELL, visitor);
+            readOrders(in, true, Side.BUY, visitor);
+            readOrders(in, true, Side.SELL, visitor);
+            readTrades(in, visitor);
+        }
+    }
+
+    private void writeOrders(DataOutputStream out, Collection<? extends Order> orders) throws IOException {
+        out.writeInt(orders.size());
+        for (Order order : orders) {
+            byte kind = order instanceof IcebergOrder ? ICEBERG : order instanceof StopLimitOrder ? STOP_LIMIT : PLAIN;
+            out.writeByte(kind);
+            out.writeLong(order.getOrderId());
+            out.writeInt(order.getTotalQuantity());
+            out.writeInt(order.getPrice());
+            out.writeLong(order.getBroker().getBrokerId());
+            out.writeLong(order.getShareholder().getShareholderId());
+            out.writeLong(order.getEntryTime().toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(order.getEntryTime().getNano());
+            out.writeByte(order.getStatus().ordinal());
+            out.writeInt(order.getMinimumExecutionQuantity());
+            if (order instanceof IcebergOrder icebergOrder) {
+                out.writeInt(icebergOrder.getPeakSize());
+                out.writeInt(icebergOrder.getDisplayedQuantity());
+            } else if (order instanceof StopLimitOrder stopLimitOrder)
+                out.writeInt(stopLimitOrder.getStopLimit());
+        }
+    }
+
+    private void readOrders(DataInputStream in, boolean deactivated, Side side, SnapshotVisitor visitor)
+            throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            byte kind = in.readByte();
+            long orderId = in.readLong();
+            int quantity = in.readInt();
+            int price = in.readInt();
+            long brokerId = in.readLong();
+            long shareholderId = in.readLong();
+            LocalDateTime entryTime = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+            OrderStatus status = ORDER_STATUSES[in.readByte()];
+            int minimumExecutionQuantity = in.readInt();
+            int peakSize = 0;
+            int displayedQuantity = 0;
+            int stopLimit = 0;
+            if (kind == ICEBERG) {
+                peakSize = in.readInt();
+                displayedQuantity = in.readInt();
+            } else if (kind == STOP_LIMIT)
+                stopLimit = in.readInt();
+            visitor.order(new OrderImage(deactivated, side, orderId, quantity, price, brokerId, shareholderId,
+                    entryTime, status, minimumExecutionQuantity, peakSize, displayedQuantity, kind == STOP_LIMIT,
+                    stopLimit));
+        }
+    }
+
+    private void writeTrades(DataOutputStream out, TradeTape tape) throws IOException {
+        int size = tape.size();
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeInt(tape.price(i));
+            out.writeInt(tape.quantity(i));
+            out.writeLong(tape.buyOrderId(i));
+            out.writeLong(tape.sellOrderId(i));
+            out.writeLong(tape.buyBrokerId(i));
+            out.writeLong(tape.sellBrokerId(i));
+        }
+    }
+
+    private void readTrades(DataInputStream in, SnapshotVisitor visitor) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++)
+            visitor.trade(in.readInt(), in.readInt(), in.readLong(), in.readLong(), in.readLong(), in.readLong());
+    }
+
+    private void writePositions(DataOutputStream out, List<Shareholder> shareholders) throws IOException {
+        out.writeInt(shareholders.size());
+        for (Shareholder shareholder : shareholders) {
+            Map<Security, Integer> positions = shareholder.getPositions();
+            out.writeLong(shareholder.getShareholderId());
+            out.writeInt(positions.size());
+            for (Map.Entry<Security, Integer> position : positions.entrySet()) {
+                out.writeUTF(position.getKey().getIsin());
+                out.writeInt(position.getValue());
+            }
+        }
+    }
+
+    private void readPositions(DataInputStream in, SnapshotVisitor visitor) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            long shareholderId = in.readLong();
+            int positions = in.readInt();
+            for (int j = 0; j < positions; j++)
+                visitor.position(shareholderId, in.readUTF(), in.readInt());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null)
+            out.writeUTF(value);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static <T> List<T> list(Iterable<? extends T> items) {
+        List<T> list = new ArrayList<>();
+        items.forEach(list::add);
+        return list;
+    }
+
+    private static int checksum(byte[] bytes, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, length);
+        return (int) crc.getValue();
+    }
+
+    private static class EntityBuilder implements SnapshotVisitor {
+        private final Map<Long, Broker> brokers = new HashMap<>();
+        private final Map<Long, Shareholder> shareholders = new HashMap<>();
+        private final Map<String, Security> securities = new HashMap<>();
+        private Security security;
+
+        @Override
+        public void broker(long brokerId, String name, long credit) {
+            brokers.put(brokerId, Broker.builder().brokerId(brokerId).name(name).credit(credit).build());
+        }
+
+        @Override
+        public void shareholder(long shareholderId, String name) {
+            shareholders.put(shareholderId, Shareholder.builder().shareholderId(shareholderId).name(name).build());
+        }
+
+        @Override
+        public void security(String isin, int tickSize, int lotSize, int lastTradePrice, int pendingHighTradePrice,
+                             int pendingLowTradePrice, MatchingState state) {
+            security = Security.builder().isin(isin).tickSize(tickSize).lotSize(lotSize)
+                    .lastTradePrice(lastTradePrice).pendingHighTradePrice(pendingHighTradePrice)
+                    .pendingLowTradePrice(pendingLowTradePrice).state(state).build();
+            securities.put(isin, security);
+        }
+
+        @Override
+        public void order(OrderImage image) {
+            Broker broker = brokers.get(image.brokerId());
+            Shareholder shareholder = shareholders.get(image.shareholderId());
+            Order order;
+            if (image.isIceberg())
+                order = new IcebergOrder(image.orderId(), security, image.side(), image.quantity(), image.price(),
+                        broker, shareholder, image.entryTime(), image.peakSize(), image.displayedQuantity(),
+                        image.status(), image.minimumExecutionQuantity());
+            else if (image.stopLimitOrder())
+                order = new StopLimitOrder(image.orderId(), security, image.side(), image.quantity(), image.price(),
+                        broker, shareholder, image.entryTime(), image.status(), image.stopLimit());
+            else
+                order = new Order(image.orderId(), security, image.side(), image.quantity(), image.price(), broker,
+                        shareholder, image.entryTime(), image.status(), image.minimumExecutionQuantity());
+            if (!image.deactivated())
+                security.getOrderBook().restore(order);
+            else if (image.side() == Side.BUY)
+                security.getOrderCancellationQueue().addToDeactivatedBuy((StopLimitOrder) order);
+            else
+                security.getOrderCancellationQueue().addToDeactivatedSell((StopLimitOrder) order);
+        }
+
+        @Override
+        public void trade(int price, int quantity, long buyOrderId, long sellOrderId, long buyBrokerId,
+                          long sellBrokerId) {
+            security.getTradeTape().record(price, quantity, buyOrderId, sellOrderId, buyBrokerId, sellBrokerId);
+        }
+
+        @Override
+        public void position(long shareholderId, String isin, int quantity) {
+            shareholders.get(shareholderId).incPosition(securities.get(isin), quantity);
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package ir.ramtung.tinyme.journal;
+
+public record SnapshotImage(JournalPosition position, byte[] bytes) {
+}
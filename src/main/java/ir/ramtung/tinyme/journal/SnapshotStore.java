@@ -0,0 +1,126 @@
+package ir.ramtung.tinyme.journal;
+
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+@Component
+public class SnapshotStore {
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final SnapshotCodec codec = new SnapshotCodec();
+    private final Path directory;
+    private final int retention;
+    private final BrokerRepository brokerRepository;
+    private final ShareholderRepository shareholderRepository;
+    private final SecurityRepository securityRepository;
+
+    public SnapshotStore(@Value("${journalDirectory:}") String directory,
+                         @Value("${snapshotRetention:2}") int retention,
+                         BrokerRepository brokerRepository,
+                         ShareholderRepository shareholderRepository,
+                         SecurityRepository securityRepository) {
+        this.directory = directory.isBlank() ? null : Path.of(directory);
+        this.retention = Math.max(1, retention);
+        this.brokerRepository = brokerRepository;
+        this.shareholderRepository = shareholderRepository;
+        this.securityRepository = securityRepository;
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    public byte[] capture(JournalPosition position) {
+        return codec.encode(position, brokerRepository, shareholderRepository, securityRepository);
+    }
+
+    public void visit(SnapshotVisitor visitor) {
+        codec.visit(brokerRepository, shareholderRepository, securityRepository, visitor);
+    }
+
+    public void write(JournalPosition position, byte[] snapshot) {
+        Path target = snapshotPath(position);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(snapshot);
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+                channel.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Optional<JournalPosition> restoreLatest() {
+        if (!isEnabled() || !Files.isDirectory(directory))
+            return Optional.empty();
+        for (Path path : snapshotsNewestFirst()) {
+            try {
+                return Optional.of(codec.decode(Files.readAllBytes(path), brokerRepository, shareholderRepository,
+                        securityRepository));
+            } catch (IOException | RuntimeException e) {
+                log.warning("Skipping unreadable snapshot " + path.getFileName() + ": " + e.getMessage());
+            }
+        }
+        return Optional.empty();
+    }
+
+    public Optional<JournalPosition> prune() {
+        List<Path> snapshots = snapshotsNewestFirst();
+        try {
+            for (Path path : snapshots.subList(Math.min(retention, snapshots.size()), snapshots.size()))
+                Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (snapshots.isEmpty())
+            return Optional.empty();
+        return Optional.of(positionOf(snapshots.get(Math.min(retention, snapshots.size()) - 1)));
+    }
+
+    private List<Path> snapshotsNewestFirst() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(SNAPSHOT_PREFIX))
+                    .filter(path -> path.getFileName().toString().endsWith(SNAPSHOT_SUFFIX))
+                    .sorted(Comparator.reverseOrder())
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path snapshotPath(JournalPosition position) {
+        return directory.resolve(String.format("%s%08d-%010d%s", SNAPSHOT_PREFIX, position.segment(),
+                position.offset(), SNAPSHOT_SUFFIX));
+    }
+
+    private static JournalPosition positionOf(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        String[] parts = name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()).split("-");
+        return new JournalPosition(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+    }
+}
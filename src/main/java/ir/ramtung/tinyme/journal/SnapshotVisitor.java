@@ -0,0 +1,34 @@
+package ir.ramtung.tinyme.journal;
+
+import ir.ramtung.tinyme.domain.entity.OrderStatus;
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+
+import java.time.LocalDateTime;
+
+/**
+ * Receives the contents of a snapshot image in order: brokers, shareholders, then each security
+ * followed by its book orders, deactivated stop-limit orders and trades, and finally positions.
+ */
+public interface SnapshotVisitor {
+    void broker(long brokerId, String name, long credit);
+
+    void shareholder(long shareholderId, String name);
+
+    void security(String isin, int tickSize, int lotSize, int lastTradePrice, int pendingHighTradePrice,
+                  int pendingLowTradePrice, MatchingState state);
+
+    void order(OrderImage order);
+
+    void trade(int price, int quantity, long buyOrderId, long sellOrderId, long buyBrokerId, long sellBrokerId);
+
+    void position(long shareholderId, String isin, int quantity);
+
+    record OrderImage(boolean deactivated, Side side, long orderId, int quantity, int price, long brokerId,
+                      long shareholderId, LocalDateTime entryTime, OrderStatus status, int minimumExecutionQuantity,
+                      int peakSize, int displayedQuantity, boolean stopLimitOrder, int stopLimit) {
+        public boolean isIceberg() {
+            return peakSize > 0;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package ir.ramtung.tinyme.journal;
+
+import ir.ramtung.tinyme.messaging.RequestDispatcher;
+import ir.ramtung.tinyme.messaging.SecurityShards;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@Component
+public class Snapshotter {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final RequestDispatcher requestDispatcher;
+    private final RequestJournal requestJournal;
+    private final SecurityShards securityShards;
+    private final SnapshotStore snapshotStore;
+    private final long intervalSeconds;
+    private ScheduledExecutorService scheduler;
+
+    public Snapshotter(RequestDispatcher requestDispatcher, RequestJournal requestJournal,
+                       SecurityShards securityShards, SnapshotStore snapshotStore,
+                       @Value("${snapshotIntervalSeconds:0}") long intervalSeconds) {
+        this.requestDispatcher = requestDispatcher;
+        this.requestJournal = requestJournal;
+        this.securityShards = securityShards;
+        this.snapshotStore = snapshotStore;
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (intervalSeconds <= 0 || !requestJournal.isEnabled())
+            return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::takeSnapshotQuietly, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null)
+            scheduler.shutdownNow();
+    }
+
+    public JournalPosition takeSnapshot() throws InterruptedException {
+        long start = System.nanoTime();
+        SnapshotImage image = capture();
+        long captured = System.nanoTime() - start;
+        snapshotStore.write(image.position(), image.bytes());
+        snapshotStore.prune().ifPresent(oldest -> requestJournal.discardBefore(oldest.segment()));
+        log.info("Wrote a " + image.bytes().length + " byte snapshot at " + image.position() + "; captured in "
+                + captured / 1_000 + " us");
+        return image.position();
+    }
+
+    public SnapshotImage capture() throws InterruptedException {
+        Checkpoint checkpoint = requestDispatcher.withIntakeHeld(
+                () -> new Checkpoint(requestJournal.position(), securityShards.pause()));
+        try (SecurityShards.Pause pause = checkpoint.pause()) {
+            pause.awaitParked();
+            return new SnapshotImage(checkpoint.position(), snapshotStore.capture(checkpoint.position()));
+        }
+    }
+
+    /**
+     * Walks the engine state into the visitor at a consistent cut, without building an encoded
+     * image. Matching stays paused until the visitor has seen everything.
+     */
+    public JournalPosition stream(SnapshotVisitor visitor) throws InterruptedException {
+        Checkpoint checkpoint = requestDispatcher.withIntakeHeld(
+                () -> new Checkpoint(requestJournal.position(), securityShards.pause()));
+        try (SecurityShards.Pause pause = checkpoint.pause()) {
+            pause.awaitParked();
+            snapshotStore.visit(visitor);
+            return checkpoint.position();
+        }
+    }
+
+    private void takeSnapshotQuietly() {
+        try {
+            takeSnapshot();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.log(Level.SEVERE, "Snapshot failed", e);
+        }
+    }
+
+    private record Checkpoint(JournalPosition position, SecurityShards.Pause pause) {
+    }
+}
@@ -0,0 +1,231 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.domain.service.EnterOrderContext;
+import ir.ramtung.tinyme.messaging.request.ChangeMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MassCancelRq;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@Component
+public class BatchRequestReceiver {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final RequestDispatcher requestDispatcher;
+    private final JmsTemplate jmsTemplate;
+    @Value("${requestQueue}")
+    private String requestQueue;
+    @Value("${ingressMode:LISTENER}")
+    private IngressMode ingressMode = IngressMode.LISTENER;
+    @Value("${ingressBatchSize:256}")
+    private int ingressBatchSize = 256;
+    @Value("${ingressMaxLatencyMillis:5}")
+    private long ingressMaxLatencyMillis = 5;
+    @Value("${ingressDecodeThreads:0}")
+    private int ingressDecodeThreads = 0;
+
+    private ExecutorService decoders;
+    private final Set<String> handledBeforeRollback = new HashSet<>();
+    private Thread receiver;
+    private volatile boolean running;
+
+    public BatchRequestReceiver(RequestDispatcher requestDispatcher, JmsTemplate jmsTemplate) {
+        this.requestDispatcher = requestDispatcher;
+        this.jmsTemplate = jmsTemplate;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (ingressMode != IngressMode.BATCH)
+            return;
+        startDecoders();
+        running = true;
+        receiver = new Thread(this::receive, "batch-request-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (receiver != null) {
+            running = false;
+            receiver.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        if (decoders != null)
+            decoders.shutdownNow();
+    }
+
+    void startDecoders() {
+        if (ingressDecodeThreads <= 0)
+            return;
+        AtomicInteger created = new AtomicInteger();
+        decoders = Executors.newFixedThreadPool(ingressDecodeThreads, runnable -> {
+            Thread thread = new Thread(runnable, "request-decoder-" + created.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private void receive() {
+        while (running) {
+            try (Connection connection = connectionFactory().createConnection();
+                 Session session = connection.createSession(true, Session.SESSION_TRANSACTED);
+                 MessageConsumer consumer = session.createConsumer(session.createQueue(requestQueue))) {
+                connection.start();
+                while (running)
+                    receiveBatch(session, consumer);
+            } catch (JMSException | RuntimeException e) {
+                log.log(Level.SEVERE, "Batch request receiver failed, reconnecting", e);
+                sleepBeforeReconnect();
+            }
+        }
+    }
+
+    /**
+     * Receives up to a batch of requests in one transaction. The whole batch is decoded and
+     * prevalidated before anything is dispatched, so a bad message cannot leave part of it matched.
+     * If dispatching fails part way, the transaction is still rolled back, but the ids of the
+     * messages already acted on are remembered and their redelivered copies are only acknowledged.
+     */
+    public int receiveBatch(Session session, MessageConsumer consumer) throws JMSException {
+        jakarta.jms.Message message = consumer.receive(ingressMaxLatencyMillis);
+        if (message == null)
+            return 0;
+        MessageConverter converter = jmsTemplate.getMessageConverter();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ingressMaxLatencyMillis);
+        ArrayList<String> messageIds = new ArrayList<>();
+        ArrayList<Object> decoding = new ArrayList<>();
+        ArrayList<String> skipped = new ArrayList<>();
+        ArrayList<String> handled = new ArrayList<>();
+        int count = 0;
+        try {
+            do {
+                String messageId = message.getJMSMessageID();
+                if (message.getJMSRedelivered() && messageId != null && handledBeforeRollback.contains(messageId))
+                    skipped.add(messageId);
+                else {
+                    messageIds.add(messageId);
+                    if (decoders == null)
+                        decoding.add(decode(converter, message));
+                    else {
+                        jakarta.jms.Message received = message;
+                        decoding.add(decoders.submit(() -> decode(converter, received)));
+                    }
+                }
+                count++;
+                if (count == ingressBatchSize)
+                    break;
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0)
+                    break;
+                message = consumer.receive(remaining);
+            } while (message != null);
+            for (int i = 0; i < decoding.size(); i++) {
+                Object decoded = decoders == null ? decoding.get(i) : awaitDecoded((Future<?>) decoding.get(i));
+                if (decoded instanceof EnterOrderContext context)
+                    requestDispatcher.dispatchEnterOrder(context);
+                else if (decoded != null)
+                    dispatch(decoded);
+                handled.add(messageIds.get(i));
+            }
+            session.commit();
+        } catch (JMSException | RuntimeException e) {
+            for (int i = handled.size(); i < decoding.size(); i++)
+                if (rejectedWhileDecoding(decoding.get(i)))
+                    handled.add(messageIds.get(i));
+            handled.stream().filter(Objects::nonNull).forEach(handledBeforeRollback::add);
+            session.rollback();
+            throw e;
+        }
+        skipped.forEach(handledBeforeRollback::remove);
+        int received = count;
+        log.fine(() -> "Received a batch of " + received + " requests");
+        return received;
+    }
+
+    /**
+     * Runs on a decoder thread: converts the message and puts an enter order request through the
+     * stateless checks, so only requests that may still be accepted reach the dispatcher.
+     */
+    private Object decode(MessageConverter converter, jakarta.jms.Message message) throws JMSException {
+        Object request = converter.fromMessage(message);
+        if (request instanceof EnterOrderRq enterOrderRq)
+            return requestDispatcher.prevalidate(enterOrderRq);
+        return request;
+    }
+
+    private static Object awaitDecoded(Future<?> future) throws JMSException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while decoding a request batch", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof JMSException jmsException)
+                throw jmsException;
+            if (e.getCause() instanceof RuntimeException runtimeException)
+                throw runtimeException;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Whether decoding a message of a failed batch already answered it with a rejection; decoder
+     * threads are waited for, so a rejection cannot be published again after the rollback.
+     */
+    private boolean rejectedWhileDecoding(Object decoding) {
+        if (!(decoding instanceof Future<?> future))
+            return decoding == null;
+        try {
+            return awaitDecoded(future) == null;
+        } catch (JMSException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private void dispatch(Object request) {
+        if (request instanceof DeleteOrderRq deleteOrderRq)
+            requestDispatcher.dispatchDeleteOrderRq(deleteOrderRq);
+        else if (request instanceof ChangeMatchingStateRq changeMatchingStateRq)
+            requestDispatcher.dispatchChangeMatchingStateRq(changeMatchingStateRq);
+        else if (request instanceof MassCancelRq massCancelRq)
+            requestDispatcher.dispatchMassCancelRq(massCancelRq);
+        else
+            log.warning("Ignored unknown request: " + request);
+    }
+
+    private ConnectionFactory connectionFactory() {
+        return jmsTemplate.getConnectionFactory();
+    }
+
+    private void sleepBeforeReconnect() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -1,25 +1,252 @@
 package ir.ramtung.tinyme.messaging;
 
 import ir.ramtung.tinyme.messaging.event.Event;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.support.converter.MessageConversionException;
 import org.springframework.stereotype.Component;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * Publishes events to the response queue, either on the calling thread or through a bounded outbox
+ * drained in batches by a sender thread. Outbox depth and send counters are exposed over JMX as
+ * {@value #OBJECT_NAME}.
+ */
 @Component
-public class EventPublisher {
+public class EventPublisher implements EventPublisherMBean {
+    public static final String OBJECT_NAME = "ir.ramtung.tinyme:type=EventPublisher";
+    private static final long FIRST_RETRY_MILLIS = 10;
+    private static final long MAX_RETRY_MILLIS = 5_000;
+
     private final Logger log = Logger.getLogger(this.getClass().getName());
     private final JmsTemplate jmsTemplate;
     @Value("${responseQueue}")
     private String responseQueue;
+    @Value("${publishingMode:SYNCHRONOUS}")
+    private PublishingMode publishingMode = PublishingMode.SYNCHRONOUS;
+    @Value("${eventBufferCapacity:8192}")
+    private int eventBufferCapacity = 8192;
+    @Value("${eventBatchSize:256}")
+    private int eventBatchSize = 256;
+
+    private JmsTemplate batchTemplate;
+    private ArrayBlockingQueue<Event> outbox;
+    private Thread sender;
+    private volatile boolean running;
+    private volatile boolean muted;
+    private final AtomicLong publishedEvents = new AtomicLong();
+    private final AtomicLong blockedPublishes = new AtomicLong();
+    private final AtomicLong failedSends = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private ObjectName objectName;
 
     public EventPublisher(JmsTemplate jmsTemplate) {
         this.jmsTemplate = jmsTemplate;
     }
 
+    @PostConstruct
+    public void start() {
+        register();
+        if (publishingMode != PublishingMode.ASYNCHRONOUS)
+            return;
+        batchTemplate = new JmsTemplate(jmsTemplate.getConnectionFactory());
+        batchTemplate.setMessageConverter(jmsTemplate.getMessageConverter());
+        batchTemplate.setSessionTransacted(true);
+        outbox = new ArrayBlockingQueue<>(eventBufferCapacity);
+        running = true;
+        sender = new Thread(this::drain, "event-publisher");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        unregister();
+        if (sender == null)
+            return;
+        running = false;
+        sender.join(TimeUnit.SECONDS.toMillis(10));
+        if (sender.isAlive())
+            log.severe("Stopped with " + outbox.size() + " events and a pending batch not yet delivered");
+    }
+
+    private void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            objectName = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(objectName))
+                server.unregisterMBean(objectName);
+            server.registerMBean(this, objectName);
+        } catch (JMException e) {
+            log.log(Level.WARNING, "Could not register event publisher over JMX", e);
+        }
+    }
+
+    private void unregister() {
+        if (objectName == null)
+            return;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName))
+                server.unregisterMBean(objectName);
+        } catch (JMException e) {
+            log.log(Level.WARNING, "Could not unregister event publisher", e);
+        }
+    }
+
+    public void mute() {
+        muted = true;
+    }
+
+    public void unmute() {
+        muted = false;
+    }
+
     public void publish(Event event) {
-        log.info("Published : " + event);
-        jmsTemplate.convertAndSend(responseQueue, event);
+        if (muted)
+            return;
+        if (outbox == null) {
+            log.info(() -> "Published : " + event);
+            jmsTemplate.convertAndSend(responseQueue, event);
+            publishedEvents.incrementAndGet();
+            return;
+        }
+        if (!outbox.offer(event)) {
+            blockedPublishes.incrementAndGet();
+            try {
+                outbox.put(event);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for room in the event outbox", e);
+            }
+        }
+    }
+
+    /**
+     * Sends the outbox in batches. A batch whose send or commit fails is kept and sent again,
+     * backing off up to {@link #MAX_RETRY_MILLIS}, until it is committed; meanwhile the outbox
+     * fills up and publishers block, which stalls matching instead of dropping its events. An event
+     * the converter rejects would fail every retry, so it is logged and dropped from its batch
+     * instead.
+     */
+    private void drain() {
+        List<Event> batch = new ArrayList<>(eventBatchSize);
+        long retryMillis = 0;
+        while (running || !outbox.isEmpty() || !batch.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    Event first = outbox.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null)
+                        continue;
+                    batch.add(first);
+                    outbox.drainTo(batch, eventBatchSize - 1);
+                }
+                send(batch);
+                batch.clear();
+                retryMillis = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                failedSends.incrementAndGet();
+                retryMillis = retryMillis == 0 ? FIRST_RETRY_MILLIS : Math.min(2 * retryMillis, MAX_RETRY_MILLIS);
+                log.log(Level.SEVERE, "Failed to publish a batch of " + batch.size() + " events, retrying in "
+                        + retryMillis + " ms", e);
+                try {
+                    Thread.sleep(retryMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void send(List<Event> batch) {
+        batchTemplate.execute(session -> {
+            MessageProducer producer = session.createProducer(session.createQueue(responseQueue));
+            try {
+                for (Iterator<Event> events = batch.iterator(); events.hasNext(); ) {
+                    Event event = events.next();
+                    Message message;
+                    try {
+                        message = batchTemplate.getMessageConverter().toMessage(event, session);
+                    } catch (MessageConversionException e) {
+                        droppedEvents.incrementAndGet();
+                        log.log(Level.SEVERE, "Dropped an event that cannot be converted: " + event, e);
+                        events.remove();
+                        continue;
+                    }
+                    producer.send(message);
+                    log.info(() -> "Published : " + event);
+                }
+                commit(session);
+            } catch (JMSException | RuntimeException e) {
+                rollback(session);
+                throw e;
+            } finally {
+                producer.close();
+            }
+            return null;
+        }, true);
+        publishedEvents.addAndGet(batch.size());
+    }
+
+    private static void commit(Session session) throws JMSException {
+        if (session.getTransacted())
+            session.commit();
+    }
+
+    private static void rollback(Session session) throws JMSException {
+        if (session.getTransacted())
+            session.rollback();
+    }
+
+    @Override
+    public int getBufferedEvents() {
+        return outbox == null ? 0 : outbox.size();
+    }
+
+    @Override
+    public int getBufferCapacity() {
+        return outbox == null ? 0 : eventBufferCapacity;
+    }
+
+    @Override
+    public long getPublishedEvents() {
+        return publishedEvents.get();
+    }
+
+    @Override
+    public long getBlockedPublishes() {
+        return blockedPublishes.get();
+    }
+
+    @Override
+    public long getFailedSends() {
+        return failedSends.get();
+    }
+
+    @Override
+    public long getDroppedEvents() {
+        return droppedEvents.get();
     }
 }
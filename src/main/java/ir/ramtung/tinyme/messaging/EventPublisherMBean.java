@@ -0,0 +1,15 @@
+package ir.ramtung.tinyme.messaging;
+
+public interface EventPublisherMBean {
+    int getBufferedEvents();
+
+    int getBufferCapacity();
+
+    long getPublishedEvents();
+
+    long getBlockedPublishes();
+
+    long getFailedSends();
+
+    long getDroppedEvents();
+}
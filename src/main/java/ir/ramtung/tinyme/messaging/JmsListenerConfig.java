@@ -0,0 +1,25 @@
+package ir.ramtung.tinyme.messaging;
+
+import jakarta.jms.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jms.DefaultJmsListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
+
+/**
+ * The listener containers behind the {@code @JmsListener} methods only start in LISTENER ingress
+ * mode; in BATCH mode {@link BatchRequestReceiver} is the sole consumer of the request queue.
+ */
+@Configuration
+public class JmsListenerConfig {
+    @Bean
+    public DefaultJmsListenerContainerFactory jmsListenerContainerFactory(
+            DefaultJmsListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            @Value("${ingressMode:LISTENER}") IngressMode ingressMode) {
+        DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAutoStartup(ingressMode == IngressMode.LISTENER);
+        return factory;
+    }
+}
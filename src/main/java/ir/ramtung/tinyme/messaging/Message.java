@@ -24,4 +24,5 @@ public class Message {
     public static final String AUCTION_CANNOT_HANDLE_STOP_LIMIT_ORDER = "Auction matcher cannot handle stop limit order";
 
     public static final String MINIMUM_EXCEPTION_QUANTITY_CANNOT_BE_NEGATIVE = "Minimum exception quantity cannot be negative";
+    public static final String MASS_CANCEL_WITHOUT_SCOPE = "Mass cancel must name a security, broker or shareholder";
 }
@@ -0,0 +1,6 @@
+package ir.ramtung.tinyme.messaging;
+
+public enum PublishingMode {
+    SYNCHRONOUS,
+    ASYNCHRONOUS
+}
@@ -1,31 +1,126 @@
 package ir.ramtung.tinyme.messaging;
 
+import ir.ramtung.tinyme.journal.RequestJournal;
+import ir.ramtung.tinyme.messaging.exception.InvalidRequestException;
+import ir.ramtung.tinyme.messaging.request.ChangeMatchingStateRq;
 import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
 import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MassCancelRq;
+import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.service.EnterOrderContext;
+import ir.ramtung.tinyme.domain.service.MassCancel;
 import ir.ramtung.tinyme.domain.service.OrderHandler;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.jms.annotation.JmsListener;
 import org.springframework.stereotype.Component;
 
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
+/**
+ * Journals each request and hands it to the shard of its security. Journaling and queueing happen
+ * together under the dispatcher's lock, so every shard runs its requests in journal order and
+ * {@link #withIntakeHeld} sees no request journaled but not yet queued. Waiting for a full shard
+ * to make room happens before taking the lock, so it holds up only the request that waits.
+ */
 @Component
+@DependsOn("journalReplayer")
 public class RequestDispatcher {
     private final Logger log = Logger.getLogger(this.getClass().getName());
     private final OrderHandler orderHandler;
+    private final SecurityShards securityShards;
+    private final RequestJournal requestJournal;
 
-    public RequestDispatcher(OrderHandler orderHandler) {
+    public RequestDispatcher(OrderHandler orderHandler, SecurityShards securityShards, RequestJournal requestJournal) {
         this.orderHandler = orderHandler;
+        this.securityShards = securityShards;
+        this.requestJournal = requestJournal;
     }
 
     @JmsListener(destination = "${requestQueue}", selector = "_type='ir.ramtung.tinyme.messaging.request.EnterOrderRq'")
     public void receiveEnterOrderRq(EnterOrderRq enterOrderRq) {
         log.info("Received message: " + enterOrderRq);
-        orderHandler.handleEnterOrder(enterOrderRq);
+        dispatchEnterOrderRq(enterOrderRq);
     }
 
     @JmsListener(destination = "${requestQueue}", selector = "_type='ir.ramtung.tinyme.messaging.request.DeleteOrderRq'")
     public void receiveDeleteOrderRq(DeleteOrderRq deleteOrderRq) {
         log.info("Received message: " + deleteOrderRq);
-        orderHandler.handleDeleteOrder(deleteOrderRq);
+        dispatchDeleteOrderRq(deleteOrderRq);
+    }
+
+    @JmsListener(destination = "${requestQueue}", selector = "_type='ir.ramtung.tinyme.messaging.request.ChangeMatchingStateRq'")
+    public void receiveChangeMatchingStateRq(ChangeMatchingStateRq changeMatchingStateRq) {
+        log.info("Received message: " + changeMatchingStateRq);
+        dispatchChangeMatchingStateRq(changeMatchingStateRq);
+    }
+
+    @JmsListener(destination = "${requestQueue}", selector = "_type='ir.ramtung.tinyme.messaging.request.MassCancelRq'")
+    public void receiveMassCancelRq(MassCancelRq massCancelRq) {
+        log.info("Received message: " + massCancelRq);
+        dispatchMassCancelRq(massCancelRq);
+    }
+
+    public void dispatchEnterOrderRq(EnterOrderRq enterOrderRq) {
+        EnterOrderContext context = prevalidate(enterOrderRq);
+        if (context != null)
+            dispatchEnterOrder(context);
+    }
+
+    public EnterOrderContext prevalidate(EnterOrderRq enterOrderRq) {
+        return orderHandler.prevalidateEnterOrder(enterOrderRq);
+    }
+
+    public void dispatchEnterOrder(EnterOrderContext context) {
+        String isin = context.enterOrderRq().getSecurityIsin();
+        securityShards.awaitRoom(isin);
+        synchronized (this) {
+            requestJournal.append(context.enterOrderRq());
+            securityShards.offer(isin, () -> orderHandler.handleEnterOrder(context));
+        }
+    }
+
+    public void dispatchDeleteOrderRq(DeleteOrderRq deleteOrderRq) {
+        String isin = deleteOrderRq.getSecurityIsin();
+        securityShards.awaitRoom(isin);
+        synchronized (this) {
+            requestJournal.append(deleteOrderRq);
+            securityShards.offer(isin, () -> orderHandler.handleDeleteOrder(deleteOrderRq));
+        }
+    }
+
+    public void dispatchMassCancelRq(MassCancelRq massCancelRq) {
+        MassCancel massCancel = orderHandler.prepareMassCancel(massCancelRq);
+        if (massCancel != null)
+            dispatchMassCancel(massCancel);
+    }
+
+    private void dispatchMassCancel(MassCancel massCancel) {
+        for (Security security : massCancel.getSecurities())
+            securityShards.awaitRoom(security.getIsin());
+        synchronized (this) {
+            requestJournal.append(massCancel.getRequest());
+            for (Security security : massCancel.getSecurities())
+                securityShards.offer(security.getIsin(), () -> orderHandler.handleMassCancel(massCancel, security));
+        }
+    }
+
+    public void dispatchChangeMatchingStateRq(ChangeMatchingStateRq changeMatchingStateRq) {
+        String isin = changeMatchingStateRq.getSecurityIsin();
+        securityShards.awaitRoom(isin);
+        synchronized (this) {
+            requestJournal.append(changeMatchingStateRq);
+            securityShards.offer(isin, () -> {
+                try {
+                    orderHandler.handleChangeMatchingStateRq(changeMatchingStateRq);
+                } catch (InvalidRequestException e) {
+                    log.warning("Rejected " + changeMatchingStateRq + ": " + e.getReasons());
+                }
+            });
+        }
+    }
+
+    public synchronized <T> T withIntakeHeld(Supplier<T> action) {
+        return action.get();
     }
 }
@@ -0,0 +1,291 @@
+package ir.ramtung.tinyme.messaging;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The matching threads, one per shard, each owning the securities that hash to it. Queue depth and
+ * the number of submitters that had to wait for room are exposed over JMX as {@value #OBJECT_NAME}.
+ */
+@Component
+public class SecurityShards implements SecurityShardsMBean {
+    public static final String OBJECT_NAME = "ir.ramtung.tinyme:type=SecurityShards";
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final Shard[] shards;
+    private ObjectName objectName;
+
+    public SecurityShards(@Value("${matchingShards:1}") int shardCount,
+                          @Value("${matchingShardQueueCapacity:65536}") int queueCapacity) {
+        shards = new Shard[Math.max(1, shardCount)];
+        for (int i = 0; i < shards.length; i++)
+            shards[i] = new Shard("matching-shard-" + i, Math.max(1, queueCapacity));
+    }
+
+    public int shardOf(String isin) {
+        return isin == null ? 0 : Math.floorMod(isin.hashCode(), shards.length);
+    }
+
+    @PostConstruct
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            objectName = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(objectName))
+                server.unregisterMBean(objectName);
+            server.registerMBean(this, objectName);
+        } catch (JMException e) {
+            log.log(Level.WARNING, "Could not register security shards over JMX", e);
+        }
+    }
+
+    public void submit(String isin, Runnable task) {
+        shards[shardOf(isin)].execute(guarded(isin, task));
+    }
+
+    /**
+     * Waits until the shard of {@code isin} has room, without taking any of it. A caller that must
+     * not block while holding a lock waits here first and then {@link #offer}s under the lock.
+     */
+    public void awaitRoom(String isin) {
+        shards[shardOf(isin)].awaitRoom();
+    }
+
+    /**
+     * Queues a task without waiting for room. Callers bound the queue by {@link #awaitRoom} first,
+     * so it can only overshoot its capacity by the number of concurrent callers.
+     */
+    public void offer(String isin, Runnable task) {
+        shards[shardOf(isin)].offer(guarded(isin, task));
+    }
+
+    private Runnable guarded(String isin, Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.log(Level.SEVERE, "Request on " + isin + " failed", e);
+            }
+        };
+    }
+
+    public Pause pause() {
+        Pause pause = new Pause(shards.length);
+        for (Shard shard : shards)
+            shard.offer(pause::park);
+        return pause;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        unregister();
+        for (Shard shard : shards)
+            shard.shutdown();
+        for (Shard shard : shards)
+            if (!shard.awaitTermination(10, TimeUnit.SECONDS))
+                log.warning("Matching shard did not drain before shutdown");
+    }
+
+    private void unregister() {
+        if (objectName == null)
+            return;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName))
+                server.unregisterMBean(objectName);
+        } catch (JMException e) {
+            log.log(Level.WARNING, "Could not unregister security shards", e);
+        }
+    }
+
+    @Override
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public int getQueuedTasks() {
+        int queued = 0;
+        for (Shard shard : shards)
+            queued += shard.queued.get();
+        return queued;
+    }
+
+    @Override
+    public long getBlockedSubmits() {
+        long blocked = 0;
+        for (Shard shard : shards)
+            blocked += shard.blockedSubmits.get();
+        return blocked;
+    }
+
+    /**
+     * A matching thread fed through a lock-free queue. Submitters only unpark the thread when it
+     * has gone to sleep on an empty queue; it spins briefly before doing so, since the next request
+     * usually follows within microseconds under load. A failing task is logged and the thread
+     * carries on with the next one.
+     * <p>
+     * The queue holds at most {@code capacity} tasks. A submitter that finds it full waits for room,
+     * which holds up the acknowledgement of its request message, so a shard that falls behind slows
+     * intake down rather than queueing without bound. Offered tasks skip the wait; their callers
+     * have waited for room beforehand, and pause tasks must never be held up behind a full queue.
+     */
+    private class Shard implements Runnable {
+        private static final int SPINS = 256;
+        private static final long FULL_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+        private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicLong blockedSubmits = new AtomicLong();
+        private final int capacity;
+        private final Thread thread;
+        private volatile boolean parked;
+        private volatile boolean stopping;
+
+        Shard(String name, int capacity) {
+            this.capacity = capacity;
+            thread = new Thread(this, name);
+            thread.start();
+        }
+
+        void execute(Runnable task) {
+            reserve();
+            enqueue(task);
+        }
+
+        void offer(Runnable task) {
+            if (stopping)
+                throw new RejectedExecutionException(thread.getName() + " is shut down");
+            queued.incrementAndGet();
+            enqueue(task);
+        }
+
+        private void enqueue(Runnable task) {
+            tasks.offer(task);
+            if (parked)
+                LockSupport.unpark(thread);
+        }
+
+        void awaitRoom() {
+            boolean blocked = false;
+            while (queued.get() >= capacity && !stopping) {
+                if (!blocked) {
+                    blocked = true;
+                    blockedSubmits.incrementAndGet();
+                }
+                if (parked)
+                    LockSupport.unpark(thread);
+                LockSupport.parkNanos(FULL_WAIT_NANOS);
+            }
+        }
+
+        private void reserve() {
+            boolean blocked = false;
+            while (true) {
+                if (stopping)
+                    throw new RejectedExecutionException(thread.getName() + " is shut down");
+                int count = queued.get();
+                if (count < capacity) {
+                    if (queued.compareAndSet(count, count + 1))
+                        return;
+                } else {
+                    if (!blocked) {
+                        blocked = true;
+                        blockedSubmits.incrementAndGet();
+                    }
+                    if (parked)
+                        LockSupport.unpark(thread);
+                    LockSupport.parkNanos(FULL_WAIT_NANOS);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            while (true) {
+                Runnable task = tasks.poll();
+                if (task != null) {
+                    queued.decrementAndGet();
+                    runQuietly(task);
+                    idle = 0;
+                } else if (stopping) {
+                    return;
+                } else if (idle++ < SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    parked = true;
+                    if (tasks.isEmpty() && !stopping)
+                        LockSupport.park(this);
+                    parked = false;
+                }
+            }
+        }
+
+        private void runQuietly(Runnable task) {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                log.log(Level.SEVERE, thread.getName() + " task failed", e);
+            }
+        }
+
+        void shutdown() {
+            stopping = true;
+            LockSupport.unpark(thread);
+        }
+
+        boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            thread.join(unit.toMillis(timeout));
+            return !thread.isAlive();
+        }
+    }
+
+    public static class Pause implements AutoCloseable {
+        private final CountDownLatch parked;
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        private Pause(int shardCount) {
+            parked = new CountDownLatch(shardCount);
+        }
+
+        private void park() {
+            parked.countDown();
+            boolean interrupted = false;
+            while (released.getCount() > 0) {
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+
+        public void awaitParked() throws InterruptedException {
+            parked.await();
+        }
+
+        @Override
+        public void close() {
+            released.countDown();
+        }
+    }
+}
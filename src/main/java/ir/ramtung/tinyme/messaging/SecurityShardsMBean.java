@@ -0,0 +1,9 @@
+package ir.ramtung.tinyme.messaging;
+
+public interface SecurityShardsMBean {
+    int getShardCount();
+
+    int getQueuedTasks();
+
+    long getBlockedSubmits();
+}
@@ -1,5 +1,6 @@
 package ir.ramtung.tinyme.messaging;
 
+import ir.ramtung.tinyme.domain.entity.Fills;
 import ir.ramtung.tinyme.domain.entity.Trade;
 
 public record TradeDTO(
@@ -12,4 +13,8 @@ public record TradeDTO(
     public TradeDTO(Trade trade) {
         this(trade.getSecurity().getIsin(), trade.getPrice(), trade.getQuantity(), trade.getBuy().getOrderId(), trade.getSell().getOrderId());
     }
+
+    public TradeDTO(Fills fills, int i) {
+        this(fills.getSecurity().getIsin(), fills.price(i), fills.quantity(i), fills.buyOrderId(i), fills.sellOrderId(i));
+    }
 }
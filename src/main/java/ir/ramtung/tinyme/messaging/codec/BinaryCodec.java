@@ -0,0 +1,366 @@
+package ir.ramtung.tinyme.messaging.codec;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.TradeDTO;
+import ir.ramtung.tinyme.messaging.event.*;
+import ir.ramtung.tinyme.messaging.request.ChangeMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MassCancelRq;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import ir.ramtung.tinyme.messaging.request.OrderEntryType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BinaryCodec {
+    static final byte VERSION = 1;
+
+    static final byte ENTER_ORDER_RQ = 1;
+    static final byte DELETE_ORDER_RQ = 2;
+    static final byte CHANGE_MATCHING_STATE_RQ = 3;
+    static final byte MASS_CANCEL_RQ = 4;
+    static final byte ORDER_ACCEPTED = 10;
+    static final byte ORDER_ACTIVATED = 11;
+    static final byte ORDER_DELETED = 12;
+    static final byte ORDER_UPDATED = 13;
+    static final byte ORDER_EXECUTED = 14;
+    static final byte ORDER_REJECTED = 15;
+    static final byte OPENING_PRICE = 16;
+    static final byte SECURITY_STATE_CHANGED = 17;
+    static final byte TRADE = 18;
+    static final byte MASS_CANCEL_COMPLETED = 19;
+
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final OrderEntryType[] ORDER_ENTRY_TYPES = OrderEntryType.values();
+    private static final Side[] SIDES = Side.values();
+    private static final MatchingState[] MATCHING_STATES = MatchingState.values();
+
+    public boolean supports(Class<?> type) {
+        return tagOf(type) != 0;
+    }
+
+    public byte[] encode(Object object) {
+        byte tag = tagOf(object.getClass());
+        if (tag == 0)
+            throw new IllegalArgumentException("No binary layout for " + object.getClass().getName());
+        Writer out = new Writer();
+        out.putByte(VERSION);
+        out.putByte(tag);
+        switch (tag) {
+            case ENTER_ORDER_RQ -> writeEnterOrderRq(out, (EnterOrderRq) object);
+            case DELETE_ORDER_RQ -> writeDeleteOrderRq(out, (DeleteOrderRq) object);
+            case CHANGE_MATCHING_STATE_RQ -> writeChangeMatchingStateRq(out, (ChangeMatchingStateRq) object);
+            case MASS_CANCEL_RQ -> writeMassCancelRq(out, (MassCancelRq) object);
+            default -> writeEvent(out, tag, (Event) object);
+        }
+        return out.toByteArray();
+    }
+
+    public Object decode(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        byte version = in.get();
+        if (version != VERSION)
+            throw new IllegalArgumentException("Unsupported binary wire version " + version);
+        byte tag = in.get();
+        return switch (tag) {
+            case ENTER_ORDER_RQ -> readEnterOrderRq(in);
+            case DELETE_ORDER_RQ -> readDeleteOrderRq(in);
+            case CHANGE_MATCHING_STATE_RQ -> readChangeMatchingStateRq(in);
+            case MASS_CANCEL_RQ -> readMassCancelRq(in);
+            default -> readEvent(in, tag);
+        };
+    }
+
+    private static byte tagOf(Class<?> type) {
+        if (type == EnterOrderRq.class) return ENTER_ORDER_RQ;
+        if (type == DeleteOrderRq.class) return DELETE_ORDER_RQ;
+        if (type == ChangeMatchingStateRq.class) return CHANGE_MATCHING_STATE_RQ;
+        if (type == MassCancelRq.class) return MASS_CANCEL_RQ;
+        if (type == OrderAcceptedEvent.class) return ORDER_ACCEPTED;
+        if (type == OrderActivatedEvent.class) return ORDER_ACTIVATED;
+        if (type == OrderDeletedEvent.class) return ORDER_DELETED;
+        if (type == OrderUpdatedEvent.class) return ORDER_UPDATED;
+        if (type == OrderExecutedEvent.class) return ORDER_EXECUTED;
+        if (type == OrderRejectedEvent.class) return ORDER_REJECTED;
+        if (type == OpeningPriceEvent.class) return OPENING_PRICE;
+        if (type == SecurityStateChangedEvent.class) return SECURITY_STATE_CHANGED;
+        if (type == TradeEvent.class) return TRADE;
+        if (type == MassCancelCompletedEvent.class) return MASS_CANCEL_COMPLETED;
+        return 0;
+    }
+
+    private static void writeEnterOrderRq(Writer out, EnterOrderRq rq) {
+        out.putEnum(rq.getRequestType());
+        out.putLong(rq.getRequestId());
+        out.putString(rq.getSecurityIsin());
+        out.putLong(rq.getOrderId());
+        out.putTime(rq.getEntryTime());
+        out.putEnum(rq.getSide());
+        out.putInt(rq.getQuantity());
+        out.putInt(rq.getPrice());
+        out.putLong(rq.getBrokerId());
+        out.putLong(rq.getShareholderId());
+        out.putInt(rq.getPeakSize());
+        out.putInt(rq.getMinimumExecutionQuantity());
+        out.putInt(rq.getStopLimit());
+    }
+
+    private static EnterOrderRq readEnterOrderRq(ByteBuffer in) {
+        EnterOrderRq rq = new EnterOrderRq();
+        rq.setRequestType(readEnum(in, ORDER_ENTRY_TYPES));
+        rq.setRequestId(in.getLong());
+        rq.setSecurityIsin(readString(in));
+        rq.setOrderId(in.getLong());
+        rq.setEntryTime(readTime(in));
+        rq.setSide(readEnum(in, SIDES));
+        rq.setQuantity(in.getInt());
+        rq.setPrice(in.getInt());
+        rq.setBrokerId(in.getLong());
+        rq.setShareholderId(in.getLong());
+        rq.setPeakSize(in.getInt());
+        rq.setMinimumExecutionQuantity(in.getInt());
+        rq.setStopLimit(in.getInt());
+        return rq;
+    }
+
+    private static void writeDeleteOrderRq(Writer out, DeleteOrderRq rq) {
+        out.putLong(rq.getRequestId());
+        out.putString(rq.getSecurityIsin());
+        out.putEnum(rq.getSide());
+        out.putLong(rq.getOrderId());
+        out.putTime(rq.getEntryTime());
+    }
+
+    private static DeleteOrderRq readDeleteOrderRq(ByteBuffer in) {
+        DeleteOrderRq rq = new DeleteOrderRq();
+        rq.setRequestId(in.getLong());
+        rq.setSecurityIsin(readString(in));
+        rq.setSide(readEnum(in, SIDES));
+        rq.setOrderId(in.getLong());
+        rq.setEntryTime(readTime(in));
+        return rq;
+    }
+
+    private static void writeChangeMatchingStateRq(Writer out, ChangeMatchingStateRq rq) {
+        out.putInt(rq.getRequestId());
+        out.putString(rq.getSecurityIsin());
+        out.putEnum(rq.getTargetState());
+    }
+
+    private static ChangeMatchingStateRq readChangeMatchingStateRq(ByteBuffer in) {
+        return new ChangeMatchingStateRq(in.getInt(), readString(in), readEnum(in, MATCHING_STATES));
+    }
+
+    private static void writeMassCancelRq(Writer out, MassCancelRq rq) {
+        out.putLong(rq.getRequestId());
+        out.putString(rq.getSecurityIsin());
+        out.putEnum(rq.getSide());
+        out.putLong(rq.getBrokerId());
+        out.putLong(rq.getShareholderId());
+        out.putTime(rq.getEntryTime());
+    }
+
+    private static MassCancelRq readMassCancelRq(ByteBuffer in) {
+        return new MassCancelRq(in.getLong(), readString(in), readEnum(in, SIDES), in.getLong(), in.getLong(),
+                readTime(in));
+    }
+
+    private static void writeEvent(Writer out, byte tag, Event event) {
+        out.putTime(event.getTime());
+        switch (tag) {
+            case ORDER_ACCEPTED -> {
+                OrderAcceptedEvent e = (OrderAcceptedEvent) event;
+                out.putLong(e.getRequestId());
+                out.putLong(e.getOrderId());
+            }
+            case ORDER_ACTIVATED -> {
+                OrderActivatedEvent e = (OrderActivatedEvent) event;
+                out.putLong(e.getRequestId());
+                out.putLong(e.getOrderId());
+            }
+            case ORDER_DELETED -> {
+                OrderDeletedEvent e = (OrderDeletedEvent) event;
+                out.putLong(e.getRequestId());
+                out.putLong(e.getOrderId());
+            }
+            case ORDER_UPDATED -> {
+                OrderUpdatedEvent e = (OrderUpdatedEvent) event;
+                out.putLong(e.getRequestId());
+                out.putLong(e.getOrderId());
+            }
+            case ORDER_EXECUTED -> {
+                OrderExecutedEvent e = (OrderExecutedEvent) event;
+                out.putLong(e.getRequestId());
+                out.putLong(e.getOrderId());
+                List<TradeDTO> trades = e.getTrades();
+                out.putInt(trades == null ? -1 : trades.size());
+                if (trades != null)
+                    for (TradeDTO trade : trades) {
+                        out.putString(trade.securityIsin());
+                        out.putInt(trade.price());
+                        out.putInt(trade.quantity());
+                        out.putLong(trade.buyOrderId());
+                        out.putLong(trade.sellOrderId());
+                    }
+            }
+            case ORDER_REJECTED -> {
+                OrderRejectedEvent e = (OrderRejectedEvent) event;
+                out.putLong(e.getRequestId());
+                out.putLong(e.getOrderId());
+                List<String> errors = e.getErrors();
+                out.putInt(errors == null ? -1 : errors.size());
+                if (errors != null)
+                    for (String error : errors)
+                        out.putString(error);
+            }
+            case OPENING_PRICE -> {
+                OpeningPriceEvent e = (OpeningPriceEvent) event;
+                out.putString(e.getSecurityIsin());
+                out.putInt(e.getOpeningPrice());
+                out.putInt(e.getTradableQuantity());
+            }
+            case SECURITY_STATE_CHANGED -> {
+                SecurityStateChangedEvent e = (SecurityStateChangedEvent) event;
+                out.putString(e.getSecurityIsin());
+                out.putEnum(e.getState());
+            }
+            case TRADE -> {
+                TradeEvent e = (TradeEvent) event;
+                out.putString(e.getSecurityIsin());
+                out.putInt(e.getPrice());
+                out.putInt(e.getQuantity());
+                out.putLong(e.getBuyId());
+                out.putLong(e.getSellId());
+            }
+            case MASS_CANCEL_COMPLETED -> {
+                MassCancelCompletedEvent e = (MassCancelCompletedEvent) event;
+                out.putLong(e.getRequestId());
+                out.putInt(e.getCancelledOrders());
+            }
+            default -> throw new IllegalArgumentException("No binary layout for tag " + tag);
+        }
+    }
+
+    private static Event readEvent(ByteBuffer in, byte tag) {
+        LocalDateTime time = readTime(in);
+        Event event = switch (tag) {
+            case ORDER_ACCEPTED -> new OrderAcceptedEvent(in.getLong(), in.getLong());
+            case ORDER_ACTIVATED -> new OrderActivatedEvent(in.getLong(), in.getLong());
+            case ORDER_DELETED -> new OrderDeletedEvent(in.getLong(), in.getLong());
+            case ORDER_UPDATED -> new OrderUpdatedEvent(in.getLong(), in.getLong());
+            case ORDER_EXECUTED -> {
+                long requestId = in.getLong();
+                long orderId = in.getLong();
+                int count = in.getInt();
+                List<TradeDTO> trades = count < 0 ? null : new ArrayList<>(count);
+                for (int i = 0; i < count; i++)
+                    trades.add(new TradeDTO(readString(in), in.getInt(), in.getInt(), in.getLong(), in.getLong()));
+                yield new OrderExecutedEvent(requestId, orderId, trades);
+            }
+            case ORDER_REJECTED -> {
+                long requestId = in.getLong();
+                long orderId = in.getLong();
+                int count = in.getInt();
+                List<String> errors = count < 0 ? null : new ArrayList<>(count);
+                for (int i = 0; i < count; i++)
+                    errors.add(readString(in));
+                yield new OrderRejectedEvent(requestId, orderId, errors);
+            }
+            case OPENING_PRICE -> new OpeningPriceEvent(readString(in), in.getInt(), in.getInt());
+            case SECURITY_STATE_CHANGED -> new SecurityStateChangedEvent(readString(in), readEnum(in, MATCHING_STATES));
+            case TRADE -> new TradeEvent(readString(in), in.getInt(), in.getInt(), in.getLong(), in.getLong());
+            case MASS_CANCEL_COMPLETED -> new MassCancelCompletedEvent(in.getLong(), in.getInt());
+            default -> throw new IllegalArgumentException("Unknown binary wire tag " + tag);
+        };
+        event.setTime(time);
+        return event;
+    }
+
+    private static <E extends Enum<E>> E readEnum(ByteBuffer in, E[] values) {
+        byte ordinal = in.get();
+        return ordinal < 0 ? null : values[ordinal];
+    }
+
+    private static String readString(ByteBuffer in) {
+        short length = in.getShort();
+        if (length < 0)
+            return null;
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static LocalDateTime readTime(ByteBuffer in) {
+        long seconds = in.getLong();
+        if (seconds == NO_TIME)
+            return null;
+        return LocalDateTime.ofEpochSecond(seconds, in.getInt(), ZoneOffset.UTC);
+    }
+
+    private static final class Writer {
+        private ByteBuffer buffer = ByteBuffer.allocate(128);
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() >= bytes)
+                return;
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+
+        void putByte(byte value) {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        void putInt(int value) {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        void putEnum(Enum<?> value) {
+            putByte(value == null ? -1 : (byte) value.ordinal());
+        }
+
+        void putString(String value) {
+            if (value == null) {
+                ensure(2);
+                buffer.putShort((short) -1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > Short.MAX_VALUE)
+                throw new IllegalArgumentException("String too long for the binary wire format");
+            ensure(2 + bytes.length);
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+
+        void putTime(LocalDateTime time) {
+            if (time == null) {
+                putLong(NO_TIME);
+                return;
+            }
+            putLong(time.toEpochSecond(ZoneOffset.UTC));
+            putInt(time.getNano());
+        }
+
+        byte[] toByteArray() {
+            byte[] bytes = new byte[buffer.position()];
+            buffer.flip();
+            buffer.get(bytes);
+            return bytes;
+        }
+    }
+}
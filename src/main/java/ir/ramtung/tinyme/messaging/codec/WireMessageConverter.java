@@ -0,0 +1,63 @@
+package ir.ramtung.tinyme.messaging.codec;
+
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jms.support.converter.MappingJackson2MessageConverter;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.jms.support.converter.MessageType;
+import org.springframework.stereotype.Component;
+
+@Component
+public class WireMessageConverter implements MessageConverter {
+    public static final String TYPE_ID_PROPERTY = "_type";
+    public static final String WIRE_FORMAT_PROPERTY = "wireFormat";
+
+    private final MappingJackson2MessageConverter jsonConverter = new MappingJackson2MessageConverter();
+    private final BinaryCodec binaryCodec = new BinaryCodec();
+    @Value("${eventWireFormat:JSON}")
+    private WireFormat outboundWireFormat = WireFormat.JSON;
+
+    public WireMessageConverter() {
+        jsonConverter.setTargetType(MessageType.TEXT);
+        jsonConverter.setTypeIdPropertyName(TYPE_ID_PROPERTY);
+    }
+
+    @Override
+    public Message toMessage(Object object, Session session) throws JMSException, MessageConversionException {
+        if (outboundWireFormat != WireFormat.BINARY || !binaryCodec.supports(object.getClass())) {
+            Message message = jsonConverter.toMessage(object, session);
+            message.setStringProperty(WIRE_FORMAT_PROPERTY, WireFormat.JSON.name());
+            return message;
+        }
+        byte[] bytes;
+        try {
+            bytes = binaryCodec.encode(object);
+        } catch (RuntimeException e) {
+            throw new MessageConversionException("Cannot encode " + object.getClass().getName(), e);
+        }
+        BytesMessage message = session.createBytesMessage();
+        message.writeBytes(bytes);
+        message.setStringProperty(TYPE_ID_PROPERTY, object.getClass().getName());
+        message.setStringProperty(WIRE_FORMAT_PROPERTY, WireFormat.BINARY.name());
+        return message;
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws JMSException, MessageConversionException {
+        if (!WireFormat.BINARY.name().equals(message.getStringProperty(WIRE_FORMAT_PROPERTY)))
+            return jsonConverter.fromMessage(message);
+        if (!(message instanceof BytesMessage bytesMessage))
+            throw new MessageConversionException("Binary wire format needs a BytesMessage");
+        byte[] bytes = new byte[(int) bytesMessage.getBodyLength()];
+        bytesMessage.readBytes(bytes);
+        try {
+            return binaryCodec.decode(bytes);
+        } catch (RuntimeException e) {
+            throw new MessageConversionException("Malformed binary message", e);
+        }
+    }
+}
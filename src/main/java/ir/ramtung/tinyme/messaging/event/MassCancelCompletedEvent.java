@@ -0,0 +1,15 @@
+package ir.ramtung.tinyme.messaging.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+@Data
+@EqualsAndHashCode(callSuper = false)
+@AllArgsConstructor
+@NoArgsConstructor
+public class MassCancelCompletedEvent extends Event {
+    private long requestId;
+    private int cancelledOrders;
+}
@@ -0,0 +1,39 @@
+package ir.ramtung.tinyme.messaging.request;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
+import ir.ramtung.tinyme.domain.entity.Side;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cancels every order matching the scope: a null security or side and a zero broker or
+ * shareholder id match anything, but at least one of security, broker and shareholder is needed.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MassCancelRq {
+    private long requestId;
+    private String securityIsin;
+    private Side side;
+    private long brokerId;
+    private long shareholderId;
+    @JsonSerialize(using = LocalDateTimeSerializer.class)
+    @JsonDeserialize(using = LocalDateTimeDeserializer.class)
+    private LocalDateTime entryTime;
+
+    public MassCancelRq(long requestId, String securityIsin, Side side, long brokerId, long shareholderId) {
+        this.requestId = requestId;
+        this.securityIsin = securityIsin;
+        this.side = side;
+        this.brokerId = brokerId;
+        this.shareholderId = shareholderId;
+        this.entryTime = LocalDateTime.now();
+    }
+}
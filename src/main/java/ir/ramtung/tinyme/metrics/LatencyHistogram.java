@@ -0,0 +1,83 @@
+package ir.ramtung.tinyme.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log-linear histogram of nanosecond latencies in the style of HdrHistogram: every power of two
+ * is split into {@link #SUB_BUCKETS} equal buckets, so a recorded value is reported within about
+ * 3% of its true value. Recording is lock-free and allocation-free.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        buckets.incrementAndGet(bucketOf(nanos));
+        count.increment();
+        sum.add(nanos);
+        if (nanos > max.get())
+            max.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public double mean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public long valueAtPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++)
+            total += buckets.get(i);
+        if (total == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank)
+                return Math.min(highestValueIn(i), max.get());
+        }
+        return max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++)
+            buckets.set(i, 0);
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    static long highestValueIn(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
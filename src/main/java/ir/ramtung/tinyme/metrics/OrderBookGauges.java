@@ -0,0 +1,185 @@
+package ir.ramtung.tinyme.metrics;
+
+import ir.ramtung.tinyme.domain.entity.OrderBook;
+import ir.ramtung.tinyme.domain.entity.OrderCancellationQueue;
+import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Size of every order book and stop-limit book, read from counters the books maintain as they
+ * change, so a scrape costs a few field reads per security. Exposed over JMX as
+ * {@value #OBJECT_NAME}. Scrapes do not stop the matching threads and may see a book mid-update.
+ * {@link #check(Security)} logs a warning when a book crosses the configured depth, and again
+ * only after it has drained below half of it.
+ */
+@Component
+public class OrderBookGauges implements OrderBookGaugesMBean {
+    public static final String OBJECT_NAME = "ir.ramtung.tinyme:type=OrderBookGauges";
+
+    public record Gauge(String isin, int buyOrders, int sellOrders, int buyLevels, int sellLevels, int bestBid,
+                        int bestAsk, int spread, long buyQuantity, long sellQuantity, long hiddenBuyQuantity,
+                        long hiddenSellQuantity, int parkedStopBuys, int parkedStopSells, long estimatedBytes) {
+    }
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final SecurityRepository securityRepository;
+    private final int depthWarning;
+    private final int stopBookWarning;
+    private final ConcurrentHashMap<String, Alarms> alarms = new ConcurrentHashMap<>();
+    private ObjectName objectName;
+
+    public OrderBookGauges(SecurityRepository securityRepository,
+                           @Value("${bookDepthWarningOrders:0}") int depthWarning,
+                           @Value("${stopBookWarningOrders:0}") int stopBookWarning) {
+        this.securityRepository = securityRepository;
+        this.depthWarning = depthWarning;
+        this.stopBookWarning = stopBookWarning;
+    }
+
+    @PostConstruct
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            objectName = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(objectName))
+                server.unregisterMBean(objectName);
+            server.registerMBean(this, objectName);
+        } catch (JMException e) {
+            log.log(Level.WARNING, "Could not register order book gauges over JMX", e);
+        }
+    }
+
+    @PreDestroy
+    public void unregister() {
+        if (objectName == null)
+            return;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName))
+                server.unregisterMBean(objectName);
+        } catch (JMException e) {
+            log.log(Level.WARNING, "Could not unregister order book gauges", e);
+        }
+    }
+
+    public static Gauge read(Security security) {
+        OrderBook book = security.getOrderBook();
+        OrderCancellationQueue stops = security.getOrderCancellationQueue();
+        int bestBid = book.getBestPrice(Side.BUY);
+        int bestAsk = book.getBestPrice(Side.SELL);
+        return new Gauge(security.getIsin(), book.getOrderCount(Side.BUY), book.getOrderCount(Side.SELL),
+                book.getLevelCount(Side.BUY), book.getLevelCount(Side.SELL), bestBid, bestAsk,
+                bestBid > 0 && bestAsk > 0 ? bestAsk - bestBid : 0,
+                book.getRestingQuantity(Side.BUY), book.getRestingQuantity(Side.SELL),
+                book.getHiddenQuantity(Side.BUY), book.getHiddenQuantity(Side.SELL),
+                stops.getDeactivatedCount(Side.BUY), stops.getDeactivatedCount(Side.SELL),
+                book.estimatedRetainedBytes() + stops.estimatedRetainedBytes());
+    }
+
+    public List<Gauge> readAll() {
+        List<Gauge> gauges = new ArrayList<>();
+        for (Security security : securityRepository.allSecurities())
+            gauges.add(read(security));
+        return gauges;
+    }
+
+    public void check(Security security) {
+        if (depthWarning <= 0 && stopBookWarning <= 0)
+            return;
+        String isin = String.valueOf(security.getIsin());
+        Alarms alarm = alarms.get(isin);
+        if (alarm == null)
+            alarm = alarms.computeIfAbsent(isin, key -> new Alarms());
+        if (depthWarning > 0) {
+            OrderBook book = security.getOrderBook();
+            int depth = Math.max(book.getOrderCount(Side.BUY), book.getOrderCount(Side.SELL));
+            if (!alarm.depth && depth >= depthWarning) {
+                alarm.depth = true;
+                log.warning("Order book of " + security.getIsin() + " holds " + depth
+                        + " orders on one side, crossing " + depthWarning);
+            } else if (alarm.depth && depth < depthWarning / 2)
+                alarm.depth = false;
+        }
+        if (stopBookWarning > 0) {
+            OrderCancellationQueue stops = security.getOrderCancellationQueue();
+            int parked = stops.getDeactivatedCount(Side.BUY) + stops.getDeactivatedCount(Side.SELL);
+            if (!alarm.stopBook && parked >= stopBookWarning) {
+                alarm.stopBook = true;
+                log.warning("Stop-limit book of " + security.getIsin() + " holds " + parked
+                        + " parked orders, crossing " + stopBookWarning);
+            } else if (alarm.stopBook && parked < stopBookWarning / 2)
+                alarm.stopBook = false;
+        }
+    }
+
+    @Override
+    public int getSecurityCount() {
+        int count = 0;
+        for (Security ignored : securityRepository.allSecurities())
+            count++;
+        return count;
+    }
+
+    @Override
+    public long getRestingOrderCount() {
+        long count = 0;
+        for (Security security : securityRepository.allSecurities())
+            count += security.getOrderBook().getOrderCount(Side.BUY) + security.getOrderBook().getOrderCount(Side.SELL);
+        return count;
+    }
+
+    @Override
+    public long getParkedStopOrderCount() {
+        long count = 0;
+        for (Security security : securityRepository.allSecurities()) {
+            OrderCancellationQueue stops = security.getOrderCancellationQueue();
+            count += stops.getDeactivatedCount(Side.BUY) + stops.getDeactivatedCount(Side.SELL);
+        }
+        return count;
+    }
+
+    @Override
+    public long getEstimatedRetainedBytes() {
+        long bytes = 0;
+        for (Security security : securityRepository.allSecurities())
+            bytes += security.getOrderBook().estimatedRetainedBytes()
+                    + security.getOrderCancellationQueue().estimatedRetainedBytes();
+        return bytes;
+    }
+
+    @Override
+    public String dump() {
+        List<Gauge> gauges = readAll();
+        gauges.sort(Comparator.comparing(Gauge::isin, Comparator.nullsFirst(Comparator.naturalOrder())));
+        StringBuilder out = new StringBuilder();
+        for (Gauge gauge : gauges)
+            out.append(String.format("%s orders=%d/%d levels=%d/%d bid=%d ask=%d spread=%d quantity=%d/%d"
+                            + " hidden=%d/%d stops=%d/%d bytes=%d%n", gauge.isin(), gauge.buyOrders(),
+                    gauge.sellOrders(), gauge.buyLevels(), gauge.sellLevels(), gauge.bestBid(), gauge.bestAsk(),
+                    gauge.spread(), gauge.buyQuantity(), gauge.sellQuantity(), gauge.hiddenBuyQuantity(),
+                    gauge.hiddenSellQuantity(), gauge.parkedStopBuys(), gauge.parkedStopSells(),
+                    gauge.estimatedBytes()));
+        return out.toString();
+    }
+
+    private static class Alarms {
+        private volatile boolean depth;
+        private volatile boolean stopBook;
+    }
+}
@@ -0,0 +1,13 @@
+package ir.ramtung.tinyme.metrics;
+
+public interface OrderBookGaugesMBean {
+    int getSecurityCount();
+
+    long getRestingOrderCount();
+
+    long getParkedStopOrderCount();
+
+    long getEstimatedRetainedBytes();
+
+    String dump();
+}
@@ -0,0 +1,237 @@
+package ir.ramtung.tinyme.metrics;
+
+import ir.ramtung.tinyme.domain.entity.MatchingOutcome;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Latency of each stage of order entry, matching outcomes, rejection reasons, per-ISIN request
+ * counts and the number of stop-limit orders each cascade activates. Exposed over JMX as
+ * {@value #OBJECT_NAME}; {@link #dump()} renders everything as text. Counters see every request,
+ * but only one request in {@code sampleInterval} (chosen by request id) is timed, since reading the
+ * clock at every stage costs more than some stages do. When disabled every call returns
+ * immediately.
+ */
+@Component
+public class OrderHandlerMetrics implements OrderHandlerMetricsMBean {
+    public static final String OBJECT_NAME = "ir.ramtung.tinyme:type=OrderHandlerMetrics";
+    public static final String UNKNOWN_ISIN = "(unknown)";
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    public enum Stage {
+        VALIDATION, ORDER_CREATION, MATCHING, PUBLISHING, STOP_LIMIT_ACTIVATION
+    }
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    private final boolean enabled;
+    private final long sampleMask;
+    private final LatencyHistogram[] stages = new LatencyHistogram[Stage.values().length];
+    private final LatencyHistogram cascadeDepths = new LatencyHistogram();
+    private final AtomicLongArray outcomes = new AtomicLongArray(MatchingOutcome.values().length);
+    private final ConcurrentHashMap<String, LongAdder> rejections = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> requestsByIsin = new ConcurrentHashMap<>();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile long since = System.nanoTime();
+    private ObjectName objectName;
+
+    public OrderHandlerMetrics(@Value("${orderHandlerMetrics:true}") boolean enabled,
+                               @Value("${orderHandlerMetricsSampleInterval:64}") int sampleInterval) {
+        if (Integer.bitCount(sampleInterval) != 1)
+            throw new IllegalArgumentException("orderHandlerMetricsSampleInterval must be a power of two");
+        this.enabled = enabled;
+        this.sampleMask = sampleInterval - 1;
+        for (int i = 0; i < stages.length; i++)
+            stages[i] = new LatencyHistogram();
+    }
+
+    public static OrderHandlerMetrics disabled() {
+        return new OrderHandlerMetrics(false, 1);
+    }
+
+    @PostConstruct
+    public void register() {
+        if (!enabled)
+            return;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            objectName = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(objectName))
+                server.unregisterMBean(objectName);
+            server.registerMBean(this, objectName);
+        } catch (JMException e) {
+            log.log(Level.WARNING, "Could not register order handler metrics over JMX", e);
+        }
+    }
+
+    @PreDestroy
+    public void unregister() {
+        if (objectName == null)
+            return;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName))
+                server.unregisterMBean(objectName);
+        } catch (JMException e) {
+            log.log(Level.WARNING, "Could not unregister order handler metrics", e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Counts a request against {@code isin} when it names a known security, and against
+     * {@link #UNKNOWN_ISIN} otherwise, so arbitrary ISINs in requests cannot grow the counters.
+     */
+    public long start(long requestId, String isin, boolean known) {
+        if (!enabled)
+            return NOT_SAMPLED;
+        requests.increment();
+        if (isin != null) {
+            String key = known ? isin : UNKNOWN_ISIN;
+            LongAdder counter = requestsByIsin.get(key);
+            if (counter == null)
+                counter = requestsByIsin.computeIfAbsent(key, k -> new LongAdder());
+            counter.increment();
+        }
+        return (requestId & sampleMask) == 0 ? System.nanoTime() : NOT_SAMPLED;
+    }
+
+    public long stage(Stage stage, long since) {
+        if (since == NOT_SAMPLED)
+            return NOT_SAMPLED;
+        long now = System.nanoTime();
+        stages[stage.ordinal()].record(now - since);
+        return now;
+    }
+
+    public void outcome(MatchingOutcome outcome) {
+        if (enabled)
+            outcomes.incrementAndGet(outcome.ordinal());
+    }
+
+    public void cascadeDepth(int depth) {
+        if (enabled && depth > 0)
+            cascadeDepths.record(depth);
+    }
+
+    public void rejected(List<String> reasons) {
+        if (!enabled)
+            return;
+        rejected.increment();
+        for (String reason : reasons) {
+            LongAdder counter = rejections.get(reason);
+            if (counter == null)
+                counter = rejections.computeIfAbsent(reason, key -> new LongAdder());
+            counter.increment();
+        }
+    }
+
+    public LatencyHistogram histogram(Stage stage) {
+        return stages[stage.ordinal()];
+    }
+
+    public LatencyHistogram cascadeDepthHistogram() {
+        return cascadeDepths;
+    }
+
+    public long outcomeCount(MatchingOutcome outcome) {
+        return outcomes.get(outcome.ordinal());
+    }
+
+    public long rejectionCount(String reason) {
+        LongAdder counter = rejections.get(reason);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    public long requestCount(String isin) {
+        LongAdder counter = requestsByIsin.get(isin);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    @Override
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public double getRequestsPerSecond() {
+        return perSecond(requests.sum());
+    }
+
+    @Override
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("requests %d (%.1f/s), rejected %d%n", requests.sum(), getRequestsPerSecond(),
+                rejected.sum()));
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = histogram(stage);
+            out.append(String.format("stage %s count=%d mean=%.0fns", stage, histogram.count(), histogram.mean()));
+            for (double percentile : PERCENTILES)
+                out.append(String.format(" p%s=%dns", percentileLabel(percentile),
+                        histogram.valueAtPercentile(percentile)));
+            out.append(String.format(" max=%dns%n", histogram.max()));
+        }
+        out.append(String.format("cascades count=%d mean=%.1f", cascadeDepths.count(), cascadeDepths.mean()));
+        for (double percentile : PERCENTILES)
+            out.append(String.format(" p%s=%d", percentileLabel(percentile),
+                    cascadeDepths.valueAtPercentile(percentile)));
+        out.append(String.format(" max=%d%n", cascadeDepths.max()));
+        for (MatchingOutcome outcome : MatchingOutcome.values())
+            out.append(String.format("outcome %s %d%n", outcome, outcomeCount(outcome)));
+        for (Map.Entry<String, LongAdder> rejection : new TreeMap<>(rejections).entrySet())
+            out.append(String.format("rejection \"%s\" %d%n", rejection.getKey(), rejection.getValue().sum()));
+        for (Map.Entry<String, LongAdder> isin : new TreeMap<>(requestsByIsin).entrySet()) {
+            long count = isin.getValue().sum();
+            out.append(String.format("isin %s %d (%.1f/s)%n", isin.getKey(), count, perSecond(count)));
+        }
+        return out.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram histogram : stages)
+            histogram.reset();
+        cascadeDepths.reset();
+        for (int i = 0; i < outcomes.length(); i++)
+            outcomes.set(i, 0);
+        rejections.clear();
+        requestsByIsin.clear();
+        requests.reset();
+        rejected.reset();
+        since = System.nanoTime();
+    }
+
+    private double perSecond(long count) {
+        double seconds = (System.nanoTime() - since) / 1e9;
+        return seconds <= 0 ? 0 : count / seconds;
+    }
+
+    private static String percentileLabel(double percentile) {
+        return percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile);
+    }
+}
@@ -0,0 +1,13 @@
+package ir.ramtung.tinyme.metrics;
+
+public interface OrderHandlerMetricsMBean {
+    long getRequestCount();
+
+    long getRejectedCount();
+
+    double getRequestsPerSecond();
+
+    String dump();
+
+    void reset();
+}
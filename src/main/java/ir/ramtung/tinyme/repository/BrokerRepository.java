@@ -3,11 +3,9 @@ package ir.ramtung.tinyme.repository;
 import ir.ramtung.tinyme.domain.entity.Broker;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
-
 @Component
 public class BrokerRepository {
-    private final HashMap<Long, Broker> brokerById = new HashMap<>();
+    private final LongObjectMap<Broker> brokerById = new LongObjectHashMap<>();
 
     public Broker findBrokerById(long brokerId) {
         return brokerById.get(brokerId);
@@ -17,11 +15,15 @@ public class BrokerRepository {
         brokerById.put(broker.getBrokerId(), broker);
     }
 
+    public void reserve(int expected) {
+        brokerById.ensureCapacity(brokerById.size() + expected);
+    }
+
     public void clear() {
         brokerById.clear();
     }
 
-    Iterable<? extends Broker> allBrokers() {
+    public Iterable<? extends Broker> allBrokers() {
         return brokerById.values();
     }
 }
@@ -0,0 +1,136 @@
+package ir.ramtung.tinyme.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Open-addressing map from primitive {@code long} keys, with linear probing over parallel
+ * key and value arrays. Key 0 marks a free slot, so its value is kept aside.
+ */
+public class LongObjectHashMap<V> implements LongObjectMap<V> {
+    private static final int MIN_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+    private V zeroKeyValue;
+
+    public LongObjectHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongObjectHashMap(int expected) {
+        allocate(capacityFor(expected));
+    }
+
+    static int capacityFor(int expected) {
+        long needed = (long) Math.ceil(Math.max(expected, 1) / LOAD_FACTOR);
+        int capacity = MIN_CAPACITY;
+        while (capacity < needed)
+            capacity <<= 1;
+        return capacity;
+    }
+
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0)
+            return zeroKeyValue;
+        int slot = mix(key) & mask;
+        long current;
+        while ((current = keys[slot]) != 0) {
+            if (current == key)
+                return (V) values[slot];
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    @Override
+    public void put(long key, V value) {
+        Objects.requireNonNull(value);
+        if (key == 0) {
+            if (zeroKeyValue == null)
+                size++;
+            zeroKeyValue = value;
+            return;
+        }
+        int slot = mix(key) & mask;
+        long current;
+        while ((current = keys[slot]) != 0) {
+            if (current == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt)
+            rehash(keys.length << 1);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void ensureCapacity(int expected) {
+        int capacity = capacityFor(expected);
+        if (capacity > keys.length)
+            rehash(capacity);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        zeroKeyValue = null;
+        size = 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterable<V> values() {
+        List<V> all = new ArrayList<>(size);
+        if (zeroKeyValue != null)
+            all.add(zeroKeyValue);
+        for (Object value : values)
+            if (value != null)
+                all.add((V) value);
+        return all;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == 0)
+                continue;
+            int slot = mix(oldKeys[i]) & mask;
+            while (keys[slot] != 0)
+                slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+}
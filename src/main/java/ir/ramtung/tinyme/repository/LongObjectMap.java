@@ -0,0 +1,15 @@
+package ir.ramtung.tinyme.repository;
+
+public interface LongObjectMap<V> {
+    V get(long key);
+
+    void put(long key, V value);
+
+    int size();
+
+    void ensureCapacity(int expected);
+
+    void clear();
+
+    Iterable<V> values();
+}
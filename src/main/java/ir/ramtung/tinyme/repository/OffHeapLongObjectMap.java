@@ -0,0 +1,128 @@
+package ir.ramtung.tinyme.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Open-addressing {@code long} key index kept in a direct buffer outside the heap. Each slot
+ * holds the key and the position of its value in a dense on-heap array, so the heap only
+ * carries one reference per entry. A position of 0 marks a free slot.
+ */
+public class OffHeapLongObjectMap<V> implements LongObjectMap<V> {
+    private static final int SLOT_SIZE = Long.BYTES + Integer.BYTES;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private ByteBuffer slots;
+    private int mask;
+    private int resizeAt;
+    private Object[] values;
+    private int size;
+
+    public OffHeapLongObjectMap() {
+        this(0);
+    }
+
+    public OffHeapLongObjectMap(int expected) {
+        allocate(LongObjectHashMap.capacityFor(expected));
+        values = new Object[Math.max(expected, 16)];
+    }
+
+    private void allocate(int capacity) {
+        slots = ByteBuffer.allocateDirect(capacity * SLOT_SIZE).order(ByteOrder.nativeOrder());
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int capacity() {
+        return mask + 1;
+    }
+
+    private static int offset(int slot) {
+        return slot * SLOT_SIZE;
+    }
+
+    private int find(long key) {
+        int slot = LongObjectHashMap.mix(key) & mask;
+        while (true) {
+            int offset = offset(slot);
+            int position = slots.getInt(offset + Long.BYTES);
+            if (position == 0 || slots.getLong(offset) == key)
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int position = slots.getInt(offset(find(key)) + Long.BYTES);
+        return position == 0 ? null : (V) values[position - 1];
+    }
+
+    @Override
+    public void put(long key, V value) {
+        Objects.requireNonNull(value);
+        int offset = offset(find(key));
+        int position = slots.getInt(offset + Long.BYTES);
+        if (position != 0) {
+            values[position - 1] = value;
+            return;
+        }
+        if (size == values.length)
+            values = Arrays.copyOf(values, values.length << 1);
+        values[size++] = value;
+        slots.putLong(offset, key);
+        slots.putInt(offset + Long.BYTES, size);
+        if (size > resizeAt)
+            rehash(capacity() << 1);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void ensureCapacity(int expected) {
+        int capacity = LongObjectHashMap.capacityFor(expected);
+        if (capacity > capacity())
+            rehash(capacity);
+        if (expected > values.length)
+            values = Arrays.copyOf(values, expected);
+    }
+
+    @Override
+    public void clear() {
+        allocate(capacity());
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterable<V> values() {
+        List<V> all = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            all.add((V) values[i]);
+        return all;
+    }
+
+    private void rehash(int capacity) {
+        ByteBuffer old = slots;
+        int oldCapacity = capacity();
+        allocate(capacity);
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            int position = old.getInt(offset(slot) + Long.BYTES);
+            if (position == 0)
+                continue;
+            long key = old.getLong(offset(slot));
+            int offset = offset(find(key));
+            slots.putLong(offset, key);
+            slots.putInt(offset + Long.BYTES, position);
+        }
+    }
+}
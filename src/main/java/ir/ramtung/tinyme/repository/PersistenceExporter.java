@@ -0,0 +1,253 @@
+package ir.ramtung.tinyme.repository;
+
+import com.opencsv.CSVWriter;
+import ir.ramtung.tinyme.journal.SnapshotVisitor;
+import ir.ramtung.tinyme.journal.Snapshotter;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+@Component
+public class PersistenceExporter {
+    static final String[] BROKER_HEADER = {"brokerId", "name", "credit"};
+    static final String[] SECURITY_HEADER = {"isin", "tickSize", "lotSize"};
+    static final String[] SHAREHOLDER_HEADER = {"shareholderId", "name"};
+    static final String[] POSITION_HEADER = {"shareholderId", "isin", "positions"};
+    static final String[] ORDERBOOK_HEADER = {"orderId", "isin", "side", "quantity", "price", "brokerId",
+            "shareholderId", "entryTime", "peakSize", "displayedQuantity", "minimumExecutionQuantity"};
+    static final String[] TRADE_HEADER = {"isin", "price", "quantity", "buyOrderId", "sellOrderId", "buyBrokerId",
+            "sellBrokerId"};
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final String directory;
+    private final boolean columnarTrades;
+    private final Snapshotter snapshotter;
+
+    public PersistenceExporter(@Value("${exportDirectory:}") String directory,
+                               @Value("${exportColumnarTrades:false}") boolean columnarTrades,
+                               Snapshotter snapshotter) {
+        this.directory = directory;
+        this.columnarTrades = columnarTrades;
+        this.snapshotter = snapshotter;
+    }
+
+    @PreDestroy
+    public void exportOnShutdown() {
+        if (directory.isBlank())
+            return;
+        try {
+            export(Path.of(directory));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.log(Level.SEVERE, "End of day export failed", e);
+        }
+    }
+
+    /**
+     * Writes the files straight from the live entities while matching is paused, so memory stays
+     * at the writers' buffers plus one side of one book at a time, instead of a copy of the whole
+     * state. Matching waits for the files to be written, which suits the end of day export.
+     */
+    public void export(Path target) throws InterruptedException {
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(target);
+            try (CsvExport export = new CsvExport(target, columnarTrades)) {
+                snapshotter.stream(export);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("Exported engine state to " + target + " in " + (System.nanoTime() - start) / 1_000_000
+                + " ms with matching paused");
+    }
+
+    private static CSVWriter csv(Path file, String[] header) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        CSVWriter writer = new CSVWriter(new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8),
+                1 << 16));
+        writer.writeNext(header, false);
+        return writer;
+    }
+
+    private static class CsvExport implements SnapshotVisitor, Closeable {
+        private final List<Closeable> outputs = new ArrayList<>();
+        private final CSVWriter brokers;
+        private final CSVWriter shareholders;
+        private final CSVWriter securities;
+        private final CSVWriter orders;
+        private final CSVWriter trades;
+        private final CSVWriter positions;
+        private final TradeColumns tradeColumns;
+        private String isin;
+
+        CsvExport(Path directory, boolean columnarTrades) throws IOException {
+            brokers = open(csv(directory.resolve("broker.csv"), BROKER_HEADER));
+            shareholders = open(csv(directory.resolve("shareholder.csv"), SHAREHOLDER_HEADER));
+            securities = open(csv(directory.resolve("security.csv"), SECURITY_HEADER));
+            orders = open(csv(directory.resolve("orderbook.csv"), ORDERBOOK_HEADER));
+            trades = open(csv(directory.resolve("trade.csv"), TRADE_HEADER));
+            positions = open(csv(directory.resolve("position.csv"), POSITION_HEADER));
+            tradeColumns = columnarTrades ? open(new TradeColumns(directory.resolve("trade.columns.gz"))) : null;
+        }
+
+        private <T extends Closeable> T open(T output) {
+            outputs.add(output);
+            return output;
+        }
+
+        @Override
+        public void broker(long brokerId, String name, long credit) {
+            brokers.writeNext(new String[] {Long.toString(brokerId), text(name), Long.toString(credit)}, false);
+        }
+
+        @Override
+        public void shareholder(long shareholderId, String name) {
+            shareholders.writeNext(new String[] {Long.toString(shareholderId), text(name)}, false);
+        }
+
+        @Override
+        public void security(String isin, int tickSize, int lotSize, int lastTradePrice, int pendingHighTradePrice,
+                             int pendingLowTradePrice, MatchingState state) {
+            this.isin = isin;
+            securities.writeNext(new String[] {isin, Integer.toString(tickSize), Integer.toString(lotSize)}, false);
+        }
+
+        @Override
+        public void order(OrderImage order) {
+            if (order.deactivated())
+                return;
+            orders.writeNext(new String[] {
+                    Long.toString(order.orderId()), isin, order.side().name(), Integer.toString(order.quantity()),
+                    Integer.toString(order.price()), Long.toString(order.brokerId()),
+                    Long.toString(order.shareholderId()), order.entryTime().toString(),
+                    Integer.toString(order.peakSize()), Integer.toString(order.displayedQuantity()),
+                    Integer.toString(order.minimumExecutionQuantity())}, false);
+        }
+
+        @Override
+        public void trade(int price, int quantity, long buyOrderId, long sellOrderId, long buyBrokerId,
+                          long sellBrokerId) {
+            trades.writeNext(new String[] {isin, Integer.toString(price), Integer.toString(quantity),
+                    Long.toString(buyOrderId), Long.toString(sellOrderId), Long.toString(buyBrokerId),
+                    Long.toString(sellBrokerId)}, false);
+            if (tradeColumns != null)
+                tradeColumns.add(isin, price, quantity, buyOrderId, sellOrderId, buyBrokerId, sellBrokerId);
+        }
+
+        @Override
+        public void position(long shareholderId, String isin, int quantity) {
+            positions.writeNext(new String[] {Long.toString(shareholderId), isin, Integer.toString(quantity)}, false);
+        }
+
+        private static String text(String value) {
+            return value == null ? "" : value;
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (Closeable output : outputs) {
+                try {
+                    output.close();
+                } catch (IOException e) {
+                    failure = failure == null ? e : failure;
+                }
+            }
+            if (failure != null)
+                throw failure;
+        }
+    }
+
+    /**
+     * Gzipped trade columns in blocks of at most {@link #BLOCK_SIZE} trades of one security:
+     * the isin, the trade count, then each column (price, quantity, buy order, sell order,
+     * buy broker, sell broker) stored contiguously.
+     */
+    static class TradeColumns implements Closeable {
+        static final int MAGIC = 0x544d5443;
+        static final int BLOCK_SIZE = 1 << 16;
+
+        private final DataOutputStream out;
+        private final int[] prices = new int[BLOCK_SIZE];
+        private final int[] quantities = new int[BLOCK_SIZE];
+        private final long[] buyOrderIds = new long[BLOCK_SIZE];
+        private final long[] sellOrderIds = new long[BLOCK_SIZE];
+        private final long[] buyBrokerIds = new long[BLOCK_SIZE];
+        private final long[] sellBrokerIds = new long[BLOCK_SIZE];
+        private String isin;
+        private int size;
+
+        TradeColumns(Path file) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Channels.newOutputStream(channel),
+                    1 << 16), 1 << 16));
+            out.writeInt(MAGIC);
+        }
+
+        void add(String isin, int price, int quantity, long buyOrderId, long sellOrderId, long buyBrokerId,
+                 long sellBrokerId) {
+            if (size == BLOCK_SIZE || (size > 0 && !isin.equals(this.isin)))
+                flush();
+            this.isin = isin;
+            prices[size] = price;
+            quantities[size] = quantity;
+            buyOrderIds[size] = buyOrderId;
+            sellOrderIds[size] = sellOrderId;
+            buyBrokerIds[size] = buyBrokerId;
+            sellBrokerIds[size] = sellBrokerId;
+            size++;
+        }
+
+        private void flush() {
+            try {
+                out.writeUTF(isin);
+                out.writeInt(size);
+                for (int i = 0; i < size; i++)
+                    out.writeInt(prices[i]);
+                for (int i = 0; i < size; i++)
+                    out.writeInt(quantities[i]);
+                for (int i = 0; i < size; i++)
+                    out.writeLong(buyOrderIds[i]);
+                for (int i = 0; i < size; i++)
+                    out.writeLong(sellOrderIds[i]);
+                for (int i = 0; i < size; i++)
+                    out.writeLong(buyBrokerIds[i]);
+                for (int i = 0; i < size; i++)
+                    out.writeLong(sellBrokerIds[i]);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            size = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (size > 0)
+                flush();
+            out.close();
+        }
+    }
+}
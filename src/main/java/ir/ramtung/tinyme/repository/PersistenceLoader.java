@@ -0,0 +1,186 @@
+package ir.ramtung.tinyme.repository;
+
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.exceptions.CsvValidationException;
+import ir.ramtung.tinyme.domain.entity.*;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+@Component
+public class PersistenceLoader {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final String location;
+    private final ResourceLoader resourceLoader;
+    private final BrokerRepository brokerRepository;
+    private final SecurityRepository securityRepository;
+    private final ShareholderRepository shareholderRepository;
+
+    public PersistenceLoader(@Value("${persistenceLocation:}") String location, ResourceLoader resourceLoader,
+                             BrokerRepository brokerRepository, SecurityRepository securityRepository,
+                             ShareholderRepository shareholderRepository) {
+        this.location = location;
+        this.resourceLoader = resourceLoader;
+        this.brokerRepository = brokerRepository;
+        this.securityRepository = securityRepository;
+        this.shareholderRepository = shareholderRepository;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (location.isBlank())
+            return;
+        long start = System.nanoTime();
+        int brokers = loadBrokers();
+        int securities = loadSecurities();
+        int shareholders = loadShareholders();
+        int positions = loadPositions();
+        int orders = loadOrderBooks();
+        log.info("Loaded " + brokers + " brokers, " + securities + " securities, " + shareholders + " shareholders, "
+                + positions + " positions and " + orders + " orders from " + location + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    private int loadBrokers() {
+        Resource resource = resource("broker.csv");
+        brokerRepository.reserve(countRows(resource));
+        return read(resource, row -> brokerRepository.addBroker(Broker.builder()
+                .brokerId(Long.parseLong(row[0]))
+                .name(row[1])
+                .credit(Long.parseLong(row[2]))
+                .build()));
+    }
+
+    private int loadSecurities() {
+        Resource resource = resource("security.csv");
+        securityRepository.reserve(countRows(resource));
+        return read(resource, row -> securityRepository.addSecurity(Security.builder()
+                .isin(row[0])
+                .tickSize(Integer.parseInt(row[1]))
+                .lotSize(Integer.parseInt(row[2]))
+                .build()));
+    }
+
+    private int loadShareholders() {
+        Resource resource = resource("shareholder.csv");
+        shareholderRepository.reserve(countRows(resource));
+        return read(resource, row -> shareholderRepository.addShareholder(Shareholder.builder()
+                .shareholderId(Long.parseLong(row[0]))
+                .name(row[1])
+                .build()));
+    }
+
+    private int loadPositions() {
+        return read(resource("position.csv"), row -> shareholder(row[0]).incPosition(security(row[1]),
+                Integer.parseInt(row[2])));
+    }
+
+    private int loadOrderBooks() {
+        Map<Security, List<Order>> ordersBySecurity = new HashMap<>();
+        int orders = read(resource("orderbook.csv"), row -> {
+            Security security = security(row[1]);
+            ordersBySecurity.computeIfAbsent(security, s -> new ArrayList<>()).add(order(security, row));
+        });
+        ordersBySecurity.entrySet().parallelStream().forEach(entry -> {
+            OrderBook orderBook = entry.getKey().getOrderBook();
+            for (Order order : entry.getValue())
+                orderBook.restore(order);
+        });
+        return orders;
+    }
+
+    private Order order(Security security, String[] row) {
+        long orderId = Long.parseLong(row[0]);
+        Side side = Side.valueOf(row[2]);
+        int quantity = Integer.parseInt(row[3]);
+        int price = Integer.parseInt(row[4]);
+        Broker broker = broker(row[5]);
+        Shareholder shareholder = shareholder(row[6]);
+        LocalDateTime entryTime = LocalDateTime.parse(row[7]);
+        int peakSize = Integer.parseInt(row[8]);
+        int displayedQuantity = Integer.parseInt(row[9]);
+        int minimumExecutionQuantity = Integer.parseInt(row[10]);
+        if (peakSize == 0)
+            return new Order(orderId, security, side, quantity, price, broker, shareholder, entryTime,
+                    OrderStatus.QUEUED, minimumExecutionQuantity);
+        if (displayedQuantity == 0)
+            displayedQuantity = Math.min(peakSize, quantity);
+        return new IcebergOrder(orderId, security, side, quantity, price, broker, shareholder, entryTime, peakSize,
+                displayedQuantity, OrderStatus.QUEUED, minimumExecutionQuantity);
+    }
+
+    private Broker broker(String id) {
+        Broker broker = brokerRepository.findBrokerById(Long.parseLong(id));
+        if (broker == null)
+            throw new IllegalArgumentException("Unknown broker " + id + " in persisted data");
+        return broker;
+    }
+
+    private Shareholder shareholder(String id) {
+        Shareholder shareholder = shareholderRepository.findShareholderById(Long.parseLong(id));
+        if (shareholder == null)
+            throw new IllegalArgumentException("Unknown shareholder " + id + " in persisted data");
+        return shareholder;
+    }
+
+    private Security security(String isin) {
+        Security security = securityRepository.findSecurityByIsin(isin);
+        if (security == null)
+            throw new IllegalArgumentException("Unknown security " + isin + " in persisted data");
+        return security;
+    }
+
+    private Resource resource(String name) {
+        return resourceLoader.getResource(location + "/" + name);
+    }
+
+    private int read(Resource resource, Consumer<String[]> handler) {
+        int rows = 0;
+        try (CSVReader reader = new CSVReaderBuilder(new InputStreamReader(resource.getInputStream(),
+                StandardCharsets.UTF_8)).withSkipLines(1).build()) {
+            String[] row;
+            while ((row = reader.readNext()) != null) {
+                if (row.length == 1 && row[0].isBlank())
+                    continue;
+                handler.accept(row);
+                rows++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (CsvValidationException e) {
+            throw new IllegalArgumentException("Malformed " + resource.getFilename() + ": " + e.getMessage(), e);
+        }
+        return rows;
+    }
+
+    private static int countRows(Resource resource) {
+        int lines = 0;
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = resource.getInputStream()) {
+            int read;
+            while ((read = in.read(buffer)) > 0)
+                for (int i = 0; i < read; i++)
+                    if (buffer[i] == '\n')
+                        lines++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return lines;
+    }
+}
@@ -7,7 +7,7 @@ import java.util.HashMap;
 
 @Component
 public class SecurityRepository {
-    private final HashMap<String, Security> securityByIsin = new HashMap<>();
+    private HashMap<String, Security> securityByIsin = new HashMap<>();
     public Security findSecurityByIsin(String isin) {
         return securityByIsin.get(isin);
     }
@@ -16,11 +16,17 @@ public class SecurityRepository {
         securityByIsin.put(security.getIsin(), security);
     }
 
+    public void reserve(int expected) {
+        HashMap<String, Security> resized = new HashMap<>((int) ((expected + securityByIsin.size()) / 0.75f) + 1);
+        resized.putAll(securityByIsin);
+        securityByIsin = resized;
+    }
+
     public void clear() {
         securityByIsin.clear();
     }
 
-    Iterable<? extends Security> allSecurities() {
+    public Iterable<? extends Security> allSecurities() {
         return securityByIsin.values();
     }
 }
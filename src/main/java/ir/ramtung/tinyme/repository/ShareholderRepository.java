@@ -1,13 +1,22 @@
 package ir.ramtung.tinyme.repository;
 
 import ir.ramtung.tinyme.domain.entity.Shareholder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
-
 @Component
 public class ShareholderRepository {
-    private final HashMap<Long, Shareholder> shareholderById = new HashMap<>();
+    private final LongObjectMap<Shareholder> shareholderById;
+
+    public ShareholderRepository() {
+        this(false);
+    }
+
+    @Autowired
+    public ShareholderRepository(@Value("${shareholderTableOffHeap:false}") boolean offHeap) {
+        shareholderById = offHeap ? new OffHeapLongObjectMap<>() : new LongObjectHashMap<>();
+    }
 
     public Shareholder findShareholderById(long shareholderId) {
         return shareholderById.get(shareholderId);
@@ -17,11 +26,15 @@ public class ShareholderRepository {
         shareholderById.put(shareholder.getShareholderId(), shareholder);
     }
 
+    public void reserve(int expected) {
+        shareholderById.ensureCapacity(shareholderById.size() + expected);
+    }
+
     public void clear() {
         shareholderById.clear();
     }
 
-    Iterable<? extends Shareholder> allShareholders() {
+    public Iterable<? extends Shareholder> allShareholders() {
         return shareholderById.values();
     }
 }
@@ -23,8 +23,10 @@ import org.springframework.context.annotation.Import;
 import org.springframework.test.annotation.DirtiesContext;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatNoException;
@@ -403,4 +405,51 @@ public class AuctionMatcherTest {
         verify(eventPublisher).publish(new OrderDeletedEvent(1, 8));
         verify(eventPublisher, atLeast(2)).publish(new OpeningPriceEvent(security.getIsin(), 15490, 85));
     }
+
+    @Test
+    void opening_price_agrees_with_checking_every_order_price() {
+        Random random = new Random(7);
+        for (int round = 0; round < 1000; round++) {
+            Security book = Security.builder().isin("RND").build();
+            book.setLastTradePrice(random.nextInt(4) == 0 ? -1 : 80 + random.nextInt(50));
+            int count = 1 + random.nextInt(30);
+            for (int i = 1; i <= count; i++)
+                book.getOrderBook().enqueue(new Order(i, book, random.nextBoolean() ? Side.BUY : Side.SELL,
+                        1 + random.nextInt(50), 90 + random.nextInt(30), broker, shareholder));
+
+            int expected = openingPriceByCheckingEveryPrice(book);
+            assertThat(auctionMatcher.findOpeningPrice(book)).isEqualTo(expected);
+            assertThat(auctionMatcher.findIndicativeOpeningPrice(book)).isEqualTo(expected);
+            assertThat(auctionMatcher.getTradableQuantity(expected, book))
+                    .isEqualTo(Math.min(openQuantity(book, expected, Side.BUY), openQuantity(book, expected, Side.SELL)));
+        }
+    }
+
+    private static int openQuantity(Security security, int price, Side side) {
+        var queue = side == Side.BUY ? security.getOrderBook().getBuyQueue() : security.getOrderBook().getSellQueue();
+        return queue.stream().filter(order -> order.canTradeWithPrice(price)).mapToInt(Order::getAllQuantity).sum();
+    }
+
+    private static int openingPriceByCheckingEveryPrice(Security security) {
+        int lastTradePrice = security.getLastTradePrice();
+        List<Integer> prices = new ArrayList<>();
+        security.getOrderBook().getBuyQueue().forEach(order -> prices.add(order.getPrice()));
+        security.getOrderBook().getSellQueue().forEach(order -> prices.add(order.getPrice()));
+        prices.add(lastTradePrice);
+        int maxTrade = 0;
+        int maxPrice = -1;
+        for (int price : prices) {
+            int tradable = Math.min(openQuantity(security, price, Side.BUY), openQuantity(security, price, Side.SELL));
+            if (tradable > maxTrade) {
+                maxTrade = tradable;
+                maxPrice = price;
+            } else if (tradable == maxTrade) {
+                int distance = Math.abs(price - lastTradePrice);
+                int maxDistance = Math.abs(maxPrice - lastTradePrice);
+                if (distance < maxDistance || (distance == maxDistance && price < maxPrice))
+                    maxPrice = price;
+            }
+        }
+        return maxPrice;
+    }
 }
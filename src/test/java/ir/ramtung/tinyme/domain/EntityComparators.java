@@ -0,0 +1,26 @@
+package ir.ramtung.tinyme.domain;
+
+import ir.ramtung.tinyme.domain.entity.Order;
+import ir.ramtung.tinyme.domain.entity.Trade;
+
+import java.util.Comparator;
+
+/**
+ * Orders are equal by id and side and trades by their order ids, so assertions that care about
+ * quantities and statuses compare them field by field through these.
+ */
+final class EntityComparators {
+    static final Comparator<Order> ORDER_STATE = Comparator.comparingLong(Order::getOrderId)
+            .thenComparing(Order::getSide)
+            .thenComparingInt(Order::getPrice)
+            .thenComparingInt(Order::getQuantity)
+            .thenComparing(Order::getStatus);
+
+    static final Comparator<Trade> TRADE_STATE = Comparator.comparingInt(Trade::getPrice)
+            .thenComparingInt(Trade::getQuantity)
+            .thenComparing(Trade::getBuy, ORDER_STATE)
+            .thenComparing(Trade::getSell, ORDER_STATE);
+
+    private EntityComparators() {
+    }
+}
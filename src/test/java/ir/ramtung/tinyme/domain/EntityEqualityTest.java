@@ -0,0 +1,88 @@
+package ir.ramtung.tinyme.domain;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EntityEqualityTest {
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 3, 1, 9, 0);
+
+    private Security security;
+    private Broker broker;
+    private Shareholder shareholder;
+
+    @BeforeEach
+    void setup() {
+        security = Security.builder().isin("ABC").build();
+        broker = Broker.builder().brokerId(1).build();
+        shareholder = Shareholder.builder().shareholderId(1).build();
+    }
+
+    private Order order(long orderId, Side side, int quantity) {
+        return new Order(orderId, security, side, quantity, 15000, broker, shareholder, TIME);
+    }
+
+    @Test
+    void orders_are_equal_by_id_and_side_whatever_their_state() {
+        Order order = order(1, Side.BUY, 100);
+        Order changed = new Order(1, security, Side.BUY, 40, 15100, broker, shareholder, TIME, OrderStatus.QUEUED);
+
+        assertThat(changed).isEqualTo(order).hasSameHashCodeAs(order);
+        assertThat(order).isEqualTo(changed);
+        assertThat(order(1, Side.SELL, 100)).isNotEqualTo(order);
+        assertThat(order(2, Side.BUY, 100)).isNotEqualTo(order);
+        assertThat(order).isNotEqualTo(null).isNotEqualTo("1");
+    }
+
+    @Test
+    void an_iceberg_equals_a_plain_order_with_the_same_id_and_side() {
+        Order plain = order(1, Side.SELL, 500);
+        IcebergOrder iceberg = new IcebergOrder(1, security, Side.SELL, 500, 15000, broker, shareholder, TIME, 100);
+
+        assertThat(iceberg).isEqualTo(plain).hasSameHashCodeAs(plain);
+        assertThat(plain).isEqualTo(iceberg);
+        assertThat(new StopLimitOrder(1, security, Side.SELL, 500, 15000, broker, shareholder, TIME,
+                OrderStatus.NEW, 14900)).isEqualTo(plain).isEqualTo(iceberg);
+    }
+
+    @Test
+    void a_snapshot_stays_equal_to_its_live_order_as_the_order_changes() {
+        IcebergOrder live = new IcebergOrder(1, security, Side.SELL, 500, 15000, broker, shareholder, TIME, 100);
+        Order snapshot = live.snapshot();
+        Order partial = live.snapshotWithQuantity(30);
+
+        live.decreaseQuantity(100);
+        live.replenish();
+
+        assertThat(snapshot.getStatus()).isEqualTo(OrderStatus.SNAPSHOT);
+        assertThat(snapshot).isEqualTo(live).hasSameHashCodeAs(live);
+        assertThat(partial).isEqualTo(live).isEqualTo(snapshot).hasSameHashCodeAs(live);
+        assertThat(snapshot).usingComparator(EntityComparators.ORDER_STATE).isNotEqualTo(live);
+    }
+
+    @Test
+    void trades_are_equal_by_price_quantity_and_order_ids_but_not_by_snapshot_state() {
+        Order buy = order(1, Side.BUY, 100);
+        Order sell = order(2, Side.SELL, 100);
+        Trade trade = new Trade(security, 15000, 60, buy.snapshotWithQuantity(100), sell.snapshotWithQuantity(100));
+        Trade later = new Trade(security, 15000, 60, buy.snapshotWithQuantity(40), sell.snapshotWithQuantity(40));
+
+        assertThat(later).isEqualTo(trade).hasSameHashCodeAs(trade);
+        assertThat(later).usingComparator(EntityComparators.TRADE_STATE).isNotEqualTo(trade);
+        assertThat(new Trade(security, 15000, 50, buy, sell)).isNotEqualTo(trade);
+        assertThat(new Trade(security, 15100, 60, buy, sell)).isNotEqualTo(trade);
+        assertThat(new Trade(security, 15000, 60, order(3, Side.BUY, 100), sell)).isNotEqualTo(trade);
+        assertThat(new Trade(Security.builder().isin("XYZ").build(), 15000, 60, buy, sell)).isNotEqualTo(trade);
+    }
+
+    @Test
+    void securities_are_equal_by_isin() {
+        Security same = Security.builder().isin("ABC").tickSize(10).build();
+        assertThat(same).isEqualTo(security).hasSameHashCodeAs(security);
+        assertThat(Security.builder().isin("XYZ").build()).isNotEqualTo(security);
+    }
+}
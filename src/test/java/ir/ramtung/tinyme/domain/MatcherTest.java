@@ -15,6 +15,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import static ir.ramtung.tinyme.domain.entity.Side.BUY;
+import static ir.ramtung.tinyme.domain.EntityComparators.TRADE_STATE;
 import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest
@@ -95,10 +96,28 @@ public class MatcherTest {
 
         MatchResult result = matcher.match(order);
         assertThat(result.remainder().getQuantity()).isEqualTo(160);
-        assertThat(result.trades()).isEqualTo(trades);
+        assertThat(result.trades()).usingElementComparator(TRADE_STATE).containsExactlyElementsOf(trades);
         assertThat(security.getOrderBook().getSellQueue()).isEmpty();
     }
 
+    @Test
+    void new_sell_order_fills_record_prices_quantities_and_order_ids() {
+        Order order = new Order(11, security, Side.SELL, 500, 15500, broker, shareholder);
+        MatchResult result = matcher.match(order);
+        Fills fills = result.fills();
+        assertThat(fills.size()).isEqualTo(2);
+        assertThat(fills.price(0)).isEqualTo(15700);
+        assertThat(fills.quantity(0)).isEqualTo(304);
+        assertThat(fills.buyOrderId(0)).isEqualTo(1);
+        assertThat(fills.sellOrderId(0)).isEqualTo(11);
+        assertThat(fills.price(1)).isEqualTo(15500);
+        assertThat(fills.quantity(1)).isEqualTo(43);
+        assertThat(fills.buyOrderId(1)).isEqualTo(2);
+        assertThat(fills.lastPrice()).isEqualTo(15500);
+        assertThat(fills.totalQuantity()).isEqualTo(347);
+        assertThat(fills.totalTradedValue()).isEqualTo(304L * 15700 + 43L * 15500);
+    }
+
     @Test
     void new_buy_order_does_not_match() {
         Order order = new Order(11, security, BUY, 2000, 15500, broker, shareholder);
@@ -129,7 +148,7 @@ public class MatcherTest {
         MatchResult result = matcher.match(order);
 
         assertThat(result.remainder().getQuantity()).isEqualTo(80);
-        assertThat(result.trades()).isEqualTo(trades);
+        assertThat(result.trades()).usingElementComparator(TRADE_STATE).containsExactlyElementsOf(trades);
     }
 
     @Test
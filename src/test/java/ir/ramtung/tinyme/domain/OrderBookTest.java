@@ -7,6 +7,7 @@ import org.junit.jupiter.api.Test;
 import java.util.Arrays;
 import java.util.List;
 
+import static ir.ramtung.tinyme.domain.EntityComparators.ORDER_STATE;
 import static org.assertj.core.api.Assertions.assertThat;
 
 class OrderBookTest {
@@ -60,20 +61,199 @@ class OrderBookTest {
     void removes_the_first_order_by_id() {
         OrderBook orderBook = security.getOrderBook();
         orderBook.removeByOrderId(Side.BUY, 1);
-        assertThat(orderBook.getBuyQueue()).isEqualTo(orders.subList(1, 5));
+        assertThat(orderBook.getBuyQueue()).usingElementComparator(ORDER_STATE).containsExactlyElementsOf(orders.subList(1, 5));
     }
 
     @Test
     void fails_to_remove_the_first_order_by_id_in_the_wrong_queue() {
         OrderBook orderBook = security.getOrderBook();
         orderBook.removeByOrderId(Side.SELL, 1);
-        assertThat(orderBook.getBuyQueue()).isEqualTo(orders.subList(0, 5));
+        assertThat(orderBook.getBuyQueue()).usingElementComparator(ORDER_STATE).containsExactlyElementsOf(orders.subList(0, 5));
     }
 
     @Test
     void removes_the_last_order_by_id() {
         OrderBook orderBook = security.getOrderBook();
         orderBook.removeByOrderId(Side.SELL, 10);
-        assertThat(orderBook.getSellQueue()).isEqualTo(orders.subList(5, 9));
+        assertThat(orderBook.getSellQueue()).usingElementComparator(ORDER_STATE).containsExactlyElementsOf(orders.subList(5, 9));
     }
-}
\ No newline at end of file
+
+    @Test
+    void enqueues_after_orders_with_the_same_price() {
+        Order order = new Order(11, security, Side.BUY, 100, 15450, orders.get(0).getBroker(), orders.get(0).getShareholder());
+        security.getOrderBook().enqueue(order);
+        assertThat(security.getOrderBook().getBuyQueue()).usingElementComparator(ORDER_STATE)
+                .containsExactly(orders.get(0), orders.get(1), orders.get(2), orders.get(3), order, orders.get(4));
+    }
+
+    @Test
+    void removes_the_first_order_and_moves_to_the_next_price() {
+        OrderBook orderBook = security.getOrderBook();
+        orderBook.removeFirst(Side.SELL);
+        assertThat(orderBook.getSellQueue().getFirst()).usingComparator(ORDER_STATE).isEqualTo(orders.get(6));
+        orderBook.removeFirst(Side.SELL);
+        orderBook.removeFirst(Side.SELL);
+        assertThat(orderBook.getSellQueue()).usingElementComparator(ORDER_STATE).containsExactlyElementsOf(orders.subList(8, 10));
+    }
+
+    @Test
+    void puts_back_an_order_before_orders_with_the_same_price() {
+        OrderBook orderBook = security.getOrderBook();
+        Order first = orderBook.getSellQueue().getFirst();
+        orderBook.removeFirst(Side.SELL);
+        orderBook.putBack(first);
+        assertThat(orderBook.getSellQueue()).usingElementComparator(ORDER_STATE).containsExactlyElementsOf(orders.subList(5, 10));
+    }
+
+    @Test
+    void does_not_find_an_order_after_it_is_removed_from_the_front() {
+        OrderBook orderBook = security.getOrderBook();
+        orderBook.removeFirst(Side.BUY);
+        assertThat(orderBook.findByOrderId(Side.BUY, 1)).isNull();
+        assertThat(orderBook.findByOrderId(Side.BUY, 2)).usingComparator(ORDER_STATE).isEqualTo(orders.get(1));
+    }
+
+    @Test
+    void removes_some_order_in_the_middle_by_id() {
+        OrderBook orderBook = security.getOrderBook();
+        orderBook.removeByOrderId(Side.BUY, 3);
+        assertThat(orderBook.getBuyQueue())
+                .containsExactly(orders.get(0), orders.get(1), orders.get(3), orders.get(4));
+        assertThat(orderBook.findByOrderId(Side.BUY, 3)).isNull();
+    }
+
+    @Test
+    void keeps_sell_quantity_of_shareholder_in_step_with_the_queue() {
+        OrderBook orderBook = security.getOrderBook();
+        Shareholder shareholder = orders.get(0).getShareholder();
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(1840);
+
+        orderBook.decreaseQuantity(orders.get(5), 50);
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(1790);
+
+        orderBook.removeFirst(Side.SELL);
+        orderBook.removeByOrderId(Side.SELL, 10);
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(1425);
+
+        orderBook.removeByOrderId(Side.BUY, 1);
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(1425);
+    }
+
+    @Test
+    void counts_hidden_quantity_of_iceberg_sell_orders() {
+        OrderBook orderBook = security.getOrderBook();
+        Shareholder other = Shareholder.builder().shareholderId(2).build();
+        IcebergOrder iceberg = new IcebergOrder(11, security, Side.SELL, 500, 15900, orders.get(0).getBroker(), other, 100);
+        orderBook.enqueue(iceberg);
+        orderBook.decreaseQuantity(iceberg, 100);
+        assertThat(orderBook.totalSellQuantityByShareholder(other)).isEqualTo(400);
+        iceberg.replenish();
+        assertThat(orderBook.totalSellQuantityByShareholder(other)).isEqualTo(400);
+    }
+
+    @Test
+    void answers_tradable_quantity_at_a_price() {
+        OrderBook orderBook = security.getOrderBook();
+        assertThat(orderBook.getTradableQuantity(15450, Side.BUY)).isEqualTo(304 + 43 + 445 + 526);
+        assertThat(orderBook.getTradableQuantity(15451, Side.BUY)).isEqualTo(304 + 43);
+        assertThat(orderBook.getTradableQuantity(15810, Side.SELL)).isEqualTo(350 + 285 + 800);
+        assertThat(orderBook.getTradableQuantity(15799, Side.SELL)).isZero();
+
+        orderBook.decreaseQuantity(orders.get(0), 4);
+        orderBook.removeByOrderId(Side.BUY, 3);
+        assertThat(orderBook.getTradableQuantity(15450, Side.BUY)).isEqualTo(300 + 43 + 526);
+    }
+
+    @Test
+    void keeps_running_counts_for_the_gauges() {
+        OrderBook orderBook = security.getOrderBook();
+        assertThat(orderBook.getOrderCount(Side.BUY)).isEqualTo(5);
+        assertThat(orderBook.getOrderCount(Side.SELL)).isEqualTo(5);
+        assertThat(orderBook.getLevelCount(Side.BUY)).isEqualTo(4);
+        assertThat(orderBook.getLevelCount(Side.SELL)).isEqualTo(3);
+        assertThat(orderBook.getBestPrice(Side.BUY)).isEqualTo(15700);
+        assertThat(orderBook.getBestPrice(Side.SELL)).isEqualTo(15800);
+        assertThat(orderBook.getRestingQuantity(Side.SELL)).isEqualTo(350 + 285 + 800 + 340 + 65);
+
+        orderBook.removeByOrderId(Side.BUY, 1);
+        assertThat(orderBook.getOrderCount(Side.BUY)).isEqualTo(4);
+        assertThat(orderBook.getLevelCount(Side.BUY)).isEqualTo(3);
+        assertThat(orderBook.getBestPrice(Side.BUY)).isEqualTo(15500);
+        assertThat(orderBook.estimatedRetainedBytes()).isPositive();
+    }
+
+    @Test
+    void best_prices_follow_levels_as_they_open_and_empty() {
+        OrderBook orderBook = security.getOrderBook();
+        Broker broker = Broker.builder().build();
+        Shareholder shareholder = Shareholder.builder().build();
+        orderBook.enqueue(new Order(20, security, Side.BUY, 10, 15750, broker, shareholder));
+        assertThat(orderBook.getBestPrice(Side.BUY)).isEqualTo(15750);
+
+        orderBook.removeFirst(Side.BUY);
+        assertThat(orderBook.getBestPrice(Side.BUY)).isEqualTo(15700);
+        orderBook.removeAll(null, null, Side.SELL);
+        assertThat(orderBook.getBestPrice(Side.SELL)).isZero();
+        assertThat(orderBook.getBestPrice(Side.BUY)).isEqualTo(15700);
+    }
+
+    @Test
+    void tracks_hidden_iceberg_quantity() {
+        OrderBook orderBook = security.getOrderBook();
+        Broker broker = Broker.builder().build();
+        Shareholder shareholder = Shareholder.builder().build();
+        IcebergOrder iceberg = new IcebergOrder(20, security, Side.SELL, 500, 15900, broker, shareholder, 100);
+        orderBook.enqueue(iceberg);
+        assertThat(orderBook.getHiddenQuantity(Side.SELL)).isEqualTo(400);
+
+        orderBook.decreaseQuantity(iceberg, 100);
+        assertThat(orderBook.getHiddenQuantity(Side.SELL)).isEqualTo(400);
+        orderBook.replenish(iceberg);
+        assertThat(orderBook.getHiddenQuantity(Side.SELL)).isEqualTo(300);
+
+        orderBook.removeByOrderId(Side.SELL, 20);
+        assertThat(orderBook.getHiddenQuantity(Side.SELL)).isZero();
+        assertThat(orderBook.getHiddenQuantity(Side.BUY)).isZero();
+    }
+
+    @Test
+    void removes_all_orders_of_a_broker_on_a_side_and_keeps_the_rest_reachable() {
+        OrderBook orderBook = security.getOrderBook();
+        Broker other = Broker.builder().brokerId(2).build();
+        Shareholder shareholder = orders.get(0).getShareholder();
+        Order otherBuy = new Order(11, security, Side.BUY, 100, 15450, other, shareholder);
+        Order otherSell = new Order(12, security, Side.SELL, 100, 15810, other, shareholder);
+        orderBook.enqueue(otherBuy);
+        orderBook.enqueue(otherSell);
+        orderBook.removeByOrderId(Side.BUY, 3);
+
+        assertThat(orderBook.removeAll(orders.get(0).getBroker(), null, Side.BUY))
+                .containsExactlyInAnyOrder(orders.get(0), orders.get(1), orders.get(3), orders.get(4));
+        assertThat(orderBook.getBuyQueue()).containsExactly(otherBuy);
+        assertThat(orderBook.findByOrderId(Side.BUY, 4)).isNull();
+        assertThat(orderBook.getSellQueue()).hasSize(6);
+
+        assertThat(orderBook.removeAll(other, null, null)).containsExactlyInAnyOrder(otherBuy, otherSell);
+        assertThat(orderBook.removeAll(other, null, null)).isEmpty();
+        assertThat(orderBook.getSellQueue()).isEqualTo(orders.subList(5, 10));
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(1840);
+    }
+
+    @Test
+    void removes_all_orders_of_a_shareholder_or_a_whole_side() {
+        OrderBook orderBook = security.getOrderBook();
+        Shareholder other = Shareholder.builder().shareholderId(2).build();
+        Order otherSell = new Order(11, security, Side.SELL, 100, 15810, orders.get(0).getBroker(), other);
+        orderBook.enqueue(otherSell);
+
+        assertThat(orderBook.removeAll(null, other, Side.SELL)).containsExactly(otherSell);
+        assertThat(orderBook.totalSellQuantityByShareholder(other)).isZero();
+        assertThat(orderBook.getSellQueue()).isEqualTo(orders.subList(5, 10));
+
+        assertThat(orderBook.removeAll(null, null, Side.SELL)).isEqualTo(orders.subList(5, 10));
+        assertThat(orderBook.hasOrderOfType(Side.SELL)).isFalse();
+        assertThat(orderBook.removeAll(null, orders.get(0).getShareholder(), null))
+                .containsExactlyInAnyOrderElementsOf(orders.subList(0, 5));
+        assertThat(orderBook.getOrderCount(Side.BUY)).isZero();
+    }
+}
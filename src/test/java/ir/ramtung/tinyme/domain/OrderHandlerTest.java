@@ -3,6 +3,7 @@ package ir.ramtung.tinyme.domain;
 import ir.ramtung.tinyme.config.MockedJMSTestConfig;
 import ir.ramtung.tinyme.domain.entity.*;
 import ir.ramtung.tinyme.domain.service.AuctionMatcher;
+import ir.ramtung.tinyme.domain.service.EnterOrderContext;
 import ir.ramtung.tinyme.domain.service.Matcher;
 import ir.ramtung.tinyme.domain.service.OrderHandler;
 import ir.ramtung.tinyme.messaging.EventPublisher;
@@ -13,6 +14,7 @@ import ir.ramtung.tinyme.messaging.exception.InvalidRequestException;
 import ir.ramtung.tinyme.messaging.request.ChangeMatchingStateRq;
 import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
 import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MassCancelRq;
 import ir.ramtung.tinyme.messaging.request.MatchingState;
 import ir.ramtung.tinyme.repository.BrokerRepository;
 import ir.ramtung.tinyme.repository.SecurityRepository;
@@ -93,6 +95,26 @@ public class OrderHandlerTest {
                 verify(eventPublisher).publish(new OrderExecutedEvent(1, 200, List.of(new TradeDTO(trade))));
         }
 
+        @Test
+        void executed_trades_are_recorded_on_the_security_trade_tape() {
+                security.getOrderBook().enqueue(new Order(100, security, Side.BUY, 300, 15500, broker1, shareholder));
+                security.getOrderBook().enqueue(new Order(110, security, Side.BUY, 300, 15400, broker1, shareholder));
+
+                orderHandler.handleEnterOrder(
+                                EnterOrderRq.createNewOrderRq(1, "ABC", 200, LocalDateTime.now(), Side.SELL, 500,
+                                                15400, 2, shareholder.getShareholderId(), 0));
+
+                TradeTape tape = security.getTradeTape();
+                assertThat(tape.size()).isEqualTo(2);
+                assertThat(tape.price(0)).isEqualTo(15500);
+                assertThat(tape.quantity(0)).isEqualTo(300);
+                assertThat(tape.buyOrderId(1)).isEqualTo(110);
+                assertThat(tape.sellOrderId(1)).isEqualTo(200);
+                assertThat(tape.quantity(1)).isEqualTo(200);
+                assertThat(tape.buyBrokerId(1)).isEqualTo(1);
+                assertThat(tape.sellBrokerId(1)).isEqualTo(2);
+        }
+
         @Test
         void new_order_queued_with_no_trade() {
                 orderHandler.handleEnterOrder(
@@ -193,6 +215,51 @@ public class OrderHandlerTest {
                                 Message.PRICE_NOT_MULTIPLE_OF_TICK_SIZE);
         }
 
+        @Test
+        void stateless_rejection_is_published_before_reaching_the_shard() {
+                EnterOrderContext context = orderHandler.prevalidateEnterOrder(
+                                EnterOrderRq.createNewOrderRq(1, "ABC", 200, LocalDateTime.now(), Side.SELL, 0,
+                                                15450, 7, shareholder.getShareholderId(), 0));
+
+                assertThat(context).isNull();
+                verify(eventPublisher).publish(new OrderRejectedEvent(1, 200, List.of(
+                                Message.ORDER_QUANTITY_NOT_POSITIVE,
+                                Message.UNKNOWN_BROKER_ID,
+                                Message.INVALID_PEAK_SIZE)));
+                assertThat(security.getOrderBook().getOrderCount(Side.SELL)).isZero();
+        }
+
+        @Test
+        void prevalidated_order_is_accepted_by_its_shard() {
+                EnterOrderContext context = orderHandler.prevalidateEnterOrder(
+                                EnterOrderRq.createNewOrderRq(1, "ABC", 200, LocalDateTime.now(), Side.SELL, 300,
+                                                15450, 2, shareholder.getShareholderId(), 0));
+
+                assertThat(context.prevalidated()).isTrue();
+                assertThat(context.security()).isSameAs(security);
+                verify(eventPublisher, never()).publish(any());
+                orderHandler.handleEnterOrder(context);
+                verify(eventPublisher).publish(new OrderAcceptedEvent(1, 200));
+        }
+
+        @Test
+        void stateless_rejection_that_the_auction_could_extend_is_left_to_the_shard() {
+                assertThatNoException().isThrownBy(() -> orderHandler.handleChangeMatchingStateRq(
+                                new ChangeMatchingStateRq(1, security.getIsin(), MatchingState.AUCTION)));
+                reset(eventPublisher);
+
+                EnterOrderContext context = orderHandler.prevalidateEnterOrder(
+                                EnterOrderRq.createNewOrderRq(2, "ABC", 200, LocalDateTime.now(), Side.BUY, 300,
+                                                -15450, 1, shareholder.getShareholderId(), 0, 0, 15000));
+
+                assertThat(context.prevalidated()).isFalse();
+                verify(eventPublisher, never()).publish(any());
+                orderHandler.handleEnterOrder(context);
+                verify(eventPublisher).publish(new OrderRejectedEvent(2, 200, List.of(
+                                Message.ORDER_PRICE_NOT_POSITIVE,
+                                Message.AUCTION_CANNOT_HANDLE_STOP_LIMIT_ORDER)));
+        }
+
         @Test
         void update_order_causing_no_trades() {
                 Order queuedOrder = new Order(200, security, Side.SELL, 500, 15450, broker1, shareholder);
@@ -670,4 +737,46 @@ public class OrderHandlerTest {
                                 .publish(new OrderExecutedEvent(1, 200,
                                                 List.of(new TradeDTO(trade1), new TradeDTO(trade2))));
         }
+
+        @Test
+        void mass_cancel_of_a_broker_spans_securities_and_refunds_buy_credit() {
+                Security other = Security.builder().isin("XYZ").build();
+                securityRepository.addSecurity(other);
+                shareholder.incPosition(other, 100_000);
+                Broker broker = Broker.builder().brokerId(10).credit(10_000_000).build();
+                Broker bystander = Broker.builder().brokerId(20).credit(10_000_000).build();
+                brokerRepository.addBroker(broker);
+                brokerRepository.addBroker(bystander);
+                long shareholderId = shareholder.getShareholderId();
+                orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(1, "ABC", 100, LocalDateTime.now(),
+                                Side.BUY, 100, 15500, 10, shareholderId, 0));
+                orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(2, "ABC", 110, LocalDateTime.now(),
+                                Side.SELL, 50, 15800, 10, shareholderId, 0));
+                orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(3, "ABC", 120, LocalDateTime.now(),
+                                Side.BUY, 200, 15400, 20, shareholderId, 0));
+                orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(4, "XYZ", 130, LocalDateTime.now(),
+                                Side.BUY, 10, 15000, 10, shareholderId, 0, 0, 16000));
+                assertThat(broker.getCredit()).isEqualTo(10_000_000 - 100 * 15500 - 10 * 15000);
+
+                orderHandler.handleMassCancelRq(new MassCancelRq(5, null, null, 10, 0));
+
+                verify(eventPublisher).publish(new OrderDeletedEvent(5, 100));
+                verify(eventPublisher).publish(new OrderDeletedEvent(5, 110));
+                verify(eventPublisher).publish(new OrderDeletedEvent(5, 130));
+                verify(eventPublisher).publish(new MassCancelCompletedEvent(5, 3));
+                assertThat(broker.getCredit()).isEqualTo(10_000_000);
+                assertThat(security.getOrderBook().getBuyQueue()).extracting(Order::getOrderId).containsExactly(120L);
+                assertThat(security.getOrderBook().hasOrderOfType(Side.SELL)).isFalse();
+                assertThat(other.getOrderBook().hasOrderOfType(Side.BUY)).isFalse();
+        }
+
+        @Test
+        void mass_cancel_without_a_scope_or_with_unknown_owners_is_rejected() {
+                orderHandler.handleMassCancelRq(new MassCancelRq(1, null, Side.BUY, 0, 0));
+                orderHandler.handleMassCancelRq(new MassCancelRq(2, "ABC", null, 99, 0));
+
+                verify(eventPublisher).publish(new OrderRejectedEvent(1, 0, List.of(Message.MASS_CANCEL_WITHOUT_SCOPE)));
+                verify(eventPublisher).publish(new OrderRejectedEvent(2, 0, List.of(Message.UNKNOWN_BROKER_ID)));
+                verify(eventPublisher, never()).publish(any(MassCancelCompletedEvent.class));
+        }
 }
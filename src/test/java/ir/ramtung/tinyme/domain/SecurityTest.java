@@ -20,6 +20,7 @@ import java.util.List;
 
 import static ir.ramtung.tinyme.domain.entity.Side.BUY;
 import static ir.ramtung.tinyme.domain.entity.Side.SELL;
+import static ir.ramtung.tinyme.domain.EntityComparators.ORDER_STATE;
 import static org.assertj.core.api.Assertions.*;
 
 @SpringBootTest
@@ -98,8 +99,9 @@ class SecurityTest {
     void delete_order_works() {
         DeleteOrderRq deleteOrderRq = new DeleteOrderRq(1, security.getIsin(), Side.SELL, 6);
         assertThatNoException().isThrownBy(() -> security.deleteOrder(deleteOrderRq));
-        assertThat(security.getOrderBook().getBuyQueue()).isEqualTo(orders.subList(0, 5));
-        assertThat(security.getOrderBook().getSellQueue()).isEqualTo(orders.subList(6, 10));
+        assertThat(security.getOrderBook().getBuyQueue()).usingElementComparator(ORDER_STATE).containsExactlyElementsOf(orders.subList(0, 5));
+        assertThat(security.getOrderBook().getSellQueue()).usingElementComparator(ORDER_STATE)
+                .containsExactlyElementsOf(orders.subList(6, 10));
     }
 
     @Test
@@ -0,0 +1,57 @@
+package ir.ramtung.tinyme.domain;
+
+import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.entity.Shareholder;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShareholderTest {
+    @Test
+    void positions_are_kept_per_security_regardless_of_insertion_order() {
+        List<Security> securities = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            securities.add(Security.builder().isin("S" + i).build());
+        List<Security> shuffled = new ArrayList<>(securities);
+        Collections.reverse(shuffled);
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).build();
+
+        for (int i = 0; i < shuffled.size(); i++)
+            shareholder.incPosition(shuffled.get(i), 100 + i);
+
+        for (int i = 0; i < shuffled.size(); i++)
+            assertThat(shareholder.getPosition(shuffled.get(i))).isEqualTo(100 + i);
+        assertThat(shareholder.getPositions()).hasSize(20);
+    }
+
+    @Test
+    void unknown_security_has_no_position() {
+        Shareholder shareholder = Shareholder.builder().build();
+        Security held = Security.builder().build();
+        shareholder.incPosition(held, 10);
+
+        Security other = Security.builder().build();
+        assertThat(shareholder.getPosition(other)).isZero();
+        assertThat(shareholder.hasEnoughPositionsOn(other, 1)).isFalse();
+        assertThat(shareholder.getPositions()).containsOnlyKeys(held);
+    }
+
+    @Test
+    void decreasing_below_zero_is_rejected_and_leaves_position_unchanged() {
+        Shareholder shareholder = Shareholder.builder().build();
+        Security security = Security.builder().build();
+        shareholder.incPosition(security, 10);
+
+        assertThatThrownBy(() -> shareholder.decPosition(security, 11)).isInstanceOf(IllegalArgumentException.class);
+        shareholder.decPosition(security, 4);
+
+        assertThat(shareholder.getPosition(security)).isEqualTo(6);
+        assertThat(shareholder.hasEnoughPositionsOn(security, 6)).isTrue();
+        assertThat(shareholder.hasEnoughPositionsOn(security, 7)).isFalse();
+    }
+}
@@ -395,4 +395,38 @@ public class StopLimitOrderTest {
         orderHandler.handleEnterOrder(stopLimitRequest);
         assertThat(broker.getCredit()).isEqualTo(100_000 - 100*45);
     }
+
+    @Test
+    void only_stop_limit_orders_whose_trigger_is_crossed_are_activated() {
+        OrderCancellationQueue queue = security.getOrderCancellationQueue();
+        queue.addToDeactivatedBuy(new StopLimitOrder(1, security, BUY, 10, 100, broker, shareholder, LocalDateTime.now(), OrderStatus.NEW, 120));
+        queue.addToDeactivatedBuy(new StopLimitOrder(2, security, BUY, 10, 100, broker, shareholder, LocalDateTime.now(), OrderStatus.NEW, 110));
+        queue.addToDeactivatedBuy(new StopLimitOrder(3, security, BUY, 10, 100, broker, shareholder, LocalDateTime.now(), OrderStatus.NEW, 110));
+        queue.addToDeactivatedSell(new StopLimitOrder(4, security, SELL, 10, 100, broker, shareholder, LocalDateTime.now(), OrderStatus.NEW, 90));
+        queue.addToDeactivatedSell(new StopLimitOrder(5, security, SELL, 10, 100, broker, shareholder, LocalDateTime.now(), OrderStatus.NEW, 115));
+
+        assertThat(queue.getActivatedOrder(-1)).isEmpty();
+        assertThat(queue.getActivatedOrder(112)).extracting("orderId").containsExactly(2L, 3L, 5L);
+        assertThat(queue.findStopLimitOrderById(2)).isNull();
+        assertThat(queue.getDeactivatedBuyOrders()).extracting("orderId").containsExactly(1L);
+        assertThat(queue.getDeactivatedSellOrders()).extracting("orderId").containsExactly(4L);
+
+        queue.removeFromDeactivatedList(4);
+        assertThat(queue.getActivatedOrder(80)).isEmpty();
+    }
+
+    @Test
+    void activated_stop_limit_orders_are_polled_by_stop_price_then_time() {
+        OrderCancellationQueue queue = security.getOrderCancellationQueue();
+        queue.addToDeactivatedBuy(new StopLimitOrder(1, security, BUY, 10, 100, broker, shareholder, LocalDateTime.now(), OrderStatus.NEW, 110));
+        queue.addToDeactivatedBuy(new StopLimitOrder(2, security, BUY, 10, 100, broker, shareholder, LocalDateTime.now(), OrderStatus.NEW, 105));
+        queue.addToDeactivatedBuy(new StopLimitOrder(3, security, BUY, 10, 100, broker, shareholder, LocalDateTime.now(), OrderStatus.NEW, 105));
+        queue.addToDeactivatedSell(new StopLimitOrder(4, security, SELL, 10, 100, broker, shareholder, LocalDateTime.now(), OrderStatus.NEW, 95));
+
+        assertThat(queue.pollActivated(108, 100).getOrderId()).isEqualTo(2);
+        assertThat(queue.pollActivated(108, 100).getOrderId()).isEqualTo(3);
+        assertThat(queue.pollActivated(108, 100)).isNull();
+        assertThat(queue.pollActivated(108, 95).getOrderId()).isEqualTo(4);
+        assertThat(queue.findStopLimitOrderById(1)).isNotNull();
+    }
 }
@@ -0,0 +1,73 @@
+package ir.ramtung.tinyme.domain;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.EnterOrderContext;
+import ir.ramtung.tinyme.domain.service.validation.Validation;
+import ir.ramtung.tinyme.messaging.Message;
+import ir.ramtung.tinyme.messaging.exception.InvalidRequestException;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatNoException;
+
+class ValidationTest {
+    private final Validation validation = new Validation();
+    private final SecurityRepository securityRepository = new SecurityRepository();
+    private final BrokerRepository brokerRepository = new BrokerRepository();
+    private final ShareholderRepository shareholderRepository = new ShareholderRepository();
+
+    @BeforeEach
+    void setup() {
+        securityRepository.addSecurity(Security.builder().isin("ABC").lotSize(10).tickSize(5).build());
+        brokerRepository.addBroker(Broker.builder().brokerId(1).build());
+        shareholderRepository.addShareholder(Shareholder.builder().shareholderId(1).build());
+    }
+
+    private EnterOrderContext context(String isin, int quantity, int price, long brokerId, long shareholderId) {
+        EnterOrderRq request = EnterOrderRq.createNewOrderRq(1, isin, 1, LocalDateTime.now(), Side.BUY, quantity,
+                price, brokerId, shareholderId, 0);
+        return EnterOrderContext.resolve(request, securityRepository, brokerRepository, shareholderRepository);
+    }
+
+    @Test
+    void context_resolves_the_request_entities() {
+        EnterOrderContext context = context("ABC", 100, 1000, 1, 1);
+        assertThat(context.security().getIsin()).isEqualTo("ABC");
+        assertThat(context.broker().getBrokerId()).isEqualTo(1);
+        assertThat(context.shareholder().getShareholderId()).isEqualTo(1);
+        assertThatNoException().isThrownBy(() -> validation.validate(context));
+    }
+
+    @Test
+    void reports_every_failed_rule_in_one_pass() {
+        assertThatExceptionOfType(InvalidRequestException.class)
+                .isThrownBy(() -> validation.validate(context("ABC", 15, 1002, 2, 2)))
+                .satisfies(e -> assertThat(e.getReasons()).containsExactly(
+                        Message.QUANTITY_NOT_MULTIPLE_OF_LOT_SIZE,
+                        Message.PRICE_NOT_MULTIPLE_OF_TICK_SIZE,
+                        Message.UNKNOWN_BROKER_ID,
+                        Message.UNKNOWN_SHAREHOLDER_ID));
+    }
+
+    @Test
+    void rejections_do_not_leak_into_later_requests() {
+        assertThatExceptionOfType(InvalidRequestException.class)
+                .isThrownBy(() -> validation.validate(context("XYZ", 100, 1000, 1, 1)));
+        assertThatNoException().isThrownBy(() -> validation.validate(context("ABC", 100, 1000, 1, 1)));
+    }
+
+    @Test
+    void stateless_rules_return_an_empty_list_when_nothing_fails() {
+        assertThat(validation.validateStateless(context("ABC", 100, 1000, 1, 1))).isEmpty();
+        assertThat(validation.validateStateless(context("ABC", 100, 1000, 2, 1)))
+                .containsExactly(Message.UNKNOWN_BROKER_ID);
+    }
+}
@@ -0,0 +1,148 @@
+package ir.ramtung.tinyme.journal;
+
+import ir.ramtung.tinyme.config.MockedJMSTestConfig;
+import ir.ramtung.tinyme.domain.entity.Broker;
+import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.entity.Shareholder;
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+@Import(MockedJMSTestConfig.class)
+@DirtiesContext
+public class JournalReplayerTest {
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 3, 1, 9, 0);
+
+    @Autowired
+    OrderHandler orderHandler;
+    @Autowired
+    EventPublisher eventPublisher;
+    @Autowired
+    SecurityRepository securityRepository;
+    @Autowired
+    BrokerRepository brokerRepository;
+    @Autowired
+    ShareholderRepository shareholderRepository;
+    @TempDir
+    Path directory;
+
+    private Security security;
+    private Broker broker;
+    private Shareholder shareholder;
+
+    @BeforeEach
+    void setup() {
+        securityRepository.clear();
+        brokerRepository.clear();
+        shareholderRepository.clear();
+        security = Security.builder().isin("ABC").build();
+        securityRepository.addSecurity(security);
+        broker = Broker.builder().brokerId(1).credit(10_000_000L).build();
+        brokerRepository.addBroker(broker);
+        shareholder = Shareholder.builder().shareholderId(1).build();
+        shareholder.incPosition(security, 10_000);
+        shareholderRepository.addShareholder(shareholder);
+    }
+
+    private SnapshotStore snapshotStore() {
+        return new SnapshotStore(directory.toString(), 2, brokerRepository, shareholderRepository, securityRepository);
+    }
+
+    private JournalReplayer replayer() {
+        return new JournalReplayer(new RequestJournal(directory.toString(), 1 << 16, JournalSyncPolicy.GROUP, 4, 1),
+                orderHandler, eventPublisher, snapshotStore(), 1);
+    }
+
+    @Test
+    void journaling_is_refused_with_more_than_one_matching_shard() {
+        RequestJournal journal = new RequestJournal(directory.toString(), 1 << 16, JournalSyncPolicy.GROUP, 4, 1);
+        assertThatThrownBy(() -> new JournalReplayer(journal, orderHandler, eventPublisher, snapshotStore(), 4))
+                .isInstanceOf(IllegalArgumentException.class);
+        RequestJournal disabled = new RequestJournal("", 1 << 16, JournalSyncPolicy.GROUP, 4, 1);
+        assertThatNoException().isThrownBy(() ->
+                new JournalReplayer(disabled, orderHandler, eventPublisher, snapshotStore(), 4));
+    }
+
+    @Test
+    void replay_rebuilds_the_book_credit_and_positions_while_events_are_muted() throws InterruptedException {
+        RequestJournal journal = new RequestJournal(directory.toString(), 1 << 16, JournalSyncPolicy.GROUP, 4, 1);
+        journal.start();
+        List<Object> requests = List.of(
+                EnterOrderRq.createNewOrderRq(1, "ABC", 1, TIME, Side.SELL, 300, 15000, 1, 1, 0),
+                EnterOrderRq.createNewOrderRq(2, "ABC", 2, TIME, Side.SELL, 200, 15100, 1, 1, 0),
+                EnterOrderRq.createNewOrderRq(3, "ABC", 3, TIME, Side.BUY, 100, 15000, 1, 1, 0),
+                new DeleteOrderRq(4, "ABC", Side.SELL, 2, TIME),
+                EnterOrderRq.createNewOrderRq(5, "ABC", 4, TIME, Side.BUY, 50, 14000, 1, 1, 0)
+        );
+        requests.forEach(journal::append);
+        journal.close();
+
+        replayer().recover();
+
+        assertThat(security.getOrderBook().findByOrderId(Side.SELL, 1).getQuantity()).isEqualTo(200);
+        assertThat(security.getOrderBook().findByOrderId(Side.SELL, 2)).isNull();
+        assertThat(security.getOrderBook().findByOrderId(Side.BUY, 4).getQuantity()).isEqualTo(50);
+        assertThat(security.getLastTradePrice()).isEqualTo(15000);
+        assertThat(broker.getCredit()).isEqualTo(10_000_000L - 50L * 14000);
+        assertThat(shareholder.getPositions().get(security)).isEqualTo(10_000);
+        InOrder inOrder = inOrder(eventPublisher);
+        inOrder.verify(eventPublisher).mute();
+        inOrder.verify(eventPublisher, atLeastOnce()).publish(any());
+        inOrder.verify(eventPublisher).unmute();
+    }
+
+    @Test
+    void recovery_loads_the_latest_snapshot_and_replays_only_the_tail() throws InterruptedException {
+        RequestJournal journal = new RequestJournal(directory.toString(), 1 << 16, JournalSyncPolicy.GROUP, 4, 1);
+        journal.start();
+        List<EnterOrderRq> head = List.of(
+                EnterOrderRq.createNewOrderRq(1, "ABC", 1, TIME, Side.SELL, 300, 15000, 1, 1, 0),
+                EnterOrderRq.createNewOrderRq(2, "ABC", 2, TIME, Side.SELL, 200, 15100, 1, 1, 0),
+                EnterOrderRq.createNewOrderRq(3, "ABC", 3, TIME, Side.BUY, 100, 15000, 1, 1, 0)
+        );
+        for (EnterOrderRq request : head) {
+            journal.append(request);
+            orderHandler.handleEnterOrder(request);
+        }
+        JournalPosition position = journal.position();
+        snapshotStore().write(position, snapshotStore().capture(position));
+        journal.append(new DeleteOrderRq(4, "ABC", Side.SELL, 2, TIME));
+        journal.append(EnterOrderRq.createNewOrderRq(5, "ABC", 4, TIME, Side.BUY, 50, 14000, 1, 1, 0));
+        journal.close();
+        securityRepository.clear();
+        brokerRepository.clear();
+        shareholderRepository.clear();
+
+        replayer().recover();
+
+        Security restored = securityRepository.findSecurityByIsin("ABC");
+        assertThat(restored.getOrderBook().getSellQueue()).hasSize(1);
+        assertThat(restored.getOrderBook().findByOrderId(Side.SELL, 1).getQuantity()).isEqualTo(200);
+        assertThat(restored.getOrderBook().findByOrderId(Side.BUY, 4).getQuantity()).isEqualTo(50);
+        assertThat(restored.getLastTradePrice()).isEqualTo(15000);
+        assertThat(brokerRepository.findBrokerById(1).getCredit()).isEqualTo(10_000_000L - 50L * 14000);
+        assertThat(shareholderRepository.findShareholderById(1).getPositions().get(restored)).isEqualTo(10_000);
+    }
+}
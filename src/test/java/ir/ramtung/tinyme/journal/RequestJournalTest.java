@@ -0,0 +1,167 @@
+package ir.ramtung.tinyme.journal;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.request.ChangeMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RequestJournalTest {
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 3, 1, 9, 0);
+
+    @TempDir
+    Path directory;
+
+    private RequestJournal journal(int segmentSize, JournalSyncPolicy syncPolicy) {
+        return new RequestJournal(directory.toString(), segmentSize, syncPolicy, 4, 1);
+    }
+
+    private List<Object> requests(int count) {
+        List<Object> requests = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (i % 10 == 9)
+                requests.add(new DeleteOrderRq(i, "ABC", Side.BUY, i - 1, TIME));
+            else
+                requests.add(EnterOrderRq.createNewOrderRq(i, "ABC", i, TIME, i % 2 == 0 ? Side.BUY : Side.SELL,
+                        100 + i, 15000 + i, 1, 1, 0));
+        }
+        requests.add(new ChangeMatchingStateRq(count, "ABC", MatchingState.AUCTION));
+        return requests;
+    }
+
+    private List<Object> replay(RequestJournal journal) {
+        List<Object> replayed = new ArrayList<>();
+        journal.replay(replayed::add);
+        return replayed;
+    }
+
+    @Test
+    void disabled_journal_ignores_appends() throws InterruptedException {
+        RequestJournal journal = new RequestJournal("", 1024, JournalSyncPolicy.GROUP, 4, 1);
+        journal.start();
+        journal.append(new ChangeMatchingStateRq(1, "ABC", MatchingState.AUCTION));
+        assertThat(journal.isEnabled()).isFalse();
+        assertThat(replay(journal)).isEmpty();
+        journal.close();
+    }
+
+    @Test
+    void appended_requests_are_replayed_in_order_after_reopening() throws InterruptedException {
+        List<Object> requests = requests(100);
+        RequestJournal journal = journal(1 << 20, JournalSyncPolicy.GROUP);
+        journal.start();
+        requests.forEach(journal::append);
+        journal.close();
+
+        assertThat(replay(journal(1 << 20, JournalSyncPolicy.GROUP))).isEqualTo(requests);
+    }
+
+    @Test
+    void full_segments_roll_over_to_new_files() throws IOException, InterruptedException {
+        List<Object> requests = requests(200);
+        RequestJournal journal = journal(1024, JournalSyncPolicy.EVERY_REQUEST);
+        journal.start();
+        requests.forEach(journal::append);
+        journal.close();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.count()).isGreaterThan(10);
+        }
+        assertThat(replay(journal(1024, JournalSyncPolicy.EVERY_REQUEST))).isEqualTo(requests);
+    }
+
+    @Test
+    void appends_after_recovery_continue_the_journal() throws InterruptedException {
+        List<Object> requests = requests(30);
+        RequestJournal first = journal(1024, JournalSyncPolicy.OS);
+        first.start();
+        requests.subList(0, 15).forEach(first::append);
+        first.close();
+
+        RequestJournal second = journal(1024, JournalSyncPolicy.OS);
+        assertThat(replay(second)).isEqualTo(requests.subList(0, 15));
+        second.start();
+        requests.subList(15, requests.size()).forEach(second::append);
+        second.close();
+
+        assertThat(replay(journal(1024, JournalSyncPolicy.OS))).isEqualTo(requests);
+    }
+
+    @Test
+    void replay_stops_at_a_torn_record() throws IOException, InterruptedException {
+        List<Object> requests = requests(5);
+        RequestJournal journal = journal(1 << 16, JournalSyncPolicy.EVERY_REQUEST);
+        journal.start();
+        requests.forEach(journal::append);
+        journal.close();
+
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        List<Object> intact = replay(journal(1 << 16, JournalSyncPolicy.EVERY_REQUEST));
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            long lastRecordBody = Files.size(segment) - 1;
+            while (lastRecordBody > 0) {
+                file.seek(lastRecordBody);
+                if (file.read() != 0)
+                    break;
+                lastRecordBody--;
+            }
+            file.seek(lastRecordBody);
+            file.write(0x7F);
+        }
+
+        assertThat(intact).isEqualTo(requests);
+        assertThat(replay(journal(1 << 16, JournalSyncPolicy.EVERY_REQUEST))).isEqualTo(requests.subList(0, 5));
+    }
+
+    @Test
+    void replay_from_a_position_skips_everything_before_it() throws InterruptedException {
+        List<Object> requests = requests(60);
+        RequestJournal journal = journal(1024, JournalSyncPolicy.OS);
+        journal.start();
+        requests.subList(0, 25).forEach(journal::append);
+        JournalPosition position = journal.position();
+        requests.subList(25, requests.size()).forEach(journal::append);
+        journal.close();
+
+        List<Object> tail = new ArrayList<>();
+        journal(1024, JournalSyncPolicy.OS).replay(position, tail::add);
+        assertThat(tail).isEqualTo(requests.subList(25, requests.size()));
+    }
+
+    @Test
+    void segments_before_a_position_can_be_discarded() throws IOException, InterruptedException {
+        List<Object> requests = requests(60);
+        RequestJournal journal = journal(1024, JournalSyncPolicy.OS);
+        journal.start();
+        requests.subList(0, 40).forEach(journal::append);
+        JournalPosition position = journal.position();
+        requests.subList(40, requests.size()).forEach(journal::append);
+
+        assertThat(journal.discardBefore(position.segment())).isEqualTo(position.segment());
+        journal.close();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.map(path -> path.getFileName().toString()))
+                    .noneMatch(name -> name.equals(String.format("requests-%08d.journal", position.segment() - 1)));
+        }
+        List<Object> tail = new ArrayList<>();
+        journal(1024, JournalSyncPolicy.OS).replay(position, tail::add);
+        assertThat(tail).isEqualTo(requests.subList(40, requests.size()));
+    }
+}
@@ -0,0 +1,173 @@
+package ir.ramtung.tinyme.journal;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SnapshotCodecTest {
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 3, 1, 9, 0, 0, 123_456_789);
+
+    private final SnapshotCodec codec = new SnapshotCodec();
+    private BrokerRepository brokerRepository;
+    private ShareholderRepository shareholderRepository;
+    private SecurityRepository securityRepository;
+    private Security security;
+
+    @BeforeEach
+    void setup() {
+        brokerRepository = new BrokerRepository();
+        shareholderRepository = new ShareholderRepository();
+        securityRepository = new SecurityRepository();
+        security = Security.builder().isin("ABC").tickSize(5).lotSize(10).lastTradePrice(15200)
+                .pendingHighTradePrice(15300).pendingLowTradePrice(15100).state(MatchingState.AUCTION).build();
+        securityRepository.addSecurity(security);
+        Broker broker = Broker.builder().brokerId(1).name("b1").credit(123_456_789L).build();
+        brokerRepository.addBroker(broker);
+        Shareholder shareholder = Shareholder.builder().shareholderId(7).build();
+        shareholder.incPosition(security, 5_000);
+        shareholderRepository.addShareholder(shareholder);
+
+        OrderBook orderBook = security.getOrderBook();
+        orderBook.enqueue(new Order(1, security, Side.BUY, 300, 15000, broker, shareholder, TIME, 50));
+        orderBook.enqueue(new Order(2, security, Side.BUY, 200, 15000, broker, shareholder, TIME));
+        IcebergOrder iceberg = new IcebergOrder(3, security, Side.SELL, 1000, 15500, broker, shareholder, TIME, 300);
+        orderBook.enqueue(iceberg);
+        orderBook.decreaseQuantity(iceberg, 120);
+        orderBook.enqueue(new Order(4, security, Side.SELL, 100, 15600, broker, shareholder, TIME));
+        security.getOrderCancellationQueue().addToDeactivatedBuy(
+                new StopLimitOrder(5, security, Side.BUY, 40, 16000, broker, shareholder, TIME, OrderStatus.NEW, 15900));
+        security.getOrderCancellationQueue().addToDeactivatedSell(
+                new StopLimitOrder(6, security, Side.SELL, 60, 14000, broker, shareholder, TIME, OrderStatus.NEW, 14100));
+        security.getTradeTape().record(15200, 70, 11, 12, 1, 1);
+        security.getTradeTape().record(15300, 30, 13, 14, 1, 1);
+    }
+
+    private JournalPosition roundTrip(byte[] snapshot) {
+        brokerRepository.clear();
+        shareholderRepository.clear();
+        securityRepository.clear();
+        return codec.decode(snapshot, brokerRepository, shareholderRepository, securityRepository);
+    }
+
+    private static <T extends Order> void assertSameOrders(List<T> actual, List<T> expected) {
+        assertThat(actual).usingRecursiveFieldByFieldElementComparatorIgnoringFields("security", "broker", "shareholder")
+                .containsExactlyElementsOf(expected);
+        for (int i = 0; i < actual.size(); i++) {
+            assertThat(actual.get(i).getClass()).isEqualTo(expected.get(i).getClass());
+            assertThat(actual.get(i).getBroker().getBrokerId()).isEqualTo(expected.get(i).getBroker().getBrokerId());
+            assertThat(actual.get(i).getShareholder().getShareholderId())
+                    .isEqualTo(expected.get(i).getShareholder().getShareholderId());
+        }
+    }
+
+    @Test
+    void snapshot_round_trips_books_stop_orders_trades_credit_and_positions() {
+        List<Order> buys = security.getOrderBook().getBuyQueue();
+        List<Order> sells = security.getOrderBook().getSellQueue();
+        List<StopLimitOrder> stopBuys = security.getOrderCancellationQueue().getDeactivatedBuyOrders();
+        List<StopLimitOrder> stopSells = security.getOrderCancellationQueue().getDeactivatedSellOrders();
+
+        JournalPosition position = roundTrip(codec.encode(new JournalPosition(3, 4096), brokerRepository,
+                shareholderRepository, securityRepository));
+
+        assertThat(position).isEqualTo(new JournalPosition(3, 4096));
+        Security restored = securityRepository.findSecurityByIsin("ABC");
+        assertThat(restored).isNotSameAs(security);
+        assertThat(restored.getTickSize()).isEqualTo(5);
+        assertThat(restored.getLotSize()).isEqualTo(10);
+        assertThat(restored.getLastTradePrice()).isEqualTo(15200);
+        assertThat(restored.getPendingHighTradePrice()).isEqualTo(15300);
+        assertThat(restored.getPendingLowTradePrice()).isEqualTo(15100);
+        assertThat(restored.getState()).isEqualTo(MatchingState.AUCTION);
+        assertSameOrders(restored.getOrderBook().getBuyQueue(), buys);
+        assertSameOrders(restored.getOrderBook().getSellQueue(), sells);
+        assertSameOrders(restored.getOrderCancellationQueue().getDeactivatedBuyOrders(), stopBuys);
+        assertSameOrders(restored.getOrderCancellationQueue().getDeactivatedSellOrders(), stopSells);
+        IcebergOrder iceberg = (IcebergOrder) restored.getOrderBook().findByOrderId(Side.SELL, 3);
+        assertThat(iceberg.getTotalQuantity()).isEqualTo(880);
+        assertThat(iceberg.getDisplayedQuantity()).isEqualTo(180);
+        assertThat(iceberg.getSecurity()).isSameAs(restored);
+        assertThat(restored.getOrderBook().getTradableQuantity(15500, Side.SELL)).isEqualTo(880);
+        Shareholder shareholder = shareholderRepository.findShareholderById(7);
+        assertThat(restored.getOrderBook().totalSellQuantityByShareholder(shareholder)).isEqualTo(980);
+        assertThat(shareholder.getPositions().get(restored)).isEqualTo(5_000);
+        assertThat(brokerRepository.findBrokerById(1).getCredit()).isEqualTo(123_456_789L);
+        assertThat(brokerRepository.findBrokerById(1).getName()).isEqualTo("b1");
+        TradeTape tape = restored.getTradeTape();
+        assertThat(tape.size()).isEqualTo(2);
+        assertThat(tape.price(1)).isEqualTo(15300);
+        assertThat(tape.quantity(1)).isEqualTo(30);
+        assertThat(tape.buyOrderId(1)).isEqualTo(13);
+        assertThat(tape.sellOrderId(1)).isEqualTo(14);
+        assertThat(restored.getOrderBook().findByOrderId(Side.BUY, 1).getBroker())
+                .isSameAs(brokerRepository.findBrokerById(1));
+    }
+
+    @Test
+    void corrupted_snapshot_is_rejected_without_touching_the_repositories() {
+        byte[] snapshot = codec.encode(JournalPosition.START, brokerRepository, shareholderRepository,
+                securityRepository);
+        snapshot[snapshot.length / 2] ^= 0x55;
+
+        assertThatThrownBy(() -> codec.decode(snapshot, brokerRepository, shareholderRepository, securityRepository))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(securityRepository.findSecurityByIsin("ABC")).isSameAs(security);
+    }
+
+    @Test
+    void visiting_live_entities_reports_what_reading_their_snapshot_does() {
+        List<Object> read = new ArrayList<>();
+        codec.read(codec.encode(JournalPosition.START, brokerRepository, shareholderRepository, securityRepository),
+                new Recorder(read));
+        List<Object> visited = new ArrayList<>();
+        codec.visit(brokerRepository, shareholderRepository, securityRepository, new Recorder(visited));
+
+        assertThat(visited).hasSize(12).isEqualTo(read);
+    }
+
+    private record Recorder(List<Object> calls) implements SnapshotVisitor {
+        @Override
+        public void broker(long brokerId, String name, long credit) {
+            calls.add(List.of("broker", brokerId, name, credit));
+        }
+
+        @Override
+        public void shareholder(long shareholderId, String name) {
+            calls.add(List.of("shareholder", shareholderId, String.valueOf(name)));
+        }
+
+        @Override
+        public void security(String isin, int tickSize, int lotSize, int lastTradePrice, int pendingHighTradePrice,
+                             int pendingLowTradePrice, MatchingState state) {
+            calls.add(List.of("security", isin, tickSize, lotSize, lastTradePrice, pendingHighTradePrice,
+                    pendingLowTradePrice, state));
+        }
+
+        @Override
+        public void order(OrderImage order) {
+            calls.add(order);
+        }
+
+        @Override
+        public void trade(int price, int quantity, long buyOrderId, long sellOrderId, long buyBrokerId,
+                          long sellBrokerId) {
+            calls.add(List.of("trade", price, quantity, buyOrderId, sellOrderId, buyBrokerId, sellBrokerId));
+        }
+
+        @Override
+        public void position(long shareholderId, String isin, int quantity) {
+            calls.add(List.of("position", shareholderId, isin, quantity));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package ir.ramtung.tinyme.journal;
+
+import ir.ramtung.tinyme.domain.entity.Broker;
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SnapshotStoreTest {
+    @TempDir
+    Path directory;
+
+    private BrokerRepository brokerRepository;
+    private SnapshotStore store;
+
+    @BeforeEach
+    void setup() {
+        brokerRepository = new BrokerRepository();
+        store = new SnapshotStore(directory.toString(), 2, brokerRepository, new ShareholderRepository(),
+                new SecurityRepository());
+    }
+
+    private void snapshotWithCredit(JournalPosition position, long credit) {
+        brokerRepository.clear();
+        brokerRepository.addBroker(Broker.builder().brokerId(1).credit(credit).build());
+        store.write(position, store.capture(position));
+    }
+
+    @Test
+    void restore_falls_back_to_an_older_snapshot_when_the_newest_is_damaged() throws IOException {
+        snapshotWithCredit(new JournalPosition(0, 100), 1000);
+        snapshotWithCredit(new JournalPosition(1, 50), 2000);
+        Path newest = directory.resolve("snapshot-00000001-0000000050.snapshot");
+        Files.write(newest, new byte[] {1, 2, 3});
+
+        assertThat(store.restoreLatest()).contains(new JournalPosition(0, 100));
+        assertThat(brokerRepository.findBrokerById(1).getCredit()).isEqualTo(1000);
+    }
+
+    @Test
+    void prune_keeps_the_newest_snapshots_and_reports_the_oldest_kept() throws IOException {
+        snapshotWithCredit(new JournalPosition(0, 100), 1000);
+        snapshotWithCredit(new JournalPosition(1, 50), 2000);
+        snapshotWithCredit(new JournalPosition(2, 10), 3000);
+
+        assertThat(store.prune()).contains(new JournalPosition(1, 50));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.count()).isEqualTo(2);
+        }
+        assertThat(store.restoreLatest()).contains(new JournalPosition(2, 10));
+        assertThat(brokerRepository.findBrokerById(1).getCredit()).isEqualTo(3000);
+    }
+}
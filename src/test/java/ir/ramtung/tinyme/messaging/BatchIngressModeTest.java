@@ -0,0 +1,24 @@
+package ir.ramtung.tinyme.messaging;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jms.config.JmsListenerEndpointRegistry;
+import org.springframework.jms.listener.MessageListenerContainer;
+import org.springframework.test.annotation.DirtiesContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "ingressMode=BATCH")
+@DirtiesContext
+public class BatchIngressModeTest {
+    @Autowired
+    JmsListenerEndpointRegistry listenerRegistry;
+
+    @Test
+    void request_listeners_are_not_started_in_batch_mode() {
+        assertThat(listenerRegistry.getListenerContainers())
+                .isNotEmpty()
+                .noneMatch(MessageListenerContainer::isRunning);
+    }
+}
@@ -0,0 +1,186 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.domain.service.EnterOrderContext;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import jakarta.jms.JMSException;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class BatchRequestReceiverTest {
+    private RequestDispatcher requestDispatcher;
+    private MessageConverter converter;
+    private Session session;
+    private MessageConsumer consumer;
+    private BatchRequestReceiver receiver;
+
+    @BeforeEach
+    void setup() {
+        requestDispatcher = mock(RequestDispatcher.class);
+        converter = mock(MessageConverter.class);
+        JmsTemplate jmsTemplate = mock(JmsTemplate.class);
+        when(jmsTemplate.getMessageConverter()).thenReturn(converter);
+        session = mock(Session.class);
+        consumer = mock(MessageConsumer.class);
+        receiver = new BatchRequestReceiver(requestDispatcher, jmsTemplate);
+        ReflectionTestUtils.setField(receiver, "ingressBatchSize", 3);
+        ReflectionTestUtils.setField(receiver, "ingressMaxLatencyMillis", 1000L);
+    }
+
+    private jakarta.jms.Message messageOf(Object request) throws JMSException {
+        jakarta.jms.Message message = mock(jakarta.jms.Message.class);
+        when(converter.fromMessage(message)).thenReturn(request);
+        return message;
+    }
+
+    private jakarta.jms.Message messageOf(String messageId, Object request) throws JMSException {
+        jakarta.jms.Message message = messageOf(request);
+        when(message.getJMSMessageID()).thenReturn(messageId);
+        return message;
+    }
+
+    private EnterOrderRq enterOrderRq(long orderId) {
+        return EnterOrderRq.createNewOrderRq(orderId, "ABC", orderId, LocalDateTime.now(), Side.BUY, 10, 100, 1, 1, 0);
+    }
+
+    private EnterOrderContext prevalidated(EnterOrderRq enterOrderRq) {
+        EnterOrderContext context = new EnterOrderContext(enterOrderRq, null, null, null, true);
+        when(requestDispatcher.prevalidate(enterOrderRq)).thenReturn(context);
+        return context;
+    }
+
+    @Test
+    void batch_is_dispatched_in_arrival_order_and_committed_once() throws JMSException {
+        EnterOrderRq first = enterOrderRq(1);
+        DeleteOrderRq second = new DeleteOrderRq(2, "ABC", Side.BUY, 1);
+        EnterOrderRq third = enterOrderRq(3);
+        EnterOrderContext firstContext = prevalidated(first);
+        EnterOrderContext thirdContext = prevalidated(third);
+        jakarta.jms.Message m1 = messageOf(first);
+        jakarta.jms.Message m2 = messageOf(second);
+        jakarta.jms.Message m3 = messageOf(third);
+        jakarta.jms.Message m4 = messageOf(enterOrderRq(4));
+        when(consumer.receive(anyLong())).thenReturn(m1, m2, m3, m4);
+
+        assertThat(receiver.receiveBatch(session, consumer)).isEqualTo(3);
+
+        InOrder inOrder = inOrder(requestDispatcher, session);
+        inOrder.verify(requestDispatcher).prevalidate(third);
+        inOrder.verify(requestDispatcher).dispatchEnterOrder(firstContext);
+        inOrder.verify(requestDispatcher).dispatchDeleteOrderRq(second);
+        inOrder.verify(requestDispatcher).dispatchEnterOrder(thirdContext);
+        inOrder.verify(session).commit();
+        verify(consumer, times(3)).receive(anyLong());
+    }
+
+    @Test
+    void partial_batch_is_committed_when_the_queue_runs_dry() throws JMSException {
+        jakarta.jms.Message m1 = messageOf(enterOrderRq(1));
+        when(consumer.receive(anyLong())).thenReturn(m1, (jakarta.jms.Message) null);
+
+        assertThat(receiver.receiveBatch(session, consumer)).isEqualTo(1);
+        verify(session).commit();
+    }
+
+    @Test
+    void empty_poll_does_not_commit() throws JMSException {
+        when(consumer.receive(anyLong())).thenReturn(null);
+
+        assertThat(receiver.receiveBatch(session, consumer)).isZero();
+        verify(session, never()).commit();
+    }
+
+    @Test
+    void failed_batch_is_rolled_back() throws JMSException {
+        EnterOrderRq rq = enterOrderRq(1);
+        prevalidated(rq);
+        jakarta.jms.Message m1 = messageOf(rq);
+        when(consumer.receive(anyLong())).thenReturn(m1);
+        doThrow(new IllegalStateException("shard closed")).when(requestDispatcher).dispatchEnterOrder(any());
+
+        assertThatThrownBy(() -> receiver.receiveBatch(session, consumer)).isInstanceOf(IllegalStateException.class);
+        verify(session).rollback();
+        verify(session, never()).commit();
+    }
+
+    @Test
+    void decoder_pool_dispatches_in_arrival_order_and_drops_stateless_rejections() throws JMSException, InterruptedException {
+        ReflectionTestUtils.setField(receiver, "ingressDecodeThreads", 4);
+        receiver.startDecoders();
+        EnterOrderRq first = enterOrderRq(1);
+        EnterOrderRq rejected = enterOrderRq(2);
+        DeleteOrderRq third = new DeleteOrderRq(3, "ABC", Side.BUY, 1);
+        EnterOrderContext firstContext = new EnterOrderContext(first, null, null, null, true);
+        when(requestDispatcher.prevalidate(first)).thenReturn(firstContext);
+        when(requestDispatcher.prevalidate(rejected)).thenReturn(null);
+        jakarta.jms.Message m1 = messageOf(first);
+        jakarta.jms.Message m2 = messageOf(rejected);
+        jakarta.jms.Message m3 = messageOf(third);
+        when(consumer.receive(anyLong())).thenReturn(m1, m2, m3);
+
+        assertThat(receiver.receiveBatch(session, consumer)).isEqualTo(3);
+        receiver.stop();
+
+        InOrder inOrder = inOrder(requestDispatcher, session);
+        inOrder.verify(requestDispatcher).dispatchEnterOrder(firstContext);
+        inOrder.verify(requestDispatcher).dispatchDeleteOrderRq(third);
+        inOrder.verify(session).commit();
+        verify(requestDispatcher, never()).dispatchEnterOrderRq(any());
+        verify(requestDispatcher, times(1)).dispatchEnterOrder(any());
+    }
+
+    @Test
+    void nothing_is_dispatched_when_a_later_message_of_the_batch_cannot_be_decoded() throws JMSException {
+        EnterOrderRq first = enterOrderRq(1);
+        prevalidated(first);
+        jakarta.jms.Message m1 = messageOf(first);
+        jakarta.jms.Message m2 = mock(jakarta.jms.Message.class);
+        when(converter.fromMessage(m2)).thenThrow(new IllegalArgumentException("malformed"));
+        when(consumer.receive(anyLong())).thenReturn(m1, m2);
+
+        assertThatThrownBy(() -> receiver.receiveBatch(session, consumer)).isInstanceOf(IllegalArgumentException.class);
+        verify(session).rollback();
+        verify(requestDispatcher, never()).dispatchEnterOrder(any());
+    }
+
+    @Test
+    void redelivered_batch_skips_the_requests_dispatched_before_the_rollback() throws JMSException {
+        EnterOrderRq first = enterOrderRq(1);
+        DeleteOrderRq second = new DeleteOrderRq(2, "ABC", Side.BUY, 1);
+        DeleteOrderRq third = new DeleteOrderRq(3, "ABC", Side.BUY, 2);
+        EnterOrderContext firstContext = prevalidated(first);
+        jakarta.jms.Message m1 = messageOf("ID:1", first);
+        jakarta.jms.Message m2 = messageOf("ID:2", second);
+        jakarta.jms.Message m3 = messageOf("ID:3", third);
+        when(consumer.receive(anyLong())).thenReturn(m1, m2, m3);
+        doThrow(new IllegalStateException("journal full")).doNothing().when(requestDispatcher).dispatchDeleteOrderRq(second);
+
+        assertThatThrownBy(() -> receiver.receiveBatch(session, consumer)).isInstanceOf(IllegalStateException.class);
+        verify(session).rollback();
+
+        for (jakarta.jms.Message message : new jakarta.jms.Message[] {m1, m2, m3})
+            when(message.getJMSRedelivered()).thenReturn(true);
+        when(consumer.receive(anyLong())).thenReturn(m1, m2, m3);
+        assertThat(receiver.receiveBatch(session, consumer)).isEqualTo(3);
+
+        verify(requestDispatcher, times(1)).prevalidate(first);
+        verify(requestDispatcher, times(1)).dispatchEnterOrder(firstContext);
+        verify(requestDispatcher, times(2)).dispatchDeleteOrderRq(second);
+        verify(requestDispatcher, times(1)).dispatchDeleteOrderRq(third);
+        verify(session).commit();
+    }
+}
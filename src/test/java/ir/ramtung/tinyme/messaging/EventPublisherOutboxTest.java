@@ -0,0 +1,168 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.event.OrderAcceptedEvent;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+public class EventPublisherOutboxTest {
+    private JmsTemplate jmsTemplate;
+    private Session session;
+    private MessageProducer producer;
+    private List<Object> sent;
+
+    @BeforeEach
+    void setup() throws JMSException {
+        sent = Collections.synchronizedList(new ArrayList<>());
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        Connection connection = mock(Connection.class);
+        session = mock(Session.class);
+        producer = mock(MessageProducer.class);
+        when(connectionFactory.createConnection()).thenReturn(connection);
+        when(connection.createSession(anyBoolean(), anyInt())).thenReturn(session);
+        when(session.getTransacted()).thenReturn(true);
+        when(session.createProducer(any())).thenReturn(producer);
+
+        MessageConverter converter = mock(MessageConverter.class);
+        when(converter.toMessage(any(), any())).thenAnswer(invocation -> {
+            sent.add(((OrderAcceptedEvent) invocation.getArgument(0)).getOrderId());
+            return mock(jakarta.jms.Message.class);
+        });
+
+        jmsTemplate = mock(JmsTemplate.class);
+        when(jmsTemplate.getConnectionFactory()).thenReturn(connectionFactory);
+        when(jmsTemplate.getMessageConverter()).thenReturn(converter);
+    }
+
+    private EventPublisher publisher(PublishingMode mode, int capacity, int batchSize) {
+        EventPublisher publisher = new EventPublisher(jmsTemplate);
+        ReflectionTestUtils.setField(publisher, "responseQueue", "RS");
+        ReflectionTestUtils.setField(publisher, "publishingMode", mode);
+        ReflectionTestUtils.setField(publisher, "eventBufferCapacity", capacity);
+        ReflectionTestUtils.setField(publisher, "eventBatchSize", batchSize);
+        publisher.start();
+        return publisher;
+    }
+
+    @Test
+    void synchronous_mode_sends_on_the_calling_thread() {
+        EventPublisher publisher = publisher(PublishingMode.SYNCHRONOUS, 16, 4);
+        Event event = new OrderAcceptedEvent(1, 1);
+        publisher.publish(event);
+        verify(jmsTemplate).convertAndSend("RS", event);
+        assertThat(publisher.getPublishedEvents()).isEqualTo(1);
+    }
+
+    @Test
+    void muted_publisher_drops_events() {
+        EventPublisher publisher = publisher(PublishingMode.SYNCHRONOUS, 16, 4);
+        publisher.mute();
+        publisher.publish(new OrderAcceptedEvent(1, 1));
+        publisher.unmute();
+        publisher.publish(new OrderAcceptedEvent(2, 2));
+        verify(jmsTemplate, times(1)).convertAndSend(any(String.class), any(Object.class));
+        assertThat(publisher.getPublishedEvents()).isEqualTo(1);
+    }
+
+    @Test
+    void asynchronous_mode_sends_every_event_in_order_in_committed_batches() throws Exception {
+        EventPublisher publisher = publisher(PublishingMode.ASYNCHRONOUS, 8, 4);
+        for (int i = 0; i < 100; i++)
+            publisher.publish(new OrderAcceptedEvent(i, i));
+        publisher.stop();
+
+        List<Object> expected = new ArrayList<>();
+        for (long i = 0; i < 100; i++)
+            expected.add(i);
+        assertThat(sent).isEqualTo(expected);
+        assertThat(publisher.getPublishedEvents()).isEqualTo(100);
+        assertThat(publisher.getBufferedEvents()).isZero();
+        verify(session, atLeast(25)).commit();
+        verify(producer, times(100)).send(any(jakarta.jms.Message.class));
+        verify(jmsTemplate, never()).convertAndSend(any(String.class), any(Object.class));
+    }
+
+    @Test
+    void full_outbox_blocks_the_publisher_until_the_sender_catches_up() throws Exception {
+        EventPublisher publisher = publisher(PublishingMode.ASYNCHRONOUS, 2, 1);
+        for (int i = 0; i < 50; i++)
+            publisher.publish(new OrderAcceptedEvent(i, i));
+        publisher.stop();
+
+        assertThat(sent).hasSize(50);
+        assertThat(publisher.getBufferCapacity()).isEqualTo(2);
+        verify(session, timeout(TimeUnit.SECONDS.toMillis(1)).atLeast(50)).commit();
+    }
+
+    @Test
+    void failed_batch_is_kept_and_sent_again_until_committed() throws Exception {
+        doThrow(new JMSException("broker down")).doNothing().when(producer).send(any(jakarta.jms.Message.class));
+        EventPublisher publisher = publisher(PublishingMode.ASYNCHRONOUS, 16, 4);
+        for (int i = 0; i < 10; i++)
+            publisher.publish(new OrderAcceptedEvent(i, i));
+        publisher.stop();
+
+        List<Object> expected = new ArrayList<>();
+        for (long i = 0; i < 10; i++)
+            expected.add(i);
+        assertThat(sent.stream().distinct().toList()).isEqualTo(expected);
+        assertThat(publisher.getPublishedEvents()).isEqualTo(10);
+        assertThat(publisher.getFailedSends()).isEqualTo(1);
+        verify(session).rollback();
+        verify(producer, times(11)).send(any(jakarta.jms.Message.class));
+    }
+
+    @Test
+    void event_that_cannot_be_converted_is_dropped_and_the_rest_of_its_batch_sent() throws Exception {
+        MessageConverter converter = mock(MessageConverter.class);
+        when(converter.toMessage(any(), any())).thenAnswer(invocation -> {
+            long orderId = ((OrderAcceptedEvent) invocation.getArgument(0)).getOrderId();
+            if (orderId == 3)
+                throw new MessageConversionException("Cannot encode order " + orderId);
+            sent.add(orderId);
+            return mock(jakarta.jms.Message.class);
+        });
+        when(jmsTemplate.getMessageConverter()).thenReturn(converter);
+        EventPublisher publisher = publisher(PublishingMode.ASYNCHRONOUS, 16, 4);
+        for (int i = 0; i < 10; i++)
+            publisher.publish(new OrderAcceptedEvent(i, i));
+        publisher.stop();
+
+        assertThat(sent).containsExactly(0L, 1L, 2L, 4L, 5L, 6L, 7L, 8L, 9L);
+        assertThat(publisher.getDroppedEvents()).isEqualTo(1);
+        assertThat(publisher.getFailedSends()).isZero();
+        assertThat(publisher.getPublishedEvents()).isEqualTo(9);
+        verify(session, never()).rollback();
+    }
+
+    @Test
+    void outbox_gauges_are_exposed_over_jmx() throws Exception {
+        EventPublisher publisher = publisher(PublishingMode.ASYNCHRONOUS, 16, 4);
+        ObjectName name = new ObjectName(EventPublisher.OBJECT_NAME);
+        assertThat(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "BufferCapacity")).isEqualTo(16);
+        publisher.stop();
+        assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(name)).isFalse();
+    }
+}
@@ -41,6 +41,6 @@ public class RequestDispatcherTest {
     void request_channel_integration_works() {
         EnterOrderRq rq = EnterOrderRq.createNewOrderRq(1, "ABC", 200, LocalDateTime.now(), Side.SELL, 300, 15450, 0, 0, 0);
         jmsTemplate.convertAndSend(requestQueue, rq);
-        verify(mockOrderHandler, timeout(1000)).handleEnterOrder(rq);
+        verify(mockOrderHandler, timeout(1000)).prevalidateEnterOrder(rq);
     }
 }
\ No newline at end of file
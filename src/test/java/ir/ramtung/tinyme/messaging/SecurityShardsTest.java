@@ -0,0 +1,251 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.Matcher;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.journal.JournalSyncPolicy;
+import ir.ramtung.tinyme.journal.RequestJournal;
+import ir.ramtung.tinyme.messaging.exception.InvalidRequestException;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class SecurityShardsTest {
+    private SecurityShards securityShards;
+
+    @BeforeEach
+    void setup() {
+        securityShards = new SecurityShards(4, 1024);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        securityShards.shutdown();
+    }
+
+    @Test
+    void requests_of_one_security_run_in_submission_order() throws InterruptedException {
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            int sequence = i;
+            securityShards.submit("ABC", () -> {
+                seen.add(sequence);
+                done.countDown();
+            });
+        }
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < 1000; i++)
+            assertThat(seen.get(i)).isEqualTo(i);
+    }
+
+    @Test
+    void a_security_always_runs_on_the_same_thread() throws InterruptedException {
+        Map<String, String> threadByIsin = new ConcurrentHashMap<>();
+        AtomicInteger mismatches = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(400);
+        for (int i = 0; i < 400; i++) {
+            String isin = "S" + (i % 8);
+            securityShards.submit(isin, () -> {
+                String thread = Thread.currentThread().getName();
+                if (!thread.equals(threadByIsin.computeIfAbsent(isin, k -> thread)))
+                    mismatches.incrementAndGet();
+                done.countDown();
+            });
+        }
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(mismatches.get()).isZero();
+    }
+
+    @Test
+    void broker_credit_is_not_overdrawn_by_concurrent_shards() throws InterruptedException {
+        Broker broker = Broker.builder().brokerId(1).credit(1000).build();
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(400);
+        for (int i = 0; i < 400; i++) {
+            securityShards.submit("S" + (i % 8), () -> {
+                if (broker.tryDecreaseCreditBy(10))
+                    accepted.incrementAndGet();
+                done.countDown();
+            });
+        }
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(accepted.get()).isEqualTo(100);
+        assertThat(broker.getCredit()).isZero();
+    }
+
+    @Test
+    void credit_a_shard_rolls_back_is_never_visible_to_another_shard() throws InterruptedException {
+        Matcher matcher = new Matcher();
+        Broker shared = Broker.builder().brokerId(1).credit(0).build();
+        Broker rich = Broker.builder().brokerId(2).credit(Long.MAX_VALUE / 2).build();
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).build();
+        Security first = Security.builder().isin("S0").build();
+        Security second = Security.builder().isin("S1").build();
+        assertThat(securityShards.shardOf(first.getIsin())).isNotEqualTo(securityShards.shardOf(second.getIsin()));
+        shareholder.incPosition(first, 1_000_000);
+        shareholder.incPosition(second, 1_000_000);
+        first.getOrderBook().enqueue(new Order(1, first, Side.SELL, 10, 100, shared, shareholder));
+        first.getOrderBook().enqueue(new Order(2, first, Side.BUY, 10, 90, shared, shareholder));
+        second.getOrderBook().enqueue(new Order(1, second, Side.SELL, 1_000_000, 100, rich, shareholder));
+
+        int rounds = 2000;
+        AtomicInteger rejectedUpdates = new AtomicInteger();
+        AtomicInteger secondShardTrades = new AtomicInteger();
+        AtomicInteger overdrawn = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(2 * rounds);
+        for (int i = 0; i < rounds; i++) {
+            long orderId = 10 + i;
+            securityShards.submit(first.getIsin(), () -> {
+                matcher.execute(new Order(orderId, first, Side.BUY, 20, 100, rich, shareholder, 15));
+                try {
+                    MatchResult result = first.updateOrder(EnterOrderRq.createUpdateOrderRq(orderId, first.getIsin(),
+                            2, LocalDateTime.now(), Side.BUY, 10, 91, 1, 1, 0), matcher);
+                    if (result.outcome() == MatchingOutcome.NOT_ENOUGH_CREDIT)
+                        rejectedUpdates.incrementAndGet();
+                } catch (InvalidRequestException e) {
+                    throw new IllegalStateException(e);
+                }
+                done.countDown();
+            });
+            securityShards.submit(second.getIsin(), () -> {
+                if (matcher.execute(new Order(orderId, second, Side.BUY, 1, 100, shared, shareholder)).outcome()
+                        == MatchingOutcome.EXECUTED)
+                    secondShardTrades.incrementAndGet();
+                if (shared.getCredit() < 0)
+                    overdrawn.incrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(rejectedUpdates.get()).isEqualTo(rounds);
+        assertThat(secondShardTrades.get()).isZero();
+        assertThat(overdrawn.get()).isZero();
+        assertThat(shared.getCredit()).isZero();
+        assertThat(first.getOrderBook().findByOrderId(Side.BUY, 2).getPrice()).isEqualTo(90);
+        assertThat(first.getOrderBook().findByOrderId(Side.SELL, 1).getQuantity()).isEqualTo(10);
+    }
+
+    @Test
+    void pause_parks_every_shard_after_the_work_already_submitted() throws InterruptedException {
+        AtomicInteger before = new AtomicInteger();
+        AtomicInteger after = new AtomicInteger();
+        for (int i = 0; i < 100; i++)
+            securityShards.submit("S" + (i % 8), before::incrementAndGet);
+        SecurityShards.Pause pause = securityShards.pause();
+        CountDownLatch done = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++)
+            securityShards.submit("S" + (i % 8), () -> {
+                after.incrementAndGet();
+                done.countDown();
+            });
+
+        pause.awaitParked();
+        assertThat(before.get()).isEqualTo(100);
+        assertThat(after.get()).isZero();
+        pause.close();
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void shutdown_drains_the_work_already_submitted() throws InterruptedException {
+        AtomicInteger done = new AtomicInteger();
+        for (int i = 0; i < 1000; i++)
+            securityShards.submit("S" + (i % 8), done::incrementAndGet);
+        securityShards.shutdown();
+        assertThat(done.get()).isEqualTo(1000);
+    }
+
+    @Test
+    void submitter_waits_while_the_shard_queue_is_full() throws InterruptedException {
+        SecurityShards bounded = new SecurityShards(1, 2);
+        try {
+            CountDownLatch running = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            bounded.submit("ABC", () -> {
+                running.countDown();
+                awaitQuietly(release);
+            });
+            assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+            bounded.submit("ABC", () -> { });
+            bounded.submit("ABC", () -> { });
+
+            CountDownLatch submitted = new CountDownLatch(1);
+            Thread submitter = new Thread(() -> {
+                bounded.submit("ABC", () -> { });
+                submitted.countDown();
+            });
+            submitter.start();
+            assertThat(submitted.await(200, TimeUnit.MILLISECONDS)).isFalse();
+            assertThat(bounded.getBlockedSubmits()).isEqualTo(1);
+
+            release.countDown();
+            assertThat(submitted.await(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            bounded.shutdown();
+        }
+    }
+
+    @Test
+    void a_full_shard_does_not_hold_up_dispatching_to_other_shards() throws InterruptedException {
+        SecurityShards bounded = new SecurityShards(2, 1);
+        OrderHandler orderHandler = mock(OrderHandler.class);
+        RequestDispatcher dispatcher = new RequestDispatcher(orderHandler, bounded,
+                new RequestJournal("", 1 << 16, JournalSyncPolicy.GROUP, 4, 1));
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            String full = "S0";
+            String free = "S1";
+            assertThat(bounded.shardOf(full)).isNotEqualTo(bounded.shardOf(free));
+            CountDownLatch running = new CountDownLatch(1);
+            bounded.submit(full, () -> {
+                running.countDown();
+                awaitQuietly(release);
+            });
+            assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+            bounded.submit(full, () -> { });
+
+            DeleteOrderRq waiting = new DeleteOrderRq(1, full, Side.BUY, 1, LocalDateTime.now());
+            Thread submitter = new Thread(() -> dispatcher.dispatchDeleteOrderRq(waiting));
+            submitter.start();
+            while (bounded.getBlockedSubmits() == 0)
+                Thread.onSpinWait();
+
+            DeleteOrderRq other = new DeleteOrderRq(2, free, Side.BUY, 1, LocalDateTime.now());
+            dispatcher.dispatchDeleteOrderRq(other);
+            verify(orderHandler, timeout(1000)).handleDeleteOrder(other);
+            verify(orderHandler, never()).handleDeleteOrder(waiting);
+
+            release.countDown();
+            submitter.join(5000);
+            verify(orderHandler, timeout(1000)).handleDeleteOrder(waiting);
+        } finally {
+            release.countDown();
+            bounded.shutdown();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package ir.ramtung.tinyme.messaging.codec;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.Message;
+import ir.ramtung.tinyme.messaging.TradeDTO;
+import ir.ramtung.tinyme.messaging.event.*;
+import ir.ramtung.tinyme.messaging.request.ChangeMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MassCancelRq;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BinaryCodecTest {
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 3, 1, 9, 30, 15, 123_456_789);
+    private final BinaryCodec codec = new BinaryCodec();
+
+    @SuppressWarnings("unchecked")
+    private <T> T roundTrip(T object) {
+        return (T) codec.decode(codec.encode(object));
+    }
+
+    @Test
+    void enter_order_requests_round_trip() {
+        EnterOrderRq newOrder = EnterOrderRq.createNewOrderRq(1, "ABC", 2, TIME, Side.BUY, 300, 15450, 3, 4, 50, 10, 0);
+        EnterOrderRq update = EnterOrderRq.createUpdateOrderRq(5, "ABC", 2, TIME, Side.SELL, 200, 15400, 3, 4, 0, 15500);
+        assertThat(roundTrip(newOrder)).isEqualTo(newOrder);
+        assertThat(roundTrip(update)).isEqualTo(update);
+    }
+
+    @Test
+    void requests_with_null_fields_round_trip() {
+        EnterOrderRq rq = new EnterOrderRq();
+        assertThat(roundTrip(rq)).isEqualTo(rq);
+    }
+
+    @Test
+    void delete_and_state_change_requests_round_trip() {
+        DeleteOrderRq delete = new DeleteOrderRq(1, "ABC", Side.SELL, 7, TIME);
+        ChangeMatchingStateRq change = new ChangeMatchingStateRq(2, "ABC", MatchingState.AUCTION);
+        assertThat(roundTrip(delete)).isEqualTo(delete);
+        assertThat(roundTrip(change)).isEqualTo(change);
+    }
+
+    @Test
+    void mass_cancel_request_and_its_summary_round_trip() {
+        MassCancelRq byBroker = new MassCancelRq(1, null, Side.BUY, 3, 0, TIME);
+        MassCancelRq bySecurity = new MassCancelRq(2, "ABC", null, 0, 4, TIME);
+        MassCancelCompletedEvent completed = new MassCancelCompletedEvent(1, 42);
+        completed.setTime(TIME);
+        assertThat(roundTrip(byBroker)).isEqualTo(byBroker);
+        assertThat(roundTrip(bySecurity)).isEqualTo(bySecurity);
+        assertThat(roundTrip(completed)).isEqualTo(completed);
+    }
+
+    @Test
+    void order_events_round_trip_with_their_time() {
+        List<Event> events = List.of(
+                new OrderAcceptedEvent(1, 2),
+                new OrderActivatedEvent(1, 2),
+                new OrderDeletedEvent(1, 2),
+                new OrderUpdatedEvent(1, 2),
+                new OrderExecutedEvent(1, 2, List.of(new TradeDTO("ABC", 15450, 100, 2, 3),
+                        new TradeDTO("ABC", 15500, 20, 2, 4))),
+                new OrderRejectedEvent(1, 2, List.of(Message.INVALID_PEAK_SIZE, Message.INVALID_ORDER_ID))
+        );
+        for (Event event : events) {
+            event.setTime(TIME);
+            Event decoded = roundTrip(event);
+            assertThat(decoded).isEqualTo(event);
+            assertThat(decoded.getTime()).isEqualTo(TIME);
+        }
+    }
+
+    @Test
+    void market_events_round_trip_with_their_time() {
+        List<Event> events = List.of(
+                new OpeningPriceEvent("ABC", 15450, 300),
+                new SecurityStateChangedEvent("ABC", MatchingState.CONTINUOUS),
+                new TradeEvent("ABC", 15450, 100, 2, 3)
+        );
+        for (Event event : events) {
+            event.setTime(TIME);
+            Event decoded = roundTrip(event);
+            assertThat(decoded).isEqualTo(event);
+            assertThat(decoded.getTime()).isEqualTo(TIME);
+        }
+    }
+
+    @Test
+    void non_ascii_strings_and_empty_lists_round_trip() {
+        OrderRejectedEvent rejected = new OrderRejectedEvent(1, 2, List.of("قیمت نامعتبر"));
+        OrderExecutedEvent executed = new OrderExecutedEvent(1, 2, List.of());
+        assertThat(roundTrip(rejected)).isEqualTo(rejected);
+        assertThat(roundTrip(executed)).isEqualTo(executed);
+    }
+
+    @Test
+    void binary_form_is_smaller_than_a_fixed_json_rendering() {
+        EnterOrderRq rq = EnterOrderRq.createNewOrderRq(1, "ABC", 2, TIME, Side.BUY, 300, 15450, 3, 4, 0, 0, 0);
+        assertThat(codec.encode(rq).length).isLessThan(100);
+    }
+
+    @Test
+    void unknown_types_and_versions_are_rejected() {
+        assertThat(codec.supports(String.class)).isFalse();
+        assertThatThrownBy(() -> codec.encode("text")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> codec.decode(new byte[]{99, 1})).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,73 @@
+package ir.ramtung.tinyme.messaging.codec;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.event.OrderAcceptedEvent;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class WireMessageConverterTest {
+    private final WireMessageConverter converter = new WireMessageConverter();
+
+    @Test
+    void binary_outbound_messages_are_bytes_messages_tagged_with_type_and_format() throws JMSException {
+        ReflectionTestUtils.setField(converter, "outboundWireFormat", WireFormat.BINARY);
+        Session session = mock(Session.class);
+        BytesMessage message = mock(BytesMessage.class);
+        when(session.createBytesMessage()).thenReturn(message);
+
+        converter.toMessage(new OrderAcceptedEvent(1, 2), session);
+
+        verify(message).writeBytes(any(byte[].class));
+        verify(message).setStringProperty(WireMessageConverter.TYPE_ID_PROPERTY, OrderAcceptedEvent.class.getName());
+        verify(message).setStringProperty(WireMessageConverter.WIRE_FORMAT_PROPERTY, "BINARY");
+    }
+
+    @Test
+    void json_is_the_default_outbound_format() throws JMSException {
+        Session session = mock(Session.class);
+        TextMessage message = mock(TextMessage.class);
+        when(session.createTextMessage(anyString())).thenReturn(message);
+
+        converter.toMessage(new OrderAcceptedEvent(1, 2), session);
+
+        verify(session, never()).createBytesMessage();
+        verify(message).setStringProperty(WireMessageConverter.WIRE_FORMAT_PROPERTY, "JSON");
+    }
+
+    @Test
+    void binary_inbound_messages_are_decoded() throws JMSException {
+        EnterOrderRq rq = EnterOrderRq.createNewOrderRq(1, "ABC", 2, LocalDateTime.now(), Side.BUY, 300, 15450, 3, 4, 0);
+        byte[] bytes = new BinaryCodec().encode(rq);
+        BytesMessage message = mock(BytesMessage.class);
+        when(message.getStringProperty(WireMessageConverter.WIRE_FORMAT_PROPERTY)).thenReturn("BINARY");
+        when(message.getBodyLength()).thenReturn((long) bytes.length);
+        when(message.readBytes(any(byte[].class))).thenAnswer(invocation -> {
+            byte[] target = invocation.getArgument(0);
+            System.arraycopy(bytes, 0, target, 0, bytes.length);
+            return bytes.length;
+        });
+
+        assertThat(converter.fromMessage(message)).isEqualTo(rq);
+    }
+
+    @Test
+    void messages_without_the_format_property_are_read_as_json() throws JMSException {
+        TextMessage message = mock(TextMessage.class);
+        when(message.getStringProperty(WireMessageConverter.TYPE_ID_PROPERTY)).thenReturn(OrderAcceptedEvent.class.getName());
+        when(message.getText()).thenReturn("{\"requestId\":1,\"orderId\":2}");
+
+        assertThat(converter.fromMessage(message)).isEqualTo(new OrderAcceptedEvent(1, 2));
+    }
+}
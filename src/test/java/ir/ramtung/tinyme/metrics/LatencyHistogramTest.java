@@ -0,0 +1,43 @@
+package ir.ramtung.tinyme.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LatencyHistogramTest {
+    @Test
+    void buckets_cover_their_values() {
+        for (long value : new long[] {0, 1, 31, 32, 33, 63, 64, 1_000, 123_456_789, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertThat(LatencyHistogram.highestValueIn(bucket)).isGreaterThanOrEqualTo(value);
+            if (bucket > 0)
+                assertThat(LatencyHistogram.highestValueIn(bucket - 1)).isLessThan(value);
+        }
+    }
+
+    @Test
+    void percentiles_are_within_bucket_precision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++)
+            histogram.record(value);
+
+        assertThat(histogram.count()).isEqualTo(100_000);
+        assertThat(histogram.mean()).isCloseTo(50_000.5, within(0.01));
+        assertThat(histogram.max()).isEqualTo(100_000);
+        assertThat((double) histogram.valueAtPercentile(50)).isCloseTo(50_000, within(50_000.0 / LatencyHistogram.SUB_BUCKETS));
+        assertThat((double) histogram.valueAtPercentile(99)).isCloseTo(99_000, within(99_000.0 / LatencyHistogram.SUB_BUCKETS));
+        assertThat(histogram.valueAtPercentile(100)).isEqualTo(100_000);
+    }
+
+    @Test
+    void reset_clears_everything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000);
+        histogram.reset();
+
+        assertThat(histogram.count()).isZero();
+        assertThat(histogram.max()).isZero();
+        assertThat(histogram.valueAtPercentile(99)).isZero();
+    }
+}
@@ -0,0 +1,98 @@
+package ir.ramtung.tinyme.metrics;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderBookGaugesTest {
+    private final List<String> warnings = new ArrayList<>();
+    private final Logger logger = Logger.getLogger(OrderBookGauges.class.getName());
+    private final Handler handler = new Handler() {
+        @Override
+        public void publish(LogRecord record) {
+            warnings.add(record.getMessage());
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+    private SecurityRepository securityRepository;
+    private Security security;
+    private Broker broker;
+    private Shareholder shareholder;
+
+    @BeforeEach
+    void setup() {
+        logger.addHandler(handler);
+        securityRepository = new SecurityRepository();
+        security = Security.builder().isin("ABC").build();
+        securityRepository.addSecurity(security);
+        broker = Broker.builder().brokerId(1).build();
+        shareholder = Shareholder.builder().shareholderId(1).build();
+    }
+
+    @AfterEach
+    void removeHandler() {
+        logger.removeHandler(handler);
+    }
+
+    @Test
+    void reads_book_and_stop_book_sizes() {
+        OrderBook book = security.getOrderBook();
+        book.enqueue(new Order(1, security, Side.BUY, 100, 990, broker, shareholder));
+        book.enqueue(new Order(2, security, Side.BUY, 100, 980, broker, shareholder));
+        book.enqueue(new IcebergOrder(3, security, Side.SELL, 300, 1010, broker, shareholder, 50));
+        security.getOrderCancellationQueue().addToDeactivatedBuy(new StopLimitOrder(4, security, Side.BUY, 10,
+                1100, broker, shareholder, LocalDateTime.now(), OrderStatus.NEW, 1050));
+
+        OrderBookGauges.Gauge gauge = OrderBookGauges.read(security);
+
+        assertThat(gauge.buyOrders()).isEqualTo(2);
+        assertThat(gauge.sellOrders()).isEqualTo(1);
+        assertThat(gauge.buyLevels()).isEqualTo(2);
+        assertThat(gauge.bestBid()).isEqualTo(990);
+        assertThat(gauge.bestAsk()).isEqualTo(1010);
+        assertThat(gauge.spread()).isEqualTo(20);
+        assertThat(gauge.hiddenSellQuantity()).isEqualTo(250);
+        assertThat(gauge.parkedStopBuys()).isEqualTo(1);
+        assertThat(gauge.parkedStopSells()).isZero();
+        assertThat(gauge.estimatedBytes()).isPositive();
+        assertThat(new OrderBookGauges(securityRepository, 0, 0).dump()).startsWith("ABC orders=2/1 levels=2/1");
+    }
+
+    @Test
+    void warns_once_per_crossing_of_the_depth_threshold() {
+        OrderBookGauges gauges = new OrderBookGauges(securityRepository, 4, 0);
+        OrderBook book = security.getOrderBook();
+        for (int i = 1; i <= 5; i++) {
+            book.enqueue(new Order(i, security, Side.BUY, 10, 1000 - i, broker, shareholder));
+            gauges.check(security);
+        }
+        assertThat(warnings).hasSize(1);
+
+        for (int i = 1; i <= 4; i++)
+            book.removeByOrderId(Side.BUY, i);
+        gauges.check(security);
+        for (int i = 6; i <= 8; i++) {
+            book.enqueue(new Order(i, security, Side.BUY, 10, 1000 - i, broker, shareholder));
+            gauges.check(security);
+        }
+        assertThat(warnings).hasSize(2);
+    }
+}
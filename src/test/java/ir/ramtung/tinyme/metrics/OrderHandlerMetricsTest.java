@@ -0,0 +1,195 @@
+package ir.ramtung.tinyme.metrics;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.Matcher;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.Message;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MassCancelRq;
+import ir.ramtung.tinyme.metrics.OrderHandlerMetrics.Stage;
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class OrderHandlerMetricsTest {
+    private OrderHandlerMetrics metrics;
+    private OrderHandler orderHandler;
+    private Security security;
+    private Broker broker;
+    private Shareholder shareholder;
+
+    @BeforeEach
+    void setup() {
+        SecurityRepository securityRepository = new SecurityRepository();
+        BrokerRepository brokerRepository = new BrokerRepository();
+        ShareholderRepository shareholderRepository = new ShareholderRepository();
+        security = Security.builder().isin("ABC").build();
+        broker = Broker.builder().brokerId(1).credit(1_000_000).build();
+        shareholder = Shareholder.builder().shareholderId(1).build();
+        shareholder.incPosition(security, 1_000);
+        securityRepository.addSecurity(security);
+        brokerRepository.addBroker(broker);
+        shareholderRepository.addShareholder(shareholder);
+        metrics = new OrderHandlerMetrics(true, 1);
+        orderHandler = new OrderHandler(securityRepository, brokerRepository, shareholderRepository,
+                mock(EventPublisher.class), new Matcher(), metrics,
+                new OrderBookGauges(securityRepository, 0, 0));
+    }
+
+    @AfterEach
+    void unregister() {
+        metrics.unregister();
+    }
+
+    private EnterOrderRq order(long id, Side side, int quantity, int price) {
+        return EnterOrderRq.createNewOrderRq(id, "ABC", id, LocalDateTime.now(), side, quantity, price, 1, 1, 0);
+    }
+
+    @Test
+    void stages_outcomes_rejections_and_isins_are_counted() {
+        orderHandler.handleEnterOrder(order(1, Side.SELL, 100, 1000));
+        orderHandler.handleEnterOrder(order(2, Side.BUY, 100, 1000));
+        orderHandler.handleEnterOrder(order(3, Side.BUY, -1, 1000));
+
+        assertThat(metrics.getRequestCount()).isEqualTo(3);
+        assertThat(metrics.requestCount("ABC")).isEqualTo(3);
+        assertThat(metrics.outcomeCount(MatchingOutcome.EXECUTED)).isEqualTo(2);
+        assertThat(metrics.getRejectedCount()).isEqualTo(1);
+        assertThat(metrics.rejectionCount(Message.ORDER_QUANTITY_NOT_POSITIVE)).isEqualTo(1);
+        assertThat(metrics.histogram(Stage.VALIDATION).count()).isEqualTo(2);
+        assertThat(metrics.histogram(Stage.ORDER_CREATION).count()).isEqualTo(2);
+        assertThat(metrics.histogram(Stage.MATCHING).count()).isEqualTo(2);
+        assertThat(metrics.histogram(Stage.PUBLISHING).count()).isEqualTo(2);
+        assertThat(metrics.histogram(Stage.STOP_LIMIT_ACTIVATION).count()).isEqualTo(2);
+        assertThat(metrics.dump()).contains("outcome EXECUTED 2", "isin ABC 3", "stage MATCHING count=2");
+    }
+
+    private EnterOrderRq stopOrder(long id, Side side, int quantity, int price, int stopPrice) {
+        return EnterOrderRq.createNewOrderRq(id, "ABC", id, LocalDateTime.now(), side, quantity, price, 1, 1, 0, 0,
+                stopPrice);
+    }
+
+    @Test
+    void cascade_depths_are_recorded() {
+        orderHandler.handleEnterOrder(order(1, Side.SELL, 100, 1000));
+        orderHandler.handleEnterOrder(order(2, Side.SELL, 100, 1100));
+        orderHandler.handleEnterOrder(stopOrder(3, Side.BUY, 100, 1100, 1000));
+        orderHandler.handleEnterOrder(stopOrder(4, Side.BUY, 10, 1200, 1100));
+        orderHandler.handleEnterOrder(order(5, Side.BUY, 100, 1000));
+
+        assertThat(metrics.cascadeDepthHistogram().count()).isEqualTo(1);
+        assertThat(metrics.cascadeDepthHistogram().max()).isEqualTo(2);
+        assertThat(metrics.dump()).contains("cascades count=1");
+    }
+
+    @Test
+    void capped_cascade_resumes_from_the_prices_it_reached() {
+        ReflectionTestUtils.setField(orderHandler, "stopLimitCascadeLimit", 1);
+        orderHandler.handleEnterOrder(order(1, Side.BUY, 50, 900));
+        orderHandler.handleEnterOrder(order(2, Side.SELL, 50, 1000));
+        orderHandler.handleEnterOrder(order(3, Side.SELL, 50, 1100));
+        orderHandler.handleEnterOrder(stopOrder(4, Side.BUY, 50, 1100, 1000));
+        orderHandler.handleEnterOrder(stopOrder(5, Side.BUY, 10, 1200, 1050));
+
+        orderHandler.handleEnterOrder(order(6, Side.BUY, 50, 1000));
+
+        assertThat(security.getLastTradePrice()).isEqualTo(1100);
+        assertThat(security.getPendingHighTradePrice()).isEqualTo(1100);
+        assertThat(security.getOrderCancellationQueue().getDeactivatedBuyOrders()).hasSize(1);
+
+        orderHandler.handleEnterOrder(order(7, Side.SELL, 50, 900));
+
+        assertThat(security.getLastTradePrice()).isEqualTo(900);
+        assertThat(security.getOrderCancellationQueue().getDeactivatedBuyOrders()).isEmpty();
+        assertThat(security.getOrderBook().findByOrderId(Side.BUY, 5)).isNotNull();
+        assertThat(metrics.cascadeDepthHistogram().count()).isEqualTo(2);
+    }
+
+    @Test
+    void cascade_drained_exactly_at_the_cap_leaves_no_pending_prices() {
+        ReflectionTestUtils.setField(orderHandler, "stopLimitCascadeLimit", 1);
+        orderHandler.handleEnterOrder(order(1, Side.SELL, 50, 1000));
+        orderHandler.handleEnterOrder(order(2, Side.SELL, 50, 1100));
+        orderHandler.handleEnterOrder(stopOrder(3, Side.BUY, 50, 1100, 1000));
+
+        orderHandler.handleEnterOrder(order(4, Side.BUY, 50, 1000));
+
+        assertThat(security.getLastTradePrice()).isEqualTo(1100);
+        assertThat(security.getOrderCancellationQueue().getDeactivatedBuyOrders()).isEmpty();
+        assertThat(security.getPendingHighTradePrice()).isEqualTo(-1);
+        assertThat(security.getPendingLowTradePrice()).isEqualTo(-1);
+    }
+
+    @Test
+    void rejections_of_every_request_type_are_counted_against_their_requests() {
+        orderHandler.handleEnterOrder(order(1, Side.SELL, 100, 1000));
+        orderHandler.handleDeleteOrder(new DeleteOrderRq(2, "ABC", Side.SELL, 1, LocalDateTime.now()));
+        orderHandler.handleDeleteOrder(new DeleteOrderRq(3, "ABC", Side.SELL, 1, LocalDateTime.now()));
+        orderHandler.handleMassCancelRq(new MassCancelRq(4, null, null, 0, 0));
+
+        assertThat(metrics.getRequestCount()).isEqualTo(4);
+        assertThat(metrics.requestCount("ABC")).isEqualTo(3);
+        assertThat(metrics.getRejectedCount()).isEqualTo(2);
+        assertThat(metrics.rejectionCount(Message.ORDER_ID_NOT_FOUND)).isEqualTo(1);
+        assertThat(metrics.rejectionCount(Message.MASS_CANCEL_WITHOUT_SCOPE)).isEqualTo(1);
+    }
+
+    @Test
+    void requests_for_unknown_isins_share_one_counter() {
+        orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(1, "XYZ", 1, LocalDateTime.now(), Side.BUY, 100,
+                1000, 1, 1, 0));
+        orderHandler.handleDeleteOrder(new DeleteOrderRq(2, "PQR", Side.SELL, 1, LocalDateTime.now()));
+        orderHandler.handleMassCancelRq(new MassCancelRq(3, "LMN", null, 0, 0));
+        orderHandler.handleEnterOrder(order(4, Side.SELL, 100, 1000));
+
+        assertThat(metrics.requestCount(OrderHandlerMetrics.UNKNOWN_ISIN)).isEqualTo(3);
+        assertThat(metrics.requestCount("XYZ")).isZero();
+        assertThat(metrics.requestCount("ABC")).isEqualTo(1);
+        assertThat(metrics.dump()).contains("isin (unknown) 3", "isin ABC 1").doesNotContain("XYZ", "PQR", "LMN");
+    }
+
+    @Test
+    void dump_is_available_over_jmx() throws Exception {
+        metrics.register();
+        orderHandler.handleEnterOrder(order(1, Side.SELL, 100, 1000));
+
+        Object dump = ManagementFactory.getPlatformMBeanServer()
+                .invoke(new ObjectName(OrderHandlerMetrics.OBJECT_NAME), "dump", null, null);
+
+        assertThat((String) dump).contains("requests 1");
+    }
+
+    @Test
+    void only_sampled_requests_are_timed() {
+        OrderHandlerMetrics sampled = new OrderHandlerMetrics(true, 4);
+        for (long requestId = 0; requestId < 8; requestId++)
+            sampled.stage(Stage.MATCHING, sampled.start(requestId, "ABC", true));
+
+        assertThat(sampled.getRequestCount()).isEqualTo(8);
+        assertThat(sampled.histogram(Stage.MATCHING).count()).isEqualTo(2);
+    }
+
+    @Test
+    void disabled_metrics_record_nothing() {
+        OrderHandlerMetrics disabled = OrderHandlerMetrics.disabled();
+        disabled.stage(Stage.MATCHING, disabled.start(1, "ABC", true));
+        disabled.outcome(MatchingOutcome.EXECUTED);
+
+        assertThat(disabled.getRequestCount()).isZero();
+        assertThat(disabled.histogram(Stage.MATCHING).count()).isZero();
+        assertThat(disabled.outcomeCount(MatchingOutcome.EXECUTED)).isZero();
+    }
+}
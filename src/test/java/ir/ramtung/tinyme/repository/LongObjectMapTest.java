@@ -0,0 +1,75 @@
+package ir.ramtung.tinyme.repository;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LongObjectMapTest {
+    static Stream<Supplier<LongObjectMap<String>>> maps() {
+        return Stream.of(LongObjectHashMap::new, OffHeapLongObjectMap::new);
+    }
+
+    @ParameterizedTest
+    @MethodSource("maps")
+    void agrees_with_a_hash_map_across_growth(Supplier<LongObjectMap<String>> factory) {
+        LongObjectMap<String> map = factory.get();
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextInt(20_000) - 10_000L;
+            String value = "v" + i;
+            map.put(key, value);
+            expected.put(key, value);
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (long key = -10_001; key <= 10_001; key++)
+            assertThat(map.get(key)).isEqualTo(expected.get(key));
+        List<String> values = new ArrayList<>();
+        map.values().forEach(values::add);
+        assertThat(values).containsExactlyInAnyOrderElementsOf(expected.values());
+    }
+
+    @ParameterizedTest
+    @MethodSource("maps")
+    void zero_and_extreme_keys_are_ordinary_keys(Supplier<LongObjectMap<String>> factory) {
+        LongObjectMap<String> map = factory.get();
+        map.put(0, "zero");
+        map.put(Long.MIN_VALUE, "min");
+        map.put(Long.MAX_VALUE, "max");
+        map.put(0, "zero again");
+
+        assertThat(map.size()).isEqualTo(3);
+        assertThat(map.get(0)).isEqualTo("zero again");
+        assertThat(map.get(Long.MIN_VALUE)).isEqualTo("min");
+        assertThat(map.get(Long.MAX_VALUE)).isEqualTo("max");
+        assertThat(map.get(1)).isNull();
+    }
+
+    @ParameterizedTest
+    @MethodSource("maps")
+    void clear_and_reserve_keep_the_map_usable(Supplier<LongObjectMap<String>> factory) {
+        LongObjectMap<String> map = factory.get();
+        for (long key = 1; key <= 100; key++)
+            map.put(key, "v" + key);
+        map.clear();
+        assertThat(map.size()).isZero();
+        assertThat(map.get(50)).isNull();
+        assertThat(map.values()).isEmpty();
+
+        map.ensureCapacity(10_000);
+        for (long key = 1; key <= 10_000; key++)
+            map.put(key * 31, "v" + key);
+        assertThat(map.size()).isEqualTo(10_000);
+        assertThat(map.get(31 * 9_999)).isEqualTo("v9999");
+    }
+}
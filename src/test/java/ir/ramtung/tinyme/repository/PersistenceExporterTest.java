@@ -0,0 +1,116 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.journal.JournalSyncPolicy;
+import ir.ramtung.tinyme.journal.RequestJournal;
+import ir.ramtung.tinyme.journal.SnapshotStore;
+import ir.ramtung.tinyme.journal.Snapshotter;
+import ir.ramtung.tinyme.messaging.RequestDispatcher;
+import ir.ramtung.tinyme.messaging.SecurityShards;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PersistenceExporterTest {
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 2, 23, 10, 59, 54, 970_000_000);
+
+    @TempDir
+    Path directory;
+
+    private BrokerRepository brokerRepository;
+    private SecurityRepository securityRepository;
+    private ShareholderRepository shareholderRepository;
+    private SecurityShards securityShards;
+    private PersistenceExporter exporter;
+
+    @BeforeEach
+    void setup() {
+        brokerRepository = new BrokerRepository();
+        securityRepository = new SecurityRepository();
+        shareholderRepository = new ShareholderRepository();
+        securityShards = new SecurityShards(2, 1024);
+        RequestJournal journal = new RequestJournal("", 1024, JournalSyncPolicy.OS, 1, 1);
+        SnapshotStore store = new SnapshotStore("", 2, brokerRepository, shareholderRepository, securityRepository);
+        Snapshotter snapshotter = new Snapshotter(new RequestDispatcher(null, securityShards, journal), journal,
+                securityShards, store, 0);
+        exporter = new PersistenceExporter("", true, snapshotter);
+
+        Broker broker = Broker.builder().brokerId(1).name("broker1").credit(5_000_000).build();
+        brokerRepository.addBroker(broker);
+        Shareholder shareholder = Shareholder.builder().shareholderId(2).name("holder, two").build();
+        shareholderRepository.addShareholder(shareholder);
+        Security security = Security.builder().isin("ABC").tickSize(5).lotSize(10).build();
+        securityRepository.addSecurity(security);
+        shareholder.incPosition(security, 4_000);
+        security.getOrderBook().enqueue(new Order(1, security, Side.BUY, 300, 15000, broker, shareholder, TIME, 20));
+        IcebergOrder iceberg = new IcebergOrder(2, security, Side.SELL, 1000, 15500, broker, shareholder, TIME, 300);
+        security.getOrderBook().enqueue(iceberg);
+        security.getOrderBook().decreaseQuantity(iceberg, 120);
+        security.getOrderCancellationQueue().addToDeactivatedBuy(
+                new StopLimitOrder(3, security, Side.BUY, 10, 16000, broker, shareholder, TIME, OrderStatus.NEW, 15900));
+        security.getTradeTape().record(15500, 120, 9, 2, 1, 1);
+        security.getTradeTape().record(15400, 50, 10, 8, 1, 1);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        securityShards.shutdown();
+    }
+
+    @Test
+    void exported_files_load_back_into_the_same_state() throws InterruptedException {
+        exporter.export(directory);
+
+        BrokerRepository brokers = new BrokerRepository();
+        SecurityRepository securities = new SecurityRepository();
+        ShareholderRepository shareholders = new ShareholderRepository();
+        new PersistenceLoader(directory.toUri().toString(), new DefaultResourceLoader(), brokers, securities,
+                shareholders).load();
+
+        assertThat(brokers.findBrokerById(1).getCredit()).isEqualTo(5_000_000);
+        assertThat(shareholders.findShareholderById(2).getName()).isEqualTo("holder, two");
+        Security security = securities.findSecurityByIsin("ABC");
+        assertThat(security.getTickSize()).isEqualTo(5);
+        assertThat(security.getLotSize()).isEqualTo(10);
+        assertThat(shareholders.findShareholderById(2).getPositions().get(security)).isEqualTo(4_000);
+        Order buy = security.getOrderBook().findByOrderId(Side.BUY, 1);
+        assertThat(buy.getEntryTime()).isEqualTo(TIME);
+        assertThat(buy.getMinimumExecutionQuantity()).isEqualTo(20);
+        IcebergOrder iceberg = (IcebergOrder) security.getOrderBook().findByOrderId(Side.SELL, 2);
+        assertThat(iceberg.getTotalQuantity()).isEqualTo(880);
+        assertThat(iceberg.getDisplayedQuantity()).isEqualTo(180);
+        assertThat(security.getOrderBook().findByOrderId(Side.BUY, 3)).isNull();
+    }
+
+    @Test
+    void trades_are_written_as_csv_and_as_compressed_columns() throws IOException, InterruptedException {
+        exporter.export(directory);
+
+        assertThat(Files.readAllLines(directory.resolve("trade.csv"))).containsExactly(
+                "isin,price,quantity,buyOrderId,sellOrderId,buyBrokerId,sellBrokerId",
+                "ABC,15500,120,9,2,1,1",
+                "ABC,15400,50,10,8,1,1");
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(
+                Files.newInputStream(directory.resolve("trade.columns.gz")))))) {
+            assertThat(in.readInt()).isEqualTo(PersistenceExporter.TradeColumns.MAGIC);
+            assertThat(in.readUTF()).isEqualTo("ABC");
+            assertThat(in.readInt()).isEqualTo(2);
+            assertThat(new int[] {in.readInt(), in.readInt()}).containsExactly(15500, 15400);
+            assertThat(new int[] {in.readInt(), in.readInt()}).containsExactly(120, 50);
+            assertThat(new long[] {in.readLong(), in.readLong()}).containsExactly(9, 10);
+            assertThat(new long[] {in.readLong(), in.readLong()}).containsExactly(2, 8);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PersistenceLoaderTest {
+    @TempDir
+    Path directory;
+
+    private BrokerRepository brokerRepository;
+    private SecurityRepository securityRepository;
+    private ShareholderRepository shareholderRepository;
+
+    @BeforeEach
+    void setup() {
+        brokerRepository = new BrokerRepository();
+        securityRepository = new SecurityRepository();
+        shareholderRepository = new ShareholderRepository();
+    }
+
+    private void load(String location) {
+        new PersistenceLoader(location, new DefaultResourceLoader(), brokerRepository, securityRepository,
+                shareholderRepository).load();
+    }
+
+    @Test
+    void shipped_persistence_files_populate_the_repositories_and_books() {
+        load("classpath:persistence");
+
+        assertThat(brokerRepository.findBrokerById(1).getCredit()).isEqualTo(100_000_000L);
+        assertThat(brokerRepository.findBrokerById(3).getName()).isEqualTo("broker3");
+        Security sec1 = securityRepository.findSecurityByIsin("SEC1");
+        Security sec2 = securityRepository.findSecurityByIsin("SEC2");
+        assertThat(securityRepository.findSecurityByIsin("SEC3").getOrderBook().hasOrderOfType(Side.BUY)).isFalse();
+        assertThat(shareholderRepository.findShareholderById(1).getPositions().get(sec1)).isEqualTo(1000);
+        assertThat(shareholderRepository.findShareholderById(1).getPositions().get(sec2)).isEqualTo(800);
+
+        assertThat(sec1.getOrderBook().getBuyQueue()).extracting(Order::getOrderId).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(sec1.getOrderBook().getSellQueue()).extracting(Order::getOrderId)
+                .containsExactly(6L, 7L, 8L, 9L, 10L);
+        Order first = sec1.getOrderBook().findByOrderId(Side.BUY, 1);
+        assertThat(first.getStatus()).isEqualTo(OrderStatus.QUEUED);
+        assertThat(first.getEntryTime()).isEqualTo(LocalDateTime.of(2024, 2, 23, 10, 59, 54, 970_000_000));
+        assertThat(first.getSecurity()).isSameAs(sec1);
+        assertThat(first.getBroker()).isSameAs(brokerRepository.findBrokerById(1));
+
+        IcebergOrder iceberg = (IcebergOrder) sec2.getOrderBook().findByOrderId(Side.BUY, 16);
+        assertThat(iceberg.getPeakSize()).isEqualTo(100);
+        assertThat(iceberg.getDisplayedQuantity()).isEqualTo(100);
+        assertThat(iceberg.getTotalQuantity()).isEqualTo(445);
+        assertThat(iceberg.getMinimumExecutionQuantity()).isEqualTo(10);
+        assertThat(sec2.getOrderBook().getTradableQuantity(15450, Side.BUY)).isEqualTo(304 + 43 + 445 + 526 + 445 + 526);
+    }
+
+    @Test
+    void iceberg_keeps_a_partially_consumed_displayed_quantity() throws IOException {
+        Files.writeString(directory.resolve("broker.csv"), "brokerId,name,credit\n1,b,1000\n");
+        Files.writeString(directory.resolve("security.csv"), "isin,tickSize,lotSize\nABC,1,1\n");
+        Files.writeString(directory.resolve("shareholder.csv"), "shareholderId,name\n1,s\n");
+        Files.writeString(directory.resolve("position.csv"), "shareholderId,isin,positions\n1,ABC,5000\n");
+        Files.writeString(directory.resolve("orderbook.csv"), "orderId,isin,side,quantity,price,brokerId,"
+                + "shareholderId,entryTime,peakSize,displayedQuantity,minimumExecutionQuantity\n"
+                + "1,ABC,SELL,1000,15000,1,1,2024-02-23T10:00:00,300,120,0\n");
+
+        load(directory.toUri().toString());
+
+        Security security = securityRepository.findSecurityByIsin("ABC");
+        IcebergOrder iceberg = (IcebergOrder) security.getOrderBook().findByOrderId(Side.SELL, 1);
+        assertThat(iceberg.getDisplayedQuantity()).isEqualTo(120);
+        assertThat(iceberg.getQuantity()).isEqualTo(120);
+        assertThat(security.getOrderBook()
+                .totalSellQuantityByShareholder(shareholderRepository.findShareholderById(1))).isEqualTo(1000);
+    }
+
+    @Test
+    void orders_referring_to_unknown_entities_are_rejected() throws IOException {
+        Files.writeString(directory.resolve("broker.csv"), "brokerId,name,credit\n1,b,1000\n");
+        Files.writeString(directory.resolve("security.csv"), "isin,tickSize,lotSize\nABC,1,1\n");
+        Files.writeString(directory.resolve("shareholder.csv"), "shareholderId,name\n1,s\n");
+        Files.writeString(directory.resolve("position.csv"), "shareholderId,isin,positions\n");
+        Files.writeString(directory.resolve("orderbook.csv"), "orderId,isin,side,quantity,price,brokerId,"
+                + "shareholderId,entryTime,peakSize,displayedQuantity,minimumExecutionQuantity\n"
+                + "1,ABC,BUY,10,15000,9,1,2024-02-23T10:00:00,0,0,0\n");
+
+        assertThatThrownBy(() -> load(directory.toUri().toString()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("broker 9");
+    }
+}